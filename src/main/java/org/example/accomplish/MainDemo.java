@@ -14,10 +14,21 @@ public class MainDemo {
 // 初始化服务与存储
         ResourceStore resourceStore = new ResourceStore();
         PolicyContract policy = new PolicyContract();
+        policy.startReaper(1000); // 后台清理过期授权
         DidRegistry didRegistry = new DidRegistry();
         AuditService audit = new AuditService();
-        KmsService kms = new KmsService(policy, didRegistry, audit, resourceStore);
+        // DID 解析：模拟 20ms 的账本查询，前置缓存（TTL、负缓存、并发合并、提前刷新）
+        CachingDidResolver didResolver = new CachingDidResolver(new LedgerDidResolver(didRegistry, 20, 10));
+        KmsService kms = new KmsService(policy, didResolver, audit, resourceStore);
+        // attestation 校验：模拟 2ms 的证书链与签名验证，前置按 TEE 与摘要缓存（TTL、TCB 吊销失效）
+        kms.setAttestationVerifier(new CachingAttestationVerifier(new SimulatedAttestationVerifier(2_000)));
         TeeEnvironment tee = new TeeEnvironment(audit, kms, resourceStore);
+        tee.startSweeper(1000); // 到期/空闲会话的 DEK 定时清零
+        tee.enableUsageAggregation(UsageAggregator.DEFAULT_MAX_RECORDS, UsageAggregator.DEFAULT_MAX_DELAY_MILLIS); // 使用记录在 TEE 本地缓冲，按批封存后一次性上报
+        RevocationBus revocationBus = new RevocationBus(kms, 4, 256);
+        revocationBus.addTee(tee);
+        policy.addListener(revocationBus); // 链上撤销事件 -> KMS -> TEE
+        revocationBus.start();
 
 // 1. 数据提供方：生成资源与 DEK（DEK 在 demo 中为随机字节）
         Resource resource = resourceStore.createResource("resource-001", "Hello, secret data for sharing".getBytes(StandardCharsets.UTF_8));
@@ -60,12 +71,18 @@ public class MainDemo {
         tee.simulateUse(req.getRequestId(), requesterDid);
         tee.simulateUse(req.getRequestId(), requesterDid);
         tee.simulateUse(req.getRequestId(), requesterDid);
+        tee.flushUsage(); // 封存本地使用记录为一条聚合凭证
+        audit.flushBatchToChain();
+        Thread.sleep(200);
+        UsageProof usageProof = audit.proveUsage(req.getRequestId(), 2);
+        System.out.println("第 2 次使用的审计证明校验：" + (usageProof != null
+                && MerkleProofVerifier.verifyUsage(usageProof.getRecord(), usageProof, usageProof.getAggregateProof().getMerkleRoot())));
 
 // 9. 演示撤销：链上撤销授权 -> KMS 监听并撤销 wrap_DEK -> TEE 收到撤销并销毁 DEK
         System.out.println("\n-- 模拟撤销流程 --");
         policy.revokeAuthorization(authorizationId);
-// 通知 KMS（在真实系统中 KMS 监听链上事件，这里直接调用）
-        kms.onAuthorizationRevoked(authorizationId);
+// 撤销事件经 RevocationBus 扇出到 KMS 与 TEE，等待投递完成
+        revocationBus.awaitDelivered(1000);
 
 // 展示最终状态
         System.out.println("演示结束。");
@@ -3,8 +3,11 @@ package org.example.accomplish.model;
 public class AuditReceipt {
     private String batchId;
     private String merkleRoot;
+    private long mmrSize; // leaves covered by merkleRoot across all batches
+    private int batchSize;
     private String chainTxId;
     private int confirmations;
+    private long blockHeight;
     private long timestamp;
     private String auditSignature;
 
@@ -12,10 +15,16 @@ public class AuditReceipt {
     public void setBatchId(String batchId) { this.batchId = batchId; }
     public String getMerkleRoot() { return merkleRoot; }
     public void setMerkleRoot(String merkleRoot) { this.merkleRoot = merkleRoot; }
+    public long getMmrSize() { return mmrSize; }
+    public void setMmrSize(long mmrSize) { this.mmrSize = mmrSize; }
+    public int getBatchSize() { return batchSize; }
+    public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
     public String getChainTxId() { return chainTxId; }
     public void setChainTxId(String chainTxId) { this.chainTxId = chainTxId; }
     public int getConfirmations() { return confirmations; }
     public void setConfirmations(int confirmations) { this.confirmations = confirmations; }
+    public long getBlockHeight() { return blockHeight; }
+    public void setBlockHeight(long blockHeight) { this.blockHeight = blockHeight; }
     public long getTimestamp() { return timestamp; }
     public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
     public String getAuditSignature() { return auditSignature; }
@@ -0,0 +1,28 @@
+package org.example.accomplish.model;
+
+import java.util.*;
+
+public class ConsistencyProof {
+    private long oldSize;
+    private long newSize;
+    private String oldRoot;
+    private String newRoot;
+    private List<String> oldPeaks = new ArrayList<>(); // left to right, hex
+    private List<String> mergePath = new ArrayList<>(); // right siblings lifting the lowest old peak
+    private List<String> rightPeaks = new ArrayList<>(); // new peaks right of the merged mountain
+
+    public long getOldSize() { return oldSize; }
+    public void setOldSize(long oldSize) { this.oldSize = oldSize; }
+    public long getNewSize() { return newSize; }
+    public void setNewSize(long newSize) { this.newSize = newSize; }
+    public String getOldRoot() { return oldRoot; }
+    public void setOldRoot(String oldRoot) { this.oldRoot = oldRoot; }
+    public String getNewRoot() { return newRoot; }
+    public void setNewRoot(String newRoot) { this.newRoot = newRoot; }
+    public List<String> getOldPeaks() { return oldPeaks; }
+    public void setOldPeaks(List<String> oldPeaks) { this.oldPeaks = oldPeaks; }
+    public List<String> getMergePath() { return mergePath; }
+    public void setMergePath(List<String> mergePath) { this.mergePath = mergePath; }
+    public List<String> getRightPeaks() { return rightPeaks; }
+    public void setRightPeaks(List<String> rightPeaks) { this.rightPeaks = rightPeaks; }
+}
@@ -5,6 +5,7 @@ public class DidReceipt {
     private String publicKeyFingerprint;
     private long timestamp;
     private String receiptId; // simulated
+    private int didId = -1; // dense id assigned by DidRegistry
 
     public String getDid() { return did; }
     public void setDid(String did) { this.did = did; }
@@ -14,4 +15,6 @@ public class DidReceipt {
     public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
     public String getReceiptId() { return receiptId; }
     public void setReceiptId(String receiptId) { this.receiptId = receiptId; }
+    public int getDidId() { return didId; }
+    public void setDidId(int didId) { this.didId = didId; }
 }
\ No newline at end of file
@@ -10,6 +10,8 @@ public class Evidence {
     private String kmsSignature;
     private String teeSignature; // optional
     private String originalEvidencePointer;
+    private String usageRoot; // TEE_USAGE_BATCH only: root over the sealed usage records
+    private int usageCount; // TEE_USAGE_BATCH only: records under usageRoot
 
     public String getEvidenceId() { return evidenceId; }
     public void setEvidenceId(String evidenceId) { this.evidenceId = evidenceId; }
@@ -29,4 +31,8 @@ public class Evidence {
     public void setTeeSignature(String teeSignature) { this.teeSignature = teeSignature; }
     public String getOriginalEvidencePointer() { return originalEvidencePointer; }
     public void setOriginalEvidencePointer(String originalEvidencePointer) { this.originalEvidencePointer = originalEvidencePointer; }
-}
\ No newline at end of file
+    public String getUsageRoot() { return usageRoot; }
+    public void setUsageRoot(String usageRoot) { this.usageRoot = usageRoot; }
+    public int getUsageCount() { return usageCount; }
+    public void setUsageCount(int usageCount) { this.usageCount = usageCount; }
+}
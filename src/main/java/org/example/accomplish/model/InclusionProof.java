@@ -0,0 +1,31 @@
+package org.example.accomplish.model;
+
+import java.util.*;
+
+public class InclusionProof {
+    private String evidenceId;
+    private long leafIndex;
+    private long mmrSize; // size of the anchored range the proof is against
+    private String leafHash;
+    private List<String> siblings = new ArrayList<>(); // leaf -> peak, hex
+    private List<String> otherPeaks = new ArrayList<>(); // all peaks except the leaf's own, left to right
+    private int peakIndex; // position of the leaf's peak among all peaks
+    private String merkleRoot;
+
+    public String getEvidenceId() { return evidenceId; }
+    public void setEvidenceId(String evidenceId) { this.evidenceId = evidenceId; }
+    public long getLeafIndex() { return leafIndex; }
+    public void setLeafIndex(long leafIndex) { this.leafIndex = leafIndex; }
+    public long getMmrSize() { return mmrSize; }
+    public void setMmrSize(long mmrSize) { this.mmrSize = mmrSize; }
+    public String getLeafHash() { return leafHash; }
+    public void setLeafHash(String leafHash) { this.leafHash = leafHash; }
+    public List<String> getSiblings() { return siblings; }
+    public void setSiblings(List<String> siblings) { this.siblings = siblings; }
+    public List<String> getOtherPeaks() { return otherPeaks; }
+    public void setOtherPeaks(List<String> otherPeaks) { this.otherPeaks = otherPeaks; }
+    public int getPeakIndex() { return peakIndex; }
+    public void setPeakIndex(int peakIndex) { this.peakIndex = peakIndex; }
+    public String getMerkleRoot() { return merkleRoot; }
+    public void setMerkleRoot(String merkleRoot) { this.merkleRoot = merkleRoot; }
+}
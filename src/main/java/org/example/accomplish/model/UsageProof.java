@@ -0,0 +1,21 @@
+package org.example.accomplish.model;
+
+/**
+ * Proves one TEE usage record: usageProof leads from the record's leaf to the usageRoot of its
+ * aggregated evidence, and aggregateProof leads from that evidence to an anchored root.
+ */
+public class UsageProof {
+    private UsageRecord record;
+    private InclusionProof usageProof; // within the usage batch; merkleRoot == aggregate.usageRoot
+    private Evidence aggregate; // the TEE_USAGE_BATCH evidence, as logged
+    private InclusionProof aggregateProof;
+
+    public UsageRecord getRecord() { return record; }
+    public void setRecord(UsageRecord record) { this.record = record; }
+    public InclusionProof getUsageProof() { return usageProof; }
+    public void setUsageProof(InclusionProof usageProof) { this.usageProof = usageProof; }
+    public Evidence getAggregate() { return aggregate; }
+    public void setAggregate(Evidence aggregate) { this.aggregate = aggregate; }
+    public InclusionProof getAggregateProof() { return aggregateProof; }
+    public void setAggregateProof(InclusionProof aggregateProof) { this.aggregateProof = aggregateProof; }
+}
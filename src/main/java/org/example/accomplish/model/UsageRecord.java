@@ -0,0 +1,31 @@
+package org.example.accomplish.model;
+
+// one TEE use of a session, as buffered by the TEE before it is sealed into a usage batch
+public class UsageRecord {
+    private String requestId;
+    private String requesterDid;
+    private int call; // 1-based call number under the session's quota
+    private String outputHash;
+    private long timestamp;
+
+    public UsageRecord() { }
+
+    public UsageRecord(String requestId, String requesterDid, int call, String outputHash, long timestamp) {
+        this.requestId = requestId;
+        this.requesterDid = requesterDid;
+        this.call = call;
+        this.outputHash = outputHash;
+        this.timestamp = timestamp;
+    }
+
+    public String getRequestId() { return requestId; }
+    public void setRequestId(String requestId) { this.requestId = requestId; }
+    public String getRequesterDid() { return requesterDid; }
+    public void setRequesterDid(String requesterDid) { this.requesterDid = requesterDid; }
+    public int getCall() { return call; }
+    public void setCall(int call) { this.call = call; }
+    public String getOutputHash() { return outputHash; }
+    public void setOutputHash(String outputHash) { this.outputHash = outputHash; }
+    public long getTimestamp() { return timestamp; }
+    public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
+}
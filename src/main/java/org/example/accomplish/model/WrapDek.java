@@ -10,11 +10,12 @@ public class WrapDek {
     private long validFrom;
     private long validTo;
     private Map<String,String> usageConstraints = new HashMap<>();
-    private String boundReceiptIdSha256;
+    private volatile String boundReceiptIdSha256; // set by KMS on finalization, read by TEEs
     private String boundAuthorizationIdSha256;
-    private String kmsSignature; // simulated
-    private boolean revoked = false;
+    private volatile String kmsSignature; // simulated; written last on finalization
+    private volatile boolean revoked = false; // set by KMS, read by TEEs
     private String requestId;
+    private String resourceId; // the resource the DEK decrypts; signed with the rest of the wrap
 
     // getters / setters
     public String getWrapDekId() { return wrapDekId; }
@@ -41,4 +42,6 @@ public class WrapDek {
     public void setRevoked(boolean revoked) { this.revoked = revoked; }
     public String getRequestId() { return requestId; }
     public void setRequestId(String requestId) { this.requestId = requestId; }
+    public String getResourceId() { return resourceId; }
+    public void setResourceId(String resourceId) { this.resourceId = resourceId; }
 }
\ No newline at end of file
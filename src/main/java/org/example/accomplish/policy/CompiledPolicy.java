@@ -0,0 +1,76 @@
+package org.example.accomplish.policy;
+
+import org.example.accomplish.policy.RequestAttributes.Attribute;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A policy compiled into a predicate tree, plus the usage constraints it grants.
+ * Decisions are memoized on the values of the attributes the rule actually reads, so requests
+ * that differ only in unreferenced attributes share an entry. Rules reading "time" are never
+ * memoized, and rules with fewer than CACHE_MIN_COMPARISONS comparisons are cheaper to evaluate
+ * than to look up.
+ */
+public class CompiledPolicy {
+    static final int CACHE_MIN_COMPARISONS = 4;
+    static final int MAX_CACHED_DECISIONS = 4096;
+
+    private final String source;
+    private final PolicyExpression.Node root;
+    private final Attribute[] keyAttributes;
+    private final boolean memoize;
+    private final Map<String, String> usageConstraints;
+    private final Map<Key, Boolean> decisions = new ConcurrentHashMap<>();
+
+    CompiledPolicy(String source, PolicyExpression.Node root, EnumSet<Attribute> referenced, int comparisons,
+                   Map<String, String> usageConstraints) {
+        this.source = source;
+        this.root = root;
+        this.keyAttributes = referenced.toArray(new Attribute[0]);
+        this.memoize = comparisons >= CACHE_MIN_COMPARISONS && !referenced.contains(Attribute.TIME);
+        this.usageConstraints = Collections.unmodifiableMap(usageConstraints);
+    }
+
+    public boolean evaluate(RequestAttributes a) {
+        if (!memoize) {
+            return root.test(a);
+        }
+        Object[] values = new Object[keyAttributes.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = keyAttributes[i].numeric ? (Object) a.number(keyAttributes[i]) : a.text(keyAttributes[i]);
+        }
+        Key key = new Key(values);
+        Boolean d = decisions.get(key);
+        if (d == null) {
+            d = root.test(a);
+            if (decisions.size() >= MAX_CACHED_DECISIONS) decisions.clear();
+            decisions.put(key, d);
+        }
+        return d;
+    }
+
+    public String getSource() { return source; }
+    public Map<String, String> getUsageConstraints() { return usageConstraints; }
+    public int cachedDecisionCount() { return decisions.size(); }
+
+    private static final class Key {
+        final Object[] values;
+        final int hash;
+
+        Key(Object[] values) {
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && Arrays.equals(values, ((Key) o).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.example.accomplish.policy;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Evaluates authorization policies against request attributes. Policy text is compiled once
+ * and shared by every authorization carrying the same text.
+ * DEFAULT_POLICY is what an authorization published without a policy gets (the contract stores
+ * it explicitly): allow, with the usage constraints KMS used to hard-code (maxCalls=3,
+ * purpose=analysis). A missing policy at evaluation time is a denial, never the default.
+ */
+public class PolicyEngine {
+    public static final String DEFAULT_POLICY = "true => maxCalls=3; purpose=analysis";
+    static final String DENY_POLICY = "false";
+
+    private final Map<String, CompiledPolicy> compiled = new ConcurrentHashMap<>();
+
+    public static class Decision {
+        private final boolean allowed;
+        private final CompiledPolicy policy;
+
+        Decision(boolean allowed, CompiledPolicy policy) {
+            this.allowed = allowed;
+            this.policy = policy;
+        }
+
+        public boolean isAllowed() { return allowed; }
+        public Map<String, String> getUsageConstraints() { return policy.getUsageConstraints(); }
+        public String getPolicy() { return policy.getSource(); }
+    }
+
+    // throws IllegalArgumentException for malformed policy text
+    public static void validate(String policyText) {
+        PolicyExpression.compile(policyText);
+    }
+
+    public CompiledPolicy compile(String policyText) {
+        if (policyText == null) {
+            throw new IllegalArgumentException("missing policy");
+        }
+        String text = policyText;
+        CompiledPolicy p = compiled.get(text);
+        if (p == null) {
+            p = PolicyExpression.compile(text);
+            CompiledPolicy prev = compiled.putIfAbsent(text, p);
+            if (prev != null) p = prev;
+        }
+        return p;
+    }
+
+    // a null policy is denied
+    public Decision evaluate(String policyText, RequestAttributes attributes) {
+        if (policyText == null) {
+            return new Decision(false, compile(DENY_POLICY));
+        }
+        CompiledPolicy p = compile(policyText);
+        return new Decision(p.evaluate(attributes), p);
+    }
+}
@@ -0,0 +1,217 @@
+package org.example.accomplish.policy;
+
+import org.example.accomplish.policy.RequestAttributes.Attribute;
+
+import java.util.*;
+
+/**
+ * Parser for policy text, compiled once into a predicate tree.
+ *
+ *   policy  := expr [ "=>" grant { ";" grant } ]
+ *   grant   := key "=" value                       usage constraint copied into the wrap
+ *   expr    := and { "||" and }
+ *   and     := unary { "&&" unary }
+ *   unary   := "!" unary | "(" expr ")" | "true" | "false" | cmp
+ *   cmp     := attribute op literal | attribute "in" "{" literal { "," literal } "}"
+ *   op      := "==" | "!=" | "<" | "<=" | ">" | ">="  (ordering only on numeric attributes)
+ *
+ * Attributes: purpose, calls, hour, time, tee, did. Strings are double-quoted.
+ * Example: purpose in {"analysis", "audit"} && calls <= 3 && hour >= 8 && hour < 20 => maxCalls=3; purpose=analysis
+ */
+class PolicyExpression {
+    interface Node {
+        boolean test(RequestAttributes a);
+    }
+
+    private final String src;
+    private final List<String> tokens = new ArrayList<>();
+    private final List<Integer> positions = new ArrayList<>();
+    private int pos = 0;
+    private final EnumSet<Attribute> referenced = EnumSet.noneOf(Attribute.class);
+    private int comparisons = 0;
+
+    private PolicyExpression(String src) {
+        this.src = src;
+    }
+
+    static CompiledPolicy compile(String text) {
+        int arrow = text.indexOf("=>");
+        PolicyExpression p = new PolicyExpression(arrow < 0 ? text : text.substring(0, arrow));
+        p.tokenize();
+        Node root = p.parseOr();
+        if (p.pos < p.tokens.size()) {
+            throw p.error("unexpected '" + p.tokens.get(p.pos) + "'");
+        }
+        Map<String, String> grants = new LinkedHashMap<>();
+        if (arrow >= 0) {
+            for (String kv : text.substring(arrow + 2).split(";")) {
+                if (kv.trim().isEmpty()) continue;
+                int eq = kv.indexOf('=');
+                if (eq < 0) {
+                    throw new IllegalArgumentException("policy grant without '=': " + kv.trim());
+                }
+                grants.put(kv.substring(0, eq).trim(), kv.substring(eq + 1).trim());
+            }
+        }
+        return new CompiledPolicy(text, root, p.referenced, p.comparisons, grants);
+    }
+
+    private void tokenize() {
+        int i = 0;
+        while (i < src.length()) {
+            char c = src.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            int start = i;
+            if (c == '"') {
+                i = src.indexOf('"', i + 1);
+                if (i < 0) throw new IllegalArgumentException("unterminated string at " + start + " in: " + src);
+                i++;
+            } else if (Character.isLetterOrDigit(c) || c == '-' || c == '_' || c == '.' || c == ':') {
+                while (i < src.length() && (Character.isLetterOrDigit(src.charAt(i)) || "-_.:".indexOf(src.charAt(i)) >= 0)) i++;
+            } else if (i + 1 < src.length() && Arrays.asList("==", "!=", "<=", ">=", "&&", "||").contains(src.substring(i, i + 2))) {
+                i += 2;
+            } else if ("<>!(){},".indexOf(c) >= 0) {
+                i++;
+            } else {
+                throw new IllegalArgumentException("unexpected character '" + c + "' at " + i + " in: " + src);
+            }
+            tokens.add(src.substring(start, i));
+            positions.add(start);
+        }
+    }
+
+    private Node parseOr() {
+        Node left = parseAnd();
+        while (accept("||")) {
+            Node l = left, r = parseAnd();
+            left = a -> l.test(a) || r.test(a);
+        }
+        return left;
+    }
+
+    private Node parseAnd() {
+        Node left = parseUnary();
+        while (accept("&&")) {
+            Node l = left, r = parseUnary();
+            left = a -> l.test(a) && r.test(a);
+        }
+        return left;
+    }
+
+    private Node parseUnary() {
+        if (accept("!")) {
+            Node inner = parseUnary();
+            return a -> !inner.test(a);
+        }
+        if (accept("(")) {
+            Node inner = parseOr();
+            expect(")");
+            return inner;
+        }
+        if (accept("true")) return a -> true;
+        if (accept("false")) return a -> false;
+        return parseComparison();
+    }
+
+    private Node parseComparison() {
+        String name = next("attribute");
+        Attribute attr = Attribute.byName(name);
+        if (attr == null) {
+            throw error("unknown attribute '" + name + "'");
+        }
+        referenced.add(attr);
+        comparisons++;
+        if (accept("in")) {
+            expect("{");
+            Set<Object> values = new HashSet<>();
+            do {
+                values.add(literal(attr));
+            } while (accept(","));
+            expect("}");
+            return attr.numeric ? numberIn(attr, values) : textIn(attr, values);
+        }
+        String op = next("operator");
+        Object value = literal(attr);
+        if (!attr.numeric) {
+            String v = (String) value;
+            switch (op) {
+                case "==": return a -> v.equals(a.text(attr));
+                case "!=": return a -> !v.equals(a.text(attr));
+                default: throw error("operator " + op + " needs a numeric attribute, got " + attr.name);
+            }
+        }
+        long v = (Long) value;
+        switch (attr) {
+            case CALLS: return numeric(op, v, a -> a.calls);
+            case HOUR: return numeric(op, v, a -> a.hour);
+            default: return numeric(op, v, a -> a.time);
+        }
+    }
+
+    private interface LongField {
+        long get(RequestAttributes a);
+    }
+
+    private Node numeric(String op, long v, LongField f) {
+        switch (op) {
+            case "==": return a -> f.get(a) == v;
+            case "!=": return a -> f.get(a) != v;
+            case "<": return a -> f.get(a) < v;
+            case "<=": return a -> f.get(a) <= v;
+            case ">": return a -> f.get(a) > v;
+            case ">=": return a -> f.get(a) >= v;
+            default: throw error("unknown operator " + op);
+        }
+    }
+
+    private static Node numberIn(Attribute attr, Set<Object> values) {
+        return a -> values.contains(a.number(attr));
+    }
+
+    private static Node textIn(Attribute attr, Set<Object> values) {
+        return a -> {
+            String t = a.text(attr);
+            return t != null && values.contains(t);
+        };
+    }
+
+    private Object literal(Attribute attr) {
+        String t = next("literal");
+        if (attr.numeric) {
+            try {
+                return Long.parseLong(t);
+            } catch (NumberFormatException ex) {
+                throw error(attr.name + " expects a number, got " + t);
+            }
+        }
+        if (t.length() < 2 || t.charAt(0) != '"') {
+            throw error(attr.name + " expects a quoted string, got " + t);
+        }
+        return t.substring(1, t.length() - 1);
+    }
+
+    private boolean accept(String t) {
+        if (pos < tokens.size() && tokens.get(pos).equals(t)) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String t) {
+        if (!accept(t)) throw error("expected '" + t + "'");
+    }
+
+    private String next(String what) {
+        if (pos >= tokens.size()) throw error("expected " + what);
+        return tokens.get(pos++);
+    }
+
+    private IllegalArgumentException error(String msg) {
+        int at = pos < positions.size() ? positions.get(pos) : src.length();
+        return new IllegalArgumentException(msg + " at " + at + " in policy: " + src.trim());
+    }
+}
@@ -0,0 +1,101 @@
+package org.example.accomplish.policy;
+
+import org.example.accomplish.model.Request;
+
+import java.util.Calendar;
+
+/**
+ * The request attributes a policy rule can refer to, extracted once per request.
+ * purpose and calls come from the request's usageParameters ("maxCalls=3;purpose=analysis");
+ * hour is the local hour (0-23) of the request timestamp.
+ */
+public class RequestAttributes {
+    public enum Attribute {
+        PURPOSE("purpose", false),
+        CALLS("calls", true),
+        HOUR("hour", true),
+        TIME("time", true),
+        TEE("tee", false),
+        DID("did", false);
+
+        final String name;
+        final boolean numeric;
+
+        Attribute(String name, boolean numeric) {
+            this.name = name;
+            this.numeric = numeric;
+        }
+
+        static Attribute byName(String name) {
+            for (Attribute a : values()) {
+                if (a.name.equals(name)) return a;
+            }
+            return null;
+        }
+    }
+
+    final String purpose;
+    final long calls;
+    final long hour;
+    final long time;
+    final String teeId;
+    final String did;
+
+    public RequestAttributes(String purpose, long calls, long time, String teeId, String did) {
+        this.purpose = purpose;
+        this.calls = calls;
+        this.time = time;
+        this.teeId = teeId;
+        this.did = did;
+        Calendar c = Calendar.getInstance();
+        c.setTimeInMillis(time);
+        this.hour = c.get(Calendar.HOUR_OF_DAY);
+    }
+
+    public static RequestAttributes of(Request req, String recipientTeeId) {
+        return of(req, recipientTeeId, req.getTimestamp());
+    }
+
+    // time: when the decision is made, e.g. now for the renewal of an earlier request
+    public static RequestAttributes of(Request req, String recipientTeeId, long time) {
+        String purpose = null;
+        long calls = 0;
+        String params = req.getUsageParameters();
+        if (params != null) {
+            for (String kv : params.split(";")) {
+                int eq = kv.indexOf('=');
+                if (eq < 0) continue;
+                String k = kv.substring(0, eq).trim();
+                String v = kv.substring(eq + 1).trim();
+                if (k.equals("purpose")) {
+                    purpose = v;
+                } else if (k.equals("maxCalls")) {
+                    try {
+                        calls = Long.parseLong(v);
+                    } catch (NumberFormatException ignored) {
+                        // left at 0; a quota rule will then see no requested calls
+                    }
+                }
+            }
+        }
+        return new RequestAttributes(purpose, calls, time, recipientTeeId, req.getRequesterDid());
+    }
+
+    String text(Attribute a) {
+        switch (a) {
+            case PURPOSE: return purpose;
+            case TEE: return teeId;
+            case DID: return did;
+            default: return Long.toString(number(a));
+        }
+    }
+
+    long number(Attribute a) {
+        switch (a) {
+            case CALLS: return calls;
+            case HOUR: return hour;
+            case TIME: return time;
+            default: throw new IllegalArgumentException(a.name + " is not numeric");
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.example.accomplish.service;
+
+/**
+ * Verifies the attestation a TEE presents, identified by its summary hash. Real quote
+ * verification walks a certificate chain and checks signatures (milliseconds of CPU);
+ * SimulatedAttestationVerifier stands in for it and CachingAttestationVerifier sits in front.
+ */
+public interface AttestationVerifier {
+    Result verify(String teeId, String attestationSummaryHash);
+
+    // TCB status feed, if the verifier has one; caches subscribe to drop results it revokes
+    default void addTcbListener(TcbListener listener) { }
+
+    interface TcbListener {
+        void onTcbRevoked(String tcbVersion);
+    }
+
+    final class Result {
+        private final boolean valid;
+        private final String tcbVersion; // TCB level the attestation was made at; null if invalid
+        private final String reason; // why it failed; null if valid
+
+        private Result(boolean valid, String tcbVersion, String reason) {
+            this.valid = valid;
+            this.tcbVersion = tcbVersion;
+            this.reason = reason;
+        }
+
+        public static Result valid(String tcbVersion) {
+            return new Result(true, tcbVersion, null);
+        }
+
+        public static Result invalid(String reason) {
+            return new Result(false, null, reason);
+        }
+
+        public boolean isValid() { return valid; }
+        public String getTcbVersion() { return tcbVersion; }
+        public String getReason() { return reason; }
+    }
+}
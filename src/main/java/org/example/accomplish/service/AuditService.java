@@ -1,55 +1,828 @@
 package org.example.accomplish.service;
 
 import org.example.accomplish.model.*;
+import org.example.accomplish.storage.EvidenceIndex;
+import org.example.accomplish.storage.EvidenceLog;
+import org.example.accomplish.storage.IdIndex;
+import org.example.accomplish.storage.ReceiptRegistry;
+import org.example.accomplish.storage.ReceiptStore;
+import org.example.accomplish.storage.UsageBatchStore;
 import org.example.accomplish.util.CryptoUtil;
+import org.example.accomplish.util.DidInterner;
+import org.example.accomplish.util.EvidenceLeafHasher;
 import org.example.accomplish.util.IdUtil;
-import org.example.accomplish.util.MerkleUtil;
+import org.example.accomplish.util.MerkleMountainRange;
+import org.example.accomplish.util.UsageBatch;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
 
 public class AuditService {
+    public enum BackpressurePolicy { BLOCK, REJECT, SHED }
+
     private Queue<Evidence> queue = new ConcurrentLinkedQueue<>();
-    private List<AuditReceipt> receipts = Collections.synchronizedList(new ArrayList<>());
+    private final ReceiptRegistry receipts; // bounded; spills to disk next to the evidence log
+    // single commitment growing across all batches; guards queue order == leaf order
+    private final MerkleMountainRange accumulator = new MerkleMountainRange();
+    // off the heap (next to the evidence log when there is one): evidenceId -> leaf index, confirmed root -> mmrSize
+    private final IdIndex leafIndexById; // guarded by accumulator
+    private final IdIndex anchoredSizeByRoot; // guarded by accumulator
+    private long submittedLeaves = 0; // guarded by accumulator
+    private long cutSize = 0; // leaves already handed to a batch, guarded by accumulator
+    private final Object cutLock = new Object();
+    private volatile EvidenceLeafHasher.Mode leafHashMode = EvidenceLeafHasher.Mode.FULL_CONTENT;
+    private static final int PARALLEL_HASH_THRESHOLD = 256;
+    private static final int RECOVERY_CHUNK = 4096;
+    private volatile long anchoredSize = 0; // largest confirmed range; proofs never reach past it
+
+    // bounded queue: one permit per queued evidence
+    private final Semaphore capacity;
+    private final BackpressurePolicy backpressure;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong shedCount = new AtomicLong();
+    private final AtomicLong rejectCount = new AtomicLong();
+    private volatile boolean verbose = true;
+    private final EvidenceLog evidenceLog; // optional durable copy of every accepted evidence
+    private final EvidenceIndex evidenceIndex;
+
+    // background group-commit batcher (optional; flushBatchToChain still works without it)
+    private final Object batchSignal = new Object();
+    private volatile long oldestPendingAt = 0;
+    private volatile int maxBatchSize = Integer.MAX_VALUE;
+    private volatile long maxBatchDelayMillis;
+    private volatile boolean batcherRunning = false;
+    private Thread batcherThread;
+    private ExecutorService anchorPool;
+    private Semaphore anchorSlots;
+    private int anchorConcurrency;
+
+    // optional simulated chain; without it a batch is anchored instantly with one confirmation
+    private volatile SimulatedChain chain;
+    private volatile long anchorTimeoutMillis = 60_000;
+    private final Map<String, PendingAnchor> inFlight = new ConcurrentHashMap<>(); // merkleRoot -> anchor
+    private final AtomicLong resubmitCount = new AtomicLong();
+
+    // TEE usage batches behind TEE_USAGE_BATCH evidence, kept to expand them into per-use proofs:
+    // on disk next to the evidence log when there is one, else the most recent ones on the heap
+    private final UsageBatchStore usageStore;
+    static final int MAX_RETAINED_USAGE_BATCHES = 4096;
+    private final Map<String, UsageEntry> usageBatches = new ConcurrentHashMap<>(); // aggregate evidenceId -> batch
+    private final Map<String, Queue<String>> usageBatchesByRequest = new ConcurrentHashMap<>(); // requestId -> aggregate ids
+    private final Queue<String> usageBatchOrder = new ConcurrentLinkedQueue<>(); // aggregate ids, oldest first
+
+    private static class Batch {
+        List<Evidence> evidences;
+        long mmrSize;
+        String merkleRoot;
+    }
+
+    private static class UsageEntry {
+        final Evidence aggregate;
+        final UsageBatch batch;
+
+        UsageEntry(Evidence aggregate, UsageBatch batch) {
+            this.aggregate = aggregate;
+            this.batch = batch;
+        }
+    }
+
+    private static class PendingAnchor {
+        final AuditReceipt receipt;
+        final CompletableFuture<AuditReceipt> future = new CompletableFuture<>();
+        final long submittedAt = System.currentTimeMillis();
+
+        PendingAnchor(AuditReceipt receipt) {
+            this.receipt = receipt;
+        }
+    }
+
+    public AuditService() {
+        this(Integer.MAX_VALUE, BackpressurePolicy.BLOCK);
+    }
+
+    public AuditService(int queueCapacity, BackpressurePolicy backpressure) {
+        this(queueCapacity, backpressure, null);
+    }
+
+    public AuditService(int queueCapacity, BackpressurePolicy backpressure, EvidenceLog evidenceLog) {
+        this(queueCapacity, backpressure, evidenceLog, EvidenceLeafHasher.Mode.FULL_CONTENT);
+    }
+
+    /**
+     * Over a log that already holds evidence this is a restart: the log is replayed in order, the
+     * leaves up to the latest stored receipt's mmrSize go back into the accumulator (which must
+     * reproduce that receipt's root, hence the leaf hash mode here), and every later record is
+     * queued again to be anchored. Evidence ids and anchored roots stay provable across the
+     * restart.
+     */
+    public AuditService(int queueCapacity, BackpressurePolicy backpressure, EvidenceLog evidenceLog, EvidenceLeafHasher.Mode leafHashMode) {
+        this(queueCapacity, backpressure, evidenceLog, leafHashMode, null);
+    }
+
+    /**
+     * Production wiring: the evidence index reads DidRegistry.getInterner() instead of keeping a
+     * private table of its own. It never interns into it, so the registry's ids stay those of
+     * registered DIDs. Null gives the index a private interner.
+     */
+    public AuditService(int queueCapacity, BackpressurePolicy backpressure, EvidenceLog evidenceLog, EvidenceLeafHasher.Mode leafHashMode,
+                        DidInterner dids) {
+        this.backpressure = backpressure;
+        this.evidenceLog = evidenceLog;
+        this.leafHashMode = leafHashMode;
+        this.evidenceIndex = evidenceLog == null ? null : dids == null ? new EvidenceIndex(evidenceLog) : new EvidenceIndex(evidenceLog, dids);
+        this.leafIndexById = evidenceLog == null ? IdIndex.inMemory() : createIndex(evidenceLog, "leaves.idx");
+        this.anchoredSizeByRoot = evidenceLog == null ? IdIndex.inMemory() : createIndex(evidenceLog, "roots.idx");
+        this.usageStore = evidenceLog == null ? null : openUsageStore(evidenceLog);
+        ReceiptStore store = evidenceLog == null ? null : openReceiptStore(evidenceLog);
+        this.receipts = store == null ? new ReceiptRegistry() : new ReceiptRegistry(ReceiptRegistry.DEFAULT_CAPACITY, store);
+        int requeued = store == null ? 0 : recover(store);
+        // starts short by the re-queued backlog (possibly below zero) and refills as it is cut
+        this.capacity = new Semaphore(queueCapacity - requeued);
+    }
+
+    // rebuilds leaves, lookups and the queue from the log; returns how many records were re-queued
+    private int recover(ReceiptStore store) {
+        AuditReceipt last = receipts.latest();
+        long anchored = last == null ? 0 : last.getMmrSize();
+        if (evidenceLog.recordCount() < anchored) {
+            throw new IllegalStateException("evidence log holds " + evidenceLog.recordCount()
+                    + " records but receipts cover " + anchored);
+        }
+        List<Evidence> chunk = new ArrayList<>(RECOVERY_CHUNK);
+        evidenceLog.scan(0, (position, e) -> {
+            e.setOriginalEvidencePointer(EvidenceLog.toPointer(position));
+            long leaf = submittedLeaves++;
+            putIndex(leafIndexById, e.getEvidenceId(), leaf);
+            if (leaf >= anchored) {
+                queue.add(e);
+                return true;
+            }
+            chunk.add(e);
+            if (chunk.size() == RECOVERY_CHUNK) appendLeaves(chunk);
+            return true;
+        });
+        appendLeaves(chunk);
+        if (last != null && !CryptoUtil.bytesToHex(accumulator.rootAt(anchored)).equals(last.getMerkleRoot())) {
+            throw new IllegalStateException("evidence log does not reproduce anchored root " + last.getMerkleRoot()
+                    + " at size " + anchored + " (leaf hash mode " + leafHashMode + "?)");
+        }
+        try {
+            store.scan(r -> putIndex(anchoredSizeByRoot, r.getMerkleRoot(), r.getMmrSize()));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        cutSize = anchored;
+        anchoredSize = anchored;
+        int requeued = Math.toIntExact(submittedLeaves - anchored);
+        pending.set(requeued);
+        if (requeued > 0) oldestPendingAt = System.currentTimeMillis();
+        System.out.println("[审计服务] 已从日志恢复: 已锚定 " + anchored + " 条，重新排队待锚定 " + requeued + " 条");
+        return requeued;
+    }
+
+    private void appendLeaves(List<Evidence> evidences) {
+        for (byte[] leaf : hashLeaves(evidences)) accumulator.appendLeafHash(leaf);
+        evidences.clear();
+    }
+
+    private static ReceiptStore openReceiptStore(EvidenceLog log) {
+        try {
+            return new ReceiptStore(new File(log.getDir(), "receipts"));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static UsageBatchStore openUsageStore(EvidenceLog log) {
+        try {
+            return new UsageBatchStore(new File(log.getDir(), "usage"));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static IdIndex createIndex(EvidenceLog log, String name) {
+        try {
+            return IdIndex.create(new File(log.getDir(), name));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    // caller holds the accumulator lock
+    private static void putIndex(IdIndex index, String id, long value) {
+        try {
+            index.put(IdIndex.key(id), value);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    // set before the first submit; every leaf of one accumulator must use the same mode
+    public void setLeafHashMode(EvidenceLeafHasher.Mode leafHashMode) {
+        synchronized (accumulator) {
+            if (submittedLeaves > 0 && leafHashMode != this.leafHashMode) {
+                throw new IllegalStateException("leaf hash mode is fixed once the accumulator has leaves");
+            }
+            this.leafHashMode = leafHashMode;
+        }
+    }
+
+    // returns false if the evidence was shed under SHED backpressure
+    public boolean submitEvidence(Evidence e) {
+        if (!acquireSlot()) {
+            shedCount.incrementAndGet();
+            if (verbose) System.out.println("[审计服务] 队列已满，丢弃审计证据: " + e.getEvidenceId());
+            return false;
+        }
+        enqueue(e);
+        return true;
+    }
+
+    // caller holds a queue slot for e
+    private void enqueue(Evidence e) {
+        int queued;
+        synchronized (accumulator) {
+            if (evidenceLog != null) {
+                // log order == leaf order, so a pointer is enough to find an anchored record again
+                long position = appendToLog(e);
+                evidenceIndex.add(position, e);
+                e.setOriginalEvidencePointer(EvidenceLog.toPointer(position));
+            }
+            // leaf index is fixed now; the leaf itself is hashed and appended when the batch is cut
+            putIndex(leafIndexById, e.getEvidenceId(), submittedLeaves++);
+            queue.add(e);
+            queued = pending.incrementAndGet();
+            if (queued == 1) oldestPendingAt = System.currentTimeMillis();
+        }
+        if (verbose) System.out.println("[审计服务] 收到审计证据: " + e.getEvidenceId());
+        if (queued == 1 || queued >= maxBatchSize) {
+            synchronized (batchSignal) {
+                batchSignal.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Like submitEvidence, but a full queue under REJECT also comes back as false instead of an
+     * IllegalStateException. For callers that must not act on a decision audit has not taken.
+     */
+    public boolean trySubmitEvidence(Evidence e) {
+        try {
+            return submitEvidence(e);
+        } catch (IllegalStateException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Submits several evidences under one queue-capacity acquisition and one accumulator lock, in
+     * list order. Under SHED the whole batch is dropped if it does not fit; returns how many were
+     * accepted.
+     */
+    public int submitEvidenceBatch(List<Evidence> batch) {
+        int n = batch.size();
+        if (n == 0) return 0;
+        if (!acquireSlots(n)) {
+            shedCount.addAndGet(n);
+            if (verbose) System.out.println("[审计服务] 队列已满，丢弃 " + n + " 条审计证据");
+            return 0;
+        }
+        int queued = 0;
+        boolean wasEmpty;
+        synchronized (accumulator) {
+            wasEmpty = pending.get() == 0;
+            for (int i = 0; i < n; i++) {
+                Evidence e = batch.get(i);
+                if (evidenceLog != null) {
+                    long position;
+                    try {
+                        position = appendToLog(e); // releases this evidence's slot on failure
+                    } catch (UncheckedIOException ex) {
+                        capacity.release(n - i - 1);
+                        throw ex;
+                    }
+                    evidenceIndex.add(position, e);
+                    e.setOriginalEvidencePointer(EvidenceLog.toPointer(position));
+                }
+                putIndex(leafIndexById, e.getEvidenceId(), submittedLeaves++);
+                queue.add(e);
+                queued = pending.incrementAndGet();
+            }
+            if (wasEmpty) oldestPendingAt = System.currentTimeMillis();
+        }
+        if (verbose) System.out.println("[审计服务] 收到审计证据批次: " + n + " 条");
+        if (wasEmpty || queued >= maxBatchSize) {
+            synchronized (batchSignal) {
+                batchSignal.notifyAll();
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Accepts a TEE's sealed usage batch as its single aggregated evidence (anchored like any other)
+     * and keeps the records so proveUsage can expand it. Returns false if the evidence was shed.
+     * With an evidence log the batch is written to the usage store once its evidence holds a queue
+     * slot and before it is logged, so a shed batch never reaches the store and an accepted one is
+     * on disk before its evidence.
+     */
+    public boolean submitUsageBatch(Evidence aggregate, UsageBatch batch) {
+        if (!batch.getRootHex().equals(aggregate.getUsageRoot()) || aggregate.getUsageCount() != batch.size()) {
+            throw new IllegalArgumentException("usage batch does not match evidence " + aggregate.getEvidenceId());
+        }
+        if (usageStore != null) {
+            if (!acquireSlot()) {
+                shedCount.incrementAndGet();
+                return false;
+            }
+            try {
+                usageStore.put(aggregate, batch.getRecords());
+            } catch (IOException ex) {
+                capacity.release();
+                throw new UncheckedIOException(ex);
+            }
+            enqueue(aggregate);
+            return true;
+        }
+        // registered first, so a proof can be served as soon as the evidence is anchored
+        String id = aggregate.getEvidenceId();
+        usageBatches.put(id, new UsageEntry(aggregate, batch));
+        Set<String> requests = new HashSet<>();
+        for (UsageRecord r : batch.getRecords()) requests.add(r.getRequestId());
+        for (String requestId : requests) {
+            usageBatchesByRequest.computeIfAbsent(requestId, k -> new ConcurrentLinkedQueue<>()).add(id);
+        }
+        boolean accepted = false;
+        try {
+            accepted = submitEvidence(aggregate);
+        } finally {
+            if (!accepted) {
+                forgetUsageBatch(id);
+            }
+        }
+        if (accepted) {
+            usageBatchOrder.add(id);
+            String oldest;
+            while (usageBatches.size() > MAX_RETAINED_USAGE_BATCHES && (oldest = usageBatchOrder.poll()) != null) {
+                forgetUsageBatch(oldest);
+            }
+        }
+        return accepted;
+    }
+
+    private void forgetUsageBatch(String id) {
+        UsageEntry entry = usageBatches.remove(id);
+        if (entry == null) return;
+        for (UsageRecord r : entry.batch.getRecords()) {
+            usageBatchesByRequest.computeIfPresent(r.getRequestId(), (k, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    private long appendToLog(Evidence e) {
+        try {
+            return evidenceLog.append(e);
+        } catch (IOException ex) {
+            capacity.release();
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private boolean acquireSlots(int n) {
+        switch (backpressure) {
+            case BLOCK:
+                capacity.acquireUninterruptibly(n);
+                return true;
+            case REJECT:
+                if (capacity.tryAcquire(n)) return true;
+                rejectCount.addAndGet(n);
+                throw new IllegalStateException("audit queue full");
+            default:
+                return capacity.tryAcquire(n);
+        }
+    }
+
+    private boolean acquireSlot() {
+        switch (backpressure) {
+            case BLOCK:
+                capacity.acquireUninterruptibly();
+                return true;
+            case REJECT:
+                if (capacity.tryAcquire()) return true;
+                rejectCount.incrementAndGet();
+                throw new IllegalStateException("audit queue full");
+            default:
+                return capacity.tryAcquire();
+        }
+    }
+
+    /**
+     * Anchors through the given chain instead of instantly. Batches stay in flight until they reach
+     * the chain's confirmation depth; a tx that fails or is reorged out is resubmitted, and the
+     * receipt is only published once confirmed.
+     */
+    public void setChain(SimulatedChain chain) {
+        this.chain = chain;
+        chain.addListener(new SimulatedChain.Listener() {
+            @Override
+            public void onConfirmed(String txId, String payload, long blockHeight, int confirmations) {
+                PendingAnchor p = inFlight.remove(payload);
+                if (p == null) return;
+                p.receipt.setChainTxId(txId);
+                p.receipt.setBlockHeight(blockHeight);
+                p.receipt.setConfirmations(confirmations);
+                publishReceipt(p.receipt);
+                if (verbose) System.out.println("[审计服务] 批次已确认上链。batchId=" + p.receipt.getBatchId() + " tx=" + txId
+                        + " 高度=" + blockHeight + " 耗时=" + (System.currentTimeMillis() - p.submittedAt) + "ms");
+                p.future.complete(p.receipt);
+            }
+
+            @Override
+            public void onDropped(String txId, String payload, String reason) {
+                PendingAnchor p = inFlight.get(payload);
+                if (p == null) return;
+                resubmitCount.incrementAndGet();
+                if (verbose) System.out.println("[审计服务] 锚定交易被丢弃(" + reason + ")，重新提交。batchId=" + p.receipt.getBatchId());
+                chain.submit(payload);
+            }
+        });
+    }
+
+    public int inFlightAnchors() { return inFlight.size(); }
+    public long getResubmitCount() { return resubmitCount.get(); }
+
+    public int pendingCount() { return pending.get(); }
+    public long getShedCount() { return shedCount.get(); }
+    public long getRejectCount() { return rejectCount.get(); }
+
+    /**
+     * Starts a background batcher that anchors a batch once maxBatchSize evidences are queued or
+     * the oldest queued evidence has waited maxDelayMillis, whichever comes first. At most
+     * anchorConcurrency batches are anchored at once; when all slots are busy the batcher stalls
+     * and the bounded queue applies backpressure to submitters.
+     */
+    public synchronized void startBatcher(int maxBatchSize, long maxDelayMillis, int anchorConcurrency) {
+        if (batcherRunning) return;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchDelayMillis = maxDelayMillis;
+        this.anchorPool = Executors.newFixedThreadPool(anchorConcurrency, r -> {
+            Thread t = new Thread(r, "audit-anchor");
+            t.setDaemon(true);
+            return t;
+        });
+        this.anchorSlots = new Semaphore(anchorConcurrency);
+        this.anchorConcurrency = anchorConcurrency;
+        this.batcherRunning = true;
+        this.batcherThread = new Thread(this::batcherLoop, "audit-batcher");
+        this.batcherThread.setDaemon(true);
+        this.batcherThread.start();
+    }
+
+    /**
+     * Stops the batcher, anchoring whatever is still queued. Returns false if some anchor was still
+     * unconfirmed after anchorTimeoutMillis; those batches stay in flight.
+     */
+    public synchronized boolean stopBatcher() throws InterruptedException {
+        if (!batcherRunning) return true;
+        batcherRunning = false;
+        synchronized (batchSignal) {
+            batchSignal.notifyAll();
+        }
+        batcherThread.join();
+        anchorPool.shutdown();
+        long deadline = System.currentTimeMillis() + anchorTimeoutMillis;
+        boolean drained = anchorPool.awaitTermination(anchorTimeoutMillis, TimeUnit.MILLISECONDS);
+        // wait for anchors still waiting on chain confirmations
+        drained = drained && anchorSlots.tryAcquire(anchorConcurrency, Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+        maxBatchSize = Integer.MAX_VALUE;
+        if (!drained) {
+            System.out.println("[审计服务] 警告：批处理器停止超时，仍有 " + inFlight.size() + " 个批次未确认上链");
+        }
+        return drained;
+    }
 
-    public void submitEvidence(Evidence e) {
-        queue.add(e);
-        System.out.println("[审计服务] 收到审计证据: " + e.getEvidenceId());
+    private void batcherLoop() {
+        while (true) {
+            try {
+                synchronized (batchSignal) {
+                    while (batcherRunning && !batchDue()) {
+                        if (pending.get() == 0) {
+                            batchSignal.wait();
+                        } else {
+                            batchSignal.wait(Math.max(oldestPendingAt + maxBatchDelayMillis - System.currentTimeMillis(), 1));
+                        }
+                    }
+                }
+                if (!batcherRunning && pending.get() == 0) return;
+                anchorSlots.acquire();
+                final Batch batch = cutBatch(maxBatchSize);
+                if (batch == null) {
+                    anchorSlots.release();
+                    continue;
+                }
+                anchorPool.execute(() -> {
+                    try {
+                        anchorAsync(batch).whenComplete((r, ex) -> anchorSlots.release());
+                    } catch (RuntimeException ex) {
+                        anchorSlots.release();
+                        throw ex;
+                    }
+                });
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private boolean batchDue() {
+        int n = pending.get();
+        if (n == 0) return false;
+        return n >= maxBatchSize || System.currentTimeMillis() - oldestPendingAt >= maxBatchDelayMillis;
     }
 
-    // simulate periodic batch aggregation and on-chain anchor
+    /**
+     * Simulate periodic batch aggregation and on-chain anchor. With a chain this waits for the
+     * confirmation, at most anchorTimeoutMillis; it throws IllegalStateException when the chain is
+     * not running (nothing is cut then) or the wait times out (the batch stays in flight and is
+     * still published if it confirms later).
+     */
     public AuditReceipt flushBatchToChain() {
-        List<Evidence> batch = new ArrayList<>();
-        Evidence e;
-        while ((e = queue.poll()) != null) {
-            batch.add(e);
+        SimulatedChain c = chain;
+        if (c != null && !c.isRunning()) {
+            throw new IllegalStateException("anchor chain is not running");
         }
-        if (batch.isEmpty()) {
+        Batch batch = cutBatch(Integer.MAX_VALUE);
+        if (batch == null) {
             System.out.println("[审计服务] 无待聚合证据，无需上链");
             return null;
         }
-        // compute merkle root by hashing evidence ids (simplified)
-        List<String> leaves = new ArrayList<>();
-        for (Evidence ev : batch) {
-            leaves.add(ev.getEvidenceId());
+        CompletableFuture<AuditReceipt> anchored = anchorAsync(batch);
+        try {
+            return anchored.get(anchorTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            throw new IllegalStateException("anchor not confirmed within " + anchorTimeoutMillis + "ms, mmrSize=" + batch.mmrSize);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted waiting for anchor, mmrSize=" + batch.mmrSize);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    public void setAnchorTimeoutMillis(long anchorTimeoutMillis) {
+        this.anchorTimeoutMillis = anchorTimeoutMillis;
+    }
+
+    // like flushBatchToChain, but returns as soon as the batch is submitted
+    public CompletableFuture<AuditReceipt> flushBatchToChainAsync() {
+        Batch batch = cutBatch(Integer.MAX_VALUE);
+        return batch == null ? CompletableFuture.<AuditReceipt>completedFuture(null) : anchorAsync(batch);
+    }
+
+    // drains up to max evidences; the root covers exactly the leaves drained so far
+    private Batch cutBatch(int max) {
+        Batch batch = new Batch();
+        batch.evidences = new ArrayList<>();
+        // cuts are serialized so leaves reach the accumulator in queue order, but hashing runs
+        // outside the accumulator lock and does not stall submitters
+        synchronized (cutLock) {
+            synchronized (accumulator) {
+                Evidence e;
+                while (batch.evidences.size() < max && (e = queue.poll()) != null) {
+                    batch.evidences.add(e);
+                }
+                if (batch.evidences.isEmpty()) {
+                    return null;
+                }
+                int left = pending.addAndGet(-batch.evidences.size());
+                if (left > 0) oldestPendingAt = System.currentTimeMillis();
+            }
+            byte[][] leaves = hashLeaves(batch.evidences);
+            synchronized (accumulator) {
+                for (byte[] leaf : leaves) {
+                    accumulator.appendLeafHash(leaf);
+                }
+                cutSize += leaves.length;
+                batch.mmrSize = cutSize;
+                batch.merkleRoot = CryptoUtil.bytesToHex(accumulator.rootAt(cutSize));
+            }
         }
-        String merkleRoot = MerkleUtil.computeMerkleRoot(leaves);
+        if (evidenceLog != null) {
+            evidenceLog.force(); // never anchor a root over evidence that is not on disk
+            try {
+                usageStore.force(); // nor over a usage batch whose records are not
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        capacity.release(batch.evidences.size());
+        return batch;
+    }
+
+    private byte[][] hashLeaves(List<Evidence> evidences) {
+        EvidenceLeafHasher.Mode mode = leafHashMode;
+        byte[][] leaves = new byte[evidences.size()][];
+        IntStream range = IntStream.range(0, leaves.length);
+        if (leaves.length >= PARALLEL_HASH_THRESHOLD) range = range.parallel();
+        range.forEach(i -> leaves[i] = EvidenceLeafHasher.hash(evidences.get(i), mode));
+        return leaves;
+    }
+
+    private CompletableFuture<AuditReceipt> anchorAsync(Batch batch) {
         AuditReceipt receipt = new AuditReceipt();
         receipt.setBatchId(IdUtil.randomUUID());
-        receipt.setMerkleRoot(merkleRoot);
-        receipt.setChainTxId("chainTx-" + IdUtil.randomUUID());
-        receipt.setConfirmations(1);
+        receipt.setMerkleRoot(batch.merkleRoot);
+        receipt.setMmrSize(batch.mmrSize);
+        receipt.setBatchSize(batch.evidences.size());
         receipt.setTimestamp(System.currentTimeMillis());
         receipt.setAuditSignature("audit-sig-simulated");
-        receipts.add(receipt);
-        System.out.println("[审计服务] 已聚合批次并上链。batchId=" + receipt.getBatchId() + " merkleRoot=" + merkleRoot);
-        return receipt;
+        if (chain == null) {
+            receipt.setChainTxId("chainTx-" + IdUtil.randomUUID());
+            receipt.setConfirmations(1);
+            publishReceipt(receipt);
+            if (verbose) System.out.println("[审计服务] 已聚合批次并上链。batchId=" + receipt.getBatchId() + " merkleRoot=" + batch.merkleRoot + " mmrSize=" + batch.mmrSize);
+            return CompletableFuture.completedFuture(receipt);
+        }
+        // keyed by root (unique per cut) so callbacks can never race the registration
+        PendingAnchor p = new PendingAnchor(receipt);
+        inFlight.put(batch.merkleRoot, p);
+        chain.submit(batch.merkleRoot);
+        if (verbose) System.out.println("[审计服务] 批次已提交上链，等待确认。batchId=" + receipt.getBatchId() + " mmrSize=" + batch.mmrSize);
+        return p.future;
     }
 
-    public AuditReceipt latestReceipt() {
-        if (receipts.isEmpty()) {
+    /**
+     * A cut root only becomes provable here, once its anchor is confirmed. Concurrent anchors may
+     * finish out of order; anchoredSize and the registry's latest both stay at the largest range.
+     */
+    private void publishReceipt(AuditReceipt receipt) {
+        synchronized (accumulator) {
+            putIndex(anchoredSizeByRoot, receipt.getMerkleRoot(), receipt.getMmrSize());
+            if (receipt.getMmrSize() > anchoredSize) anchoredSize = receipt.getMmrSize();
+        }
+        receipts.publish(receipt);
+    }
+
+    // reads back an evidence by its originalEvidencePointer, after it has left the queue
+    public Evidence readEvidence(String pointer) {
+        if (evidenceLog == null) {
             return null;
         }
-        return receipts.get(receipts.size() - 1);
+        Evidence e = evidenceLog.read(EvidenceLog.parsePointer(pointer));
+        e.setOriginalEvidencePointer(pointer);
+        return e;
+    }
+
+    // compliance queries over the evidence log; empty without a log
+    public List<Evidence> findByRequestId(String requestId) {
+        return evidenceIndex == null ? Collections.<Evidence>emptyList() : readAll(evidenceIndex.positionsByRequestId(requestId));
+    }
+
+    public List<Evidence> findByRequesterDid(String requesterDid, long fromTs, long toTs) {
+        return evidenceIndex == null ? Collections.<Evidence>emptyList() : readAll(evidenceIndex.positionsByDid(requesterDid, fromTs, toTs));
+    }
+
+    public List<Evidence> findByTimeRange(long fromTs, long toTs) {
+        return evidenceIndex == null ? Collections.<Evidence>emptyList() : readAll(evidenceIndex.positionsByTimeRange(fromTs, toTs));
+    }
+
+    private List<Evidence> readAll(List<Long> positions) {
+        List<Evidence> out = new ArrayList<>(positions.size());
+        for (long pos : positions) {
+            out.add(readEvidence(EvidenceLog.toPointer(pos)));
+        }
+        return out;
+    }
+
+    // lock-free; safe to poll from KMS threads
+    public AuditReceipt latestReceipt() {
+        return receipts.latest();
+    }
+
+    public AuditReceipt findReceipt(String batchId) {
+        return receipts.find(batchId);
+    }
+
+    public List<AuditReceipt> recentReceipts(int n) {
+        return receipts.recent(n);
+    }
+
+    // leaf index an accepted evidence got at submit time, anchored or not; -1 if unknown
+    public long leafIndexOf(String evidenceId) {
+        synchronized (accumulator) {
+            return leafIndexById.get(IdIndex.key(evidenceId), null);
+        }
+    }
+
+    // proves evidenceId against the latest anchored root; null if unknown or not yet anchored
+    public InclusionProof proveInclusion(String evidenceId) {
+        synchronized (accumulator) {
+            long leafIndex = leafIndexById.get(IdIndex.key(evidenceId), null);
+            long size = anchoredSize;
+            if (leafIndex < 0 || leafIndex >= size) {
+                return null;
+            }
+            InclusionProof proof = accumulator.prove(leafIndex, size);
+            proof.setEvidenceId(evidenceId);
+            return proof;
+        }
+    }
+
+    /**
+     * Proves one TEE use: the record's path to its batch's usageRoot plus the aggregated evidence's
+     * inclusion proof. Null if the use is unknown, its batch is not anchored yet, or (without an
+     * evidence log) the batch has aged out of the retained ones.
+     */
+    public UsageProof proveUsage(String requestId, int call) {
+        if (usageStore != null) {
+            return proveStoredUsage(requestId, call);
+        }
+        Queue<String> ids = usageBatchesByRequest.get(requestId);
+        if (ids == null) return null;
+        for (String id : ids) {
+            UsageEntry entry = usageBatches.get(id);
+            int index = entry == null ? -1 : entry.batch.indexOf(requestId, call);
+            if (index < 0) continue;
+            InclusionProof aggregateProof = proveInclusion(id);
+            if (aggregateProof == null) return null;
+            UsageProof proof = new UsageProof();
+            proof.setRecord(entry.batch.getRecords().get(index));
+            proof.setUsageProof(entry.batch.prove(index));
+            proof.setAggregate(entry.aggregate);
+            proof.setAggregateProof(aggregateProof);
+            return proof;
+        }
+        return null;
+    }
+
+    private UsageProof proveStoredUsage(String requestId, int call) {
+        UsageBatchStore.Entry stored;
+        try {
+            stored = usageStore.find(requestId, call, aggregate -> leafIndexOf(aggregate.getEvidenceId()) >= 0);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        if (stored == null) return null;
+        InclusionProof aggregateProof = proveInclusion(stored.getAggregate().getEvidenceId());
+        if (aggregateProof == null) return null;
+        UsageBatch batch = new UsageBatch(stored.getRecords());
+        int index = batch.indexOf(requestId, call);
+        UsageProof proof = new UsageProof();
+        proof.setRecord(batch.getRecords().get(index));
+        proof.setUsageProof(batch.prove(index));
+        proof.setAggregate(stored.getAggregate());
+        proof.setAggregateProof(aggregateProof);
+        return proof;
+    }
+
+    // proves the range anchored under oldRoot is a prefix of the one anchored under newRoot
+    public ConsistencyProof proveConsistency(String oldRoot, String newRoot) {
+        synchronized (accumulator) {
+            long m = anchoredSizeOf(oldRoot);
+            long n = anchoredSizeOf(newRoot);
+            if (m < 0 || n < 0 || m > n) {
+                return null;
+            }
+            List<String> newPeaks = toHex(accumulator.peaksAt(n));
+            ConsistencyProof proof = new ConsistencyProof();
+            proof.setOldSize(m);
+            proof.setNewSize(n);
+            proof.setOldRoot(oldRoot);
+            proof.setNewRoot(newRoot);
+            proof.setOldPeaks(toHex(accumulator.peaksAt(m)));
+            if (m != n) {
+                int k = 63 - Long.numberOfLeadingZeros(m ^ n);
+                int common = Long.bitCount(m >>> (k + 1));
+                boolean merged = (m & ((1L << k) - 1)) != 0;
+                proof.setMergePath(toHex(accumulator.consistencyPath(m, n)));
+                proof.setRightPeaks(new ArrayList<>(newPeaks.subList(merged ? common + 1 : common, newPeaks.size())));
+            }
+            return proof;
+        }
+    }
+
+    // caller holds the accumulator lock; -1 if root was never anchored
+    private long anchoredSizeOf(String root) {
+        return anchoredSizeByRoot.get(IdIndex.key(root), size -> CryptoUtil.bytesToHex(accumulator.rootAt(size)).equals(root));
+    }
+
+    private static List<String> toHex(List<byte[]> hashes) {
+        List<String> out = new ArrayList<>(hashes.size());
+        for (byte[] h : hashes) out.add(CryptoUtil.bytesToHex(h));
+        return out;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,215 @@
+package org.example.accomplish.service;
+
+import org.example.accomplish.util.DidSet;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * KMS-side copy of PolicyContract authorizations, so the per-request check is a map lookup.
+ * Kept coherent by the contract's publish/revoke events; a miss reads the contract once and caches
+ * the result, including "unknown" (negative entries expire after negativeTtlMillis, in case the
+ * id is published later without us seeing the event). invalidateAll() bumps the epoch, which
+ * lazily retires every entry loaded before it (e.g. after a missed event stream). Entries are
+ * dropped when the contract reaps the expired record.
+ * A load only installs its result over the entry it missed on, so an event that landed during
+ * the chain read always wins. Past maxEntries a CLOCK sweep evicts an eighth of the table,
+ * skipping entries hit since the previous sweep; an evicted id is simply read again.
+ */
+public class AuthorizationCache implements PolicyContract.Listener {
+    public static final long DEFAULT_NEGATIVE_TTL_MILLIS = 5_000;
+    public static final int DEFAULT_MAX_ENTRIES = 1 << 20;
+
+    private final PolicyContract policy;
+    private final long negativeTtlMillis;
+    private final int maxEntries;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong epoch = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    /**
+     * What one valid authorization lets a grantee do, read from a single cache entry so the
+     * resource and the policy always belong to the authorization that was just checked.
+     */
+    public static final class Grant {
+        private final String resourceId;
+        private final String policy;
+        private final long validTo;
+
+        Grant(String resourceId, String policy, long validTo) {
+            this.resourceId = resourceId;
+            this.policy = policy;
+            this.validTo = validTo;
+        }
+
+        public String getResourceId() { return resourceId; }
+        public String getPolicy() { return policy; }
+        public long getValidTo() { return validTo; }
+
+        public boolean covers(String resourceId) {
+            return this.resourceId != null && this.resourceId.equals(resourceId);
+        }
+    }
+
+    private static final class Entry {
+        final String granteeDid; // null for a negative or group entry
+        final DidSet members; // group entries only
+        final Grant grant; // null for a negative entry
+        final long validTo;
+        final boolean revoked;
+        final long epoch;
+        final long expiresAt; // negative entries and revocation tombstones only
+        volatile boolean referenced; // CLOCK bit, set on hit and cleared by the sweep
+
+        Entry(String granteeDid, DidSet members, String resourceId, String policy, long validTo, boolean revoked, long epoch, long expiresAt) {
+            this.granteeDid = granteeDid;
+            this.members = members;
+            this.grant = resourceId == null ? null : new Grant(resourceId, policy, validTo);
+            this.validTo = validTo;
+            this.revoked = revoked;
+            this.epoch = epoch;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean negative() {
+            return granteeDid == null && members == null && !revoked;
+        }
+
+        boolean covers(String did) {
+            return members != null ? members.contains(did) : granteeDid != null && granteeDid.equals(did);
+        }
+    }
+
+    public AuthorizationCache(PolicyContract policy) {
+        this(policy, DEFAULT_NEGATIVE_TTL_MILLIS, DEFAULT_MAX_ENTRIES);
+    }
+
+    public AuthorizationCache(PolicyContract policy, long negativeTtlMillis, int maxEntries) {
+        this.policy = policy;
+        this.negativeTtlMillis = negativeTtlMillis;
+        this.maxEntries = maxEntries;
+        policy.addListener(this);
+    }
+
+    public boolean isValid(String authorizationId, String granteeDid) {
+        return lookup(authorizationId, granteeDid) != null;
+    }
+
+    // the authorization's grant if it is currently valid for granteeDid, else null
+    public Grant lookup(String authorizationId, String granteeDid) {
+        if (authorizationId == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        Entry e = entries.get(authorizationId);
+        if (e == null || e.epoch != epoch.get() || e.expiresAt < now) {
+            misses.incrementAndGet();
+            e = load(authorizationId, e, now);
+        } else {
+            hits.incrementAndGet();
+            if (!e.referenced) e.referenced = true;
+        }
+        return !e.revoked && e.covers(granteeDid) && e.validTo >= now ? e.grant : null;
+    }
+
+    public void invalidateAll() {
+        epoch.incrementAndGet();
+    }
+
+    public long getHitCount() { return hits.get(); }
+    public long getMissCount() { return misses.get(); }
+    public long getEvictionCount() { return evictions.get(); }
+    public int size() { return entries.size(); }
+
+    @Override
+    public void onPublished(PolicyContract.AuthorizationRecord rec) {
+        put(rec.getAuthorizationId(), fromRecord(rec, epoch.get()));
+    }
+
+    @Override
+    public void onMembersChanged(PolicyContract.AuthorizationRecord rec, Collection<String> added, Collection<String> removed) {
+        put(rec.getAuthorizationId(), fromRecord(rec, epoch.get()));
+    }
+
+    @Override
+    public void onRevoked(String authorizationId) {
+        // revocation is final. For an id we never loaded, a tombstone that lives as long as a negative
+        // entry still beats a load racing this event; after that the contract is read again
+        long ep = epoch.get();
+        long tombstoneExpiry = System.currentTimeMillis() + negativeTtlMillis;
+        entries.compute(authorizationId, (id, old) -> old == null || old.negative()
+                ? new Entry(null, null, null, null, 0, true, ep, tombstoneExpiry)
+                : new Entry(old.granteeDid, old.members, null, null, old.validTo, true, ep, Long.MAX_VALUE));
+    }
+
+    @Override
+    public void onExpired(String authorizationId) {
+        // already invalid by validTo; just stop holding it
+        entries.remove(authorizationId);
+    }
+
+    /**
+     * Reads the contract and installs the result only if the map still holds seen (the stale or
+     * absent entry we missed on) and no invalidateAll() ran meanwhile; otherwise whatever an event
+     * put there during the read is newer than what we read, and is used instead.
+     */
+    private Entry load(String authorizationId, Entry seen, long now) {
+        long ep = epoch.get();
+        PolicyContract.AuthorizationRecord rec = policy.getAuthorization(authorizationId);
+        Entry loaded = rec == null
+                ? new Entry(null, null, null, null, 0, false, ep, now + negativeTtlMillis)
+                : fromRecord(rec, ep);
+        if (epoch.get() != ep) {
+            return loaded; // good for this call, but not cached under an epoch it may predate
+        }
+        boolean installed = seen == null ? entries.putIfAbsent(authorizationId, loaded) == null : entries.replace(authorizationId, seen, loaded);
+        if (installed) {
+            evictIfFull();
+            return loaded;
+        }
+        Entry current = entries.get(authorizationId);
+        return current != null && current.epoch == ep ? current : loaded;
+    }
+
+    // events are authoritative; one that raced an earlier revoke event only wins if it revokes too
+    private void put(String authorizationId, Entry e) {
+        entries.merge(authorizationId, e, (old, neu) -> old.revoked && !neu.revoked && old.epoch == neu.epoch ? old : neu);
+        evictIfFull();
+    }
+
+    // one sweeper at a time; lookups keep going against the shrinking map
+    private void evictIfFull() {
+        if (entries.size() < maxEntries || !sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int target = Math.max(maxEntries / 8, 1);
+            int removed = 0;
+            for (int pass = 0; pass < 2 && removed < target; pass++) {
+                for (Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator(); it.hasNext() && removed < target; ) {
+                    Map.Entry<String, Entry> m = it.next();
+                    Entry e = m.getValue();
+                    if (e.referenced) {
+                        e.referenced = false; // second chance
+                    } else if (entries.remove(m.getKey(), e)) {
+                        removed++;
+                    }
+                }
+            }
+            evictions.addAndGet(removed);
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    private static Entry fromRecord(PolicyContract.AuthorizationRecord rec, long epoch) {
+        return new Entry(rec.getGranteeDid(), rec.getMembers(), rec.getResourceId(), rec.getPolicy(), rec.getValidTo(), rec.isRevoked(), epoch, Long.MAX_VALUE);
+    }
+}
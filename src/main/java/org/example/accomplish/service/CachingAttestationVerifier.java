@@ -0,0 +1,160 @@
+package org.example.accomplish.service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Verified-attestation cache in front of a slow AttestationVerifier, so a warm TEE presenting the
+ * same summary hash skips verification. Entries are per TEE (a hash verified for one TEE is not
+ * trusted for another), live ttlMillis, and each TEE holds at most maxPerTee hashes. Only valid
+ * results are cached. A TCB revocation from the backend's feed drops every entry at that level;
+ * a verification that raced the revocation is caught on its next hit. Concurrent misses for one
+ * (TEE, hash) share a single backend call.
+ */
+public class CachingAttestationVerifier implements AttestationVerifier, AttestationVerifier.TcbListener {
+    public static final long DEFAULT_TTL_MILLIS = 300_000;
+    public static final int DEFAULT_MAX_PER_TEE = 8;
+    public static final int DEFAULT_MAX_TEES = 1 << 16;
+
+    private final AttestationVerifier backend;
+    private final long ttlMillis;
+    private final int maxPerTee;
+    private final int maxTees;
+    private final Map<String, Map<String, Entry>> entries = new ConcurrentHashMap<>(); // teeId -> hash -> entry
+    private final Map<String, CompletableFuture<Result>> inflight = new ConcurrentHashMap<>();
+    private final Set<String> revokedTcbs = ConcurrentHashMap.newKeySet();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong revoked = new AtomicLong();
+
+    private static final class Entry {
+        final Result result;
+        final long expiresAt;
+
+        Entry(Result result, long expiresAt) {
+            this.result = result;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public CachingAttestationVerifier(AttestationVerifier backend) {
+        this(backend, DEFAULT_TTL_MILLIS, DEFAULT_MAX_PER_TEE, DEFAULT_MAX_TEES);
+    }
+
+    public CachingAttestationVerifier(AttestationVerifier backend, long ttlMillis, int maxPerTee, int maxTees) {
+        this.backend = backend;
+        this.ttlMillis = ttlMillis;
+        this.maxPerTee = maxPerTee;
+        this.maxTees = maxTees;
+        backend.addTcbListener(this);
+    }
+
+    @Override
+    public Result verify(String teeId, String attestationSummaryHash) {
+        if (teeId == null || attestationSummaryHash == null) {
+            return backend.verify(teeId, attestationSummaryHash);
+        }
+        Map<String, Entry> forTee = entries.get(teeId);
+        Entry e = forTee == null ? null : forTee.get(attestationSummaryHash);
+        if (e != null && e.expiresAt > System.currentTimeMillis()) {
+            if (!revokedTcbs.contains(e.result.getTcbVersion())) {
+                hits.incrementAndGet();
+                return e.result;
+            }
+            forTee.remove(attestationSummaryHash, e); // put by a verification that raced the revocation
+        }
+        misses.incrementAndGet();
+        return load(teeId, attestationSummaryHash);
+    }
+
+    @Override
+    public void addTcbListener(TcbListener listener) {
+        backend.addTcbListener(listener);
+    }
+
+    @Override
+    public void onTcbRevoked(String tcbVersion) {
+        // the set first: any hit from here on rejects the level, even on an entry put after the sweep
+        revokedTcbs.add(tcbVersion);
+        int dropped = 0;
+        for (Map<String, Entry> forTee : entries.values()) {
+            for (Map.Entry<String, Entry> en : forTee.entrySet()) {
+                if (tcbVersion.equals(en.getValue().result.getTcbVersion()) && forTee.remove(en.getKey(), en.getValue())) {
+                    dropped++;
+                }
+            }
+        }
+        revoked.addAndGet(dropped);
+        System.out.println("[KMS] TCB " + tcbVersion + " 已吊销，清除 " + dropped + " 条已验证的 attestation 缓存");
+    }
+
+    // drop everything verified for one TEE, e.g. after it is re-provisioned
+    public void invalidateTee(String teeId) {
+        entries.remove(teeId);
+    }
+
+    public long getHitCount() { return hits.get(); }
+    public long getMissCount() { return misses.get(); }
+    public long getLoadCount() { return loads.get(); }
+    public long getCoalescedCount() { return coalesced.get(); }
+    // entries dropped by TCB revocations
+    public long getRevokedCount() { return revoked.get(); }
+
+    public int size() {
+        int n = 0;
+        for (Map<String, Entry> forTee : entries.values()) n += forTee.size();
+        return n;
+    }
+
+    private Result load(String teeId, String hash) {
+        String key = teeId + '\n' + hash;
+        CompletableFuture<Result> mine = new CompletableFuture<>();
+        CompletableFuture<Result> running = inflight.putIfAbsent(key, mine);
+        if (running != null) {
+            coalesced.incrementAndGet();
+            return await(key, running);
+        }
+        try {
+            loads.incrementAndGet();
+            Result r = backend.verify(teeId, hash);
+            if (r.isValid()) {
+                put(teeId, hash, new Entry(r, System.currentTimeMillis() + ttlMillis));
+            }
+            mine.complete(r);
+            return r;
+        } catch (RuntimeException ex) {
+            mine.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inflight.remove(key, mine);
+        }
+    }
+
+    private void put(String teeId, String hash, Entry e) {
+        if (entries.size() >= maxTees && !entries.containsKey(teeId)) {
+            entries.clear();
+        }
+        Map<String, Entry> forTee = entries.computeIfAbsent(teeId, k -> new ConcurrentHashMap<>());
+        if (forTee.size() >= maxPerTee && !forTee.containsKey(hash)) {
+            forTee.clear(); // a TEE cycling through hashes only ever holds its most recent few
+        }
+        forTee.put(hash, e);
+    }
+
+    private static Result await(String key, CompletableFuture<Result> f) {
+        try {
+            return f.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while verifying attestation " + key.replace('\n', '/'), ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IllegalStateException("attestation verification failed: " + key.replace('\n', '/'), cause);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package org.example.accomplish.service;
+
+import org.example.accomplish.model.DidReceipt;
+
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DID resolution cache in front of a slow resolver, for the handleRequest critical path.
+ * Positive results live ttlMillis, "not registered" lives negativeTtlMillis. Concurrent misses
+ * for one DID share a single backend call (the first caller loads, the rest wait on its future).
+ * A hit on an entry older than refreshAheadFraction of its TTL is answered from the cache and
+ * reloaded in the background, so DIDs in steady use never expire on the request path. A failed
+ * load is not cached; a failed refresh leaves the old entry to run out its TTL.
+ */
+public class CachingDidResolver implements DidResolver {
+    public static final long DEFAULT_TTL_MILLIS = 60_000;
+    public static final long DEFAULT_NEGATIVE_TTL_MILLIS = 5_000;
+    public static final double DEFAULT_REFRESH_AHEAD = 0.8;
+    public static final int DEFAULT_MAX_ENTRIES = 1 << 20;
+
+    private final DidResolver backend;
+    private final long ttlMillis;
+    private final long negativeTtlMillis;
+    private final double refreshAheadFraction;
+    private final int maxEntries;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Entry>> inflight = new ConcurrentHashMap<>();
+    private final ExecutorService refresher;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+
+    private static final class Entry {
+        final DidReceipt receipt; // null: not registered
+        final long refreshAt;
+        final long expiresAt;
+
+        Entry(DidReceipt receipt, long refreshAt, long expiresAt) {
+            this.receipt = receipt;
+            this.refreshAt = refreshAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public CachingDidResolver(DidResolver backend) {
+        this(backend, DEFAULT_TTL_MILLIS, DEFAULT_NEGATIVE_TTL_MILLIS, DEFAULT_REFRESH_AHEAD, DEFAULT_MAX_ENTRIES, 2);
+    }
+
+    public CachingDidResolver(DidResolver backend, long ttlMillis, long negativeTtlMillis, double refreshAheadFraction,
+                              int maxEntries, int refreshThreads) {
+        this.backend = backend;
+        this.ttlMillis = ttlMillis;
+        this.negativeTtlMillis = negativeTtlMillis;
+        this.refreshAheadFraction = refreshAheadFraction;
+        this.maxEntries = maxEntries;
+        this.refresher = Executors.newFixedThreadPool(refreshThreads, r -> {
+            Thread t = new Thread(r, "did-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Override
+    public DidReceipt resolve(String did) {
+        if (did == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        Entry e = entries.get(did);
+        if (e != null && e.expiresAt > now) {
+            hits.incrementAndGet();
+            if (e.refreshAt <= now) {
+                refreshAsync(did);
+            }
+            return e.receipt;
+        }
+        misses.incrementAndGet();
+        return load(did).receipt;
+    }
+
+    // drop a DID, e.g. after a key rotation seen out of band
+    public void invalidate(String did) {
+        entries.remove(did);
+    }
+
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    public long getHitCount() { return hits.get(); }
+    public long getMissCount() { return misses.get(); }
+    public long getLoadCount() { return loads.get(); }
+    public long getCoalescedCount() { return coalesced.get(); }
+    public long getRefreshCount() { return refreshes.get(); }
+    public int size() { return entries.size(); }
+
+    private Entry load(String did) {
+        CompletableFuture<Entry> mine = new CompletableFuture<>();
+        CompletableFuture<Entry> running = inflight.putIfAbsent(did, mine);
+        if (running != null) {
+            coalesced.incrementAndGet();
+            return await(did, running);
+        }
+        Entry e = entries.get(did);
+        if (e != null && e.expiresAt > System.currentTimeMillis()) {
+            // a load finished between our lookup and registering; anyone who joined us gets it too
+            mine.complete(e);
+            inflight.remove(did, mine);
+            return e;
+        }
+        fetch(did, mine);
+        return await(did, mine);
+    }
+
+    private void refreshAsync(String did) {
+        CompletableFuture<Entry> mine = new CompletableFuture<>();
+        if (inflight.putIfAbsent(did, mine) != null) {
+            return; // already loading
+        }
+        refreshes.incrementAndGet();
+        try {
+            refresher.execute(() -> fetch(did, mine));
+        } catch (RejectedExecutionException ex) {
+            fetch(did, mine); // shut down: a miss may already have joined, so it cannot just be dropped
+        }
+    }
+
+    // runs the backend call for whoever registered `f` in inflight
+    private void fetch(String did, CompletableFuture<Entry> f) {
+        try {
+            loads.incrementAndGet();
+            DidReceipt r = backend.resolve(did);
+            long now = System.currentTimeMillis();
+            Entry e = r == null
+                    ? new Entry(null, Long.MAX_VALUE, now + negativeTtlMillis)
+                    : new Entry(r, now + (long) (ttlMillis * refreshAheadFraction), now + ttlMillis);
+            if (entries.size() >= maxEntries) {
+                entries.clear();
+            }
+            entries.put(did, e);
+            f.complete(e);
+        } catch (RuntimeException ex) {
+            f.completeExceptionally(ex);
+        } finally {
+            inflight.remove(did, f);
+        }
+    }
+
+    private static Entry await(String did, CompletableFuture<Entry> f) {
+        try {
+            return f.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while resolving " + did, ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IllegalStateException("DID resolution failed: " + did, cause);
+        }
+    }
+}
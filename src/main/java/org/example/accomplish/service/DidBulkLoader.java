@@ -0,0 +1,220 @@
+package org.example.accomplish.service;
+
+import org.example.accomplish.model.DidReceipt;
+import org.example.accomplish.util.BinaryCodec;
+import org.example.accomplish.util.IdUtil;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Bulk onboarding and warm-up for DidRegistry.
+ * - importCsv streams "did,publicKeyFingerprint" lines in chunks of chunkSize; each chunk is one
+ *   registration batch with one receipt id shared by its DIDs, parsed on a worker thread and
+ *   registered with a single registerBatch call.
+ * - exportSnapshot / importSnapshot stream the registry, in id order, as frames of
+ *   [int length][int count][BinaryCodec DID receipts] behind a magic/version header. Frames are
+ *   encoded and decoded in parallel; a snapshot read into an empty registry restores the same ids.
+ * Workers run ahead of the reader/writer by at most 2 x threads chunks, and results are always
+ * applied in file order, so memory stays bounded and the outcome is deterministic.
+ */
+public class DidBulkLoader {
+    public static final int DEFAULT_CHUNK_SIZE = 16_384;
+    private static final int SNAPSHOT_MAGIC = 0x44494453; // "DIDS"
+    private static final byte SNAPSHOT_V1 = 1;
+
+    private final DidRegistry registry;
+    private final int chunkSize;
+    private final int threads;
+
+    public static class Result {
+        private final long count;
+        private final int batches;
+        private final long millis;
+        private final List<String> batchReceiptIds;
+
+        Result(long count, int batches, long millis, List<String> batchReceiptIds) {
+            this.count = count;
+            this.batches = batches;
+            this.millis = millis;
+            this.batchReceiptIds = batchReceiptIds;
+        }
+
+        public long getCount() { return count; }
+        public int getBatches() { return batches; }
+        public long getMillis() { return millis; }
+        // one per registration batch, in order; empty for snapshot import/export
+        public List<String> getBatchReceiptIds() { return batchReceiptIds; }
+    }
+
+    public DidBulkLoader(DidRegistry registry) {
+        this(registry, DEFAULT_CHUNK_SIZE, Runtime.getRuntime().availableProcessors());
+    }
+
+    public DidBulkLoader(DidRegistry registry, int chunkSize, int threads) {
+        this.registry = registry;
+        this.chunkSize = chunkSize;
+        this.threads = threads;
+    }
+
+    public Result importCsv(Reader source) throws IOException {
+        long t0 = System.currentTimeMillis();
+        BufferedReader in = source instanceof BufferedReader ? (BufferedReader) source : new BufferedReader(source, 1 << 16);
+        List<String> batchIds = new ArrayList<>();
+        long[] count = {0};
+        run(() -> {
+            List<String> lines = new ArrayList<>(chunkSize);
+            String line;
+            while (lines.size() < chunkSize && (line = in.readLine()) != null) {
+                if (!line.isEmpty() && line.charAt(0) != '#') lines.add(line);
+            }
+            if (lines.isEmpty()) return null;
+            return () -> parse(lines);
+        }, batch -> {
+            registry.registerBatch(batch);
+            batchIds.add(batch.get(0).getReceiptId());
+            count[0] += batch.size();
+        });
+        System.out.println("[DID注册] 批量导入完成: " + count[0] + " 个 DID, " + batchIds.size() + " 批, 耗时 " + (System.currentTimeMillis() - t0) + " ms");
+        return new Result(count[0], batchIds.size(), System.currentTimeMillis() - t0, batchIds);
+    }
+
+    public Result exportSnapshot(File file) throws IOException {
+        long t0 = System.currentTimeMillis();
+        int total = registry.size();
+        int[] next = {0, 0}; // next id, frames written
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeByte(SNAPSHOT_V1);
+            run(() -> {
+                if (next[0] >= total) return null;
+                int from = next[0];
+                int to = Math.min(total, from + chunkSize);
+                next[0] = to;
+                return () -> encodeFrame(from, to);
+            }, frame -> {
+                out.write(frame);
+                next[1]++;
+            });
+            out.writeInt(0); // end marker
+        }
+        System.out.println("[DID注册] 快照已导出: " + total + " 个 DID -> " + file + " (" + file.length() + " 字节)");
+        return new Result(total, next[1], System.currentTimeMillis() - t0, Collections.<String>emptyList());
+    }
+
+    public Result importSnapshot(File file) throws IOException {
+        long t0 = System.currentTimeMillis();
+        long[] count = {0};
+        int[] frames = {0};
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("not a DID snapshot: " + file);
+            }
+            byte version = in.readByte();
+            if (version != SNAPSHOT_V1) {
+                throw new IOException("unsupported DID snapshot version " + version);
+            }
+            run(() -> {
+                int len = in.readInt();
+                if (len == 0) return null;
+                byte[] frame = new byte[len];
+                in.readFully(frame);
+                return () -> decodeFrame(frame);
+            }, batch -> {
+                registry.registerBatch(batch);
+                count[0] += batch.size();
+                frames[0]++;
+            });
+        }
+        System.out.println("[DID注册] 快照已载入: " + count[0] + " 个 DID, 耗时 " + (System.currentTimeMillis() - t0) + " ms");
+        return new Result(count[0], frames[0], System.currentTimeMillis() - t0, Collections.<String>emptyList());
+    }
+
+    private static List<DidReceipt> parse(List<String> lines) {
+        String receiptId = IdUtil.randomUUID();
+        long now = System.currentTimeMillis();
+        List<DidReceipt> batch = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            int comma = line.indexOf(',');
+            if (comma <= 0) {
+                throw new IllegalArgumentException("malformed DID line: " + line);
+            }
+            DidReceipt r = new DidReceipt();
+            r.setDid(line.substring(0, comma).trim());
+            r.setPublicKeyFingerprint(line.substring(comma + 1).trim());
+            r.setTimestamp(now);
+            r.setReceiptId(receiptId);
+            batch.add(r);
+        }
+        return batch;
+    }
+
+    private byte[] encodeFrame(int from, int to) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream((to - from) * 48);
+        ByteBuffer buf = BinaryCodec.scratch();
+        buf.putInt(0).putInt(to - from);
+        for (int id = from; id < to; id++) {
+            if (buf.remaining() < 4096) {
+                bytes.write(buf.array(), 0, buf.position());
+                buf.clear();
+            }
+            BinaryCodec.encodeDidReceipt(registry.query(id), buf);
+        }
+        bytes.write(buf.array(), 0, buf.position());
+        byte[] frame = bytes.toByteArray();
+        ByteBuffer.wrap(frame).putInt(frame.length - 4);
+        return frame;
+    }
+
+    private static List<DidReceipt> decodeFrame(byte[] frame) {
+        ByteBuffer in = ByteBuffer.wrap(frame);
+        int n = in.getInt();
+        List<DidReceipt> batch = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) batch.add(BinaryCodec.decodeDidReceipt(in));
+        return batch;
+    }
+
+    private interface Producer<T> {
+        // next unit of work, or null at end of input; called on the calling thread only
+        Callable<T> next() throws IOException;
+    }
+
+    private interface Sink<T> {
+        void accept(T t) throws IOException;
+    }
+
+    // ordered pipeline: produce serially, compute in parallel, consume serially in production order
+    private <T> void run(Producer<T> producer, Sink<T> sink) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "did-bulk");
+            t.setDaemon(true);
+            return t;
+        });
+        Deque<Future<T>> window = new ArrayDeque<>();
+        try {
+            Callable<T> task;
+            while ((task = producer.next()) != null) {
+                window.add(pool.submit(task));
+                if (window.size() >= threads * 2) sink.accept(await(window.poll()));
+            }
+            while (!window.isEmpty()) sink.accept(await(window.poll()));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static <T> T await(Future<T> f) throws IOException {
+        try {
+            return f.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("bulk DID load interrupted");
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IOException(cause);
+        }
+    }
+}
@@ -1,26 +1,86 @@
 package org.example.accomplish.service;
 
 import org.example.accomplish.model.DidReceipt;
+import org.example.accomplish.util.DidInterner;
 import org.example.accomplish.util.IdUtil;
 
-import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Arrays;
+import java.util.List;
 
-public class DidRegistry {
-    private Map<String, String> didToPub = new ConcurrentHashMap<>();
-    private Map<String, DidReceipt> receipts = new ConcurrentHashMap<>();
+/**
+ * Local DID registry. Each DID gets a dense int id at registration (see DidInterner) and its
+ * receipt is stored in an array slot by that id, so a query is one interner probe plus an array
+ * read, and other indexes can key on getDidId() instead of the string. Bulk onboarding goes
+ * through registerBatch (see DidBulkLoader): one lock and one array growth per batch.
+ */
+public class DidRegistry implements DidResolver {
+    private final DidInterner interner = new DidInterner();
+    private volatile DidReceipt[] receipts = new DidReceipt[1024]; // by DID id
 
-    public void register(String did, String publicKeyFingerprint) {
-        didToPub.put(did, publicKeyFingerprint);
+    public synchronized void register(String did, String publicKeyFingerprint) {
+        int id = interner.intern(did);
         DidReceipt r = new DidReceipt();
         r.setDid(did);
+        r.setDidId(id);
         r.setPublicKeyFingerprint(publicKeyFingerprint);
         r.setTimestamp(System.currentTimeMillis());
         r.setReceiptId(IdUtil.randomUUID());
-        receipts.put(did, r);
+        DidReceipt[] arr = receipts;
+        if (id >= arr.length) {
+            arr = Arrays.copyOf(arr, Math.max(id + 1, arr.length * 2));
+        }
+        arr[id] = r;
+        receipts = arr; // volatile write publishes the slot
+    }
+
+    /**
+     * Registers prepared receipts in list order; ids are assigned here and set on each receipt.
+     * Re-registering a known DID replaces its receipt and keeps its id.
+     */
+    public synchronized void registerBatch(List<DidReceipt> batch) {
+        DidReceipt[] arr = receipts;
+        int needed = interner.size() + batch.size();
+        if (needed > arr.length) {
+            arr = Arrays.copyOf(arr, Math.max(needed, arr.length * 2));
+        }
+        for (DidReceipt r : batch) {
+            int id = interner.intern(r.getDid());
+            r.setDidId(id);
+            arr[id] = r;
+        }
+        receipts = arr;
     }
 
     public DidReceipt query(String did) {
-        return receipts.get(did);
+        int id = interner.idOf(did);
+        return id < 0 ? null : query(id);
+    }
+
+    public DidReceipt query(int didId) {
+        DidReceipt[] arr = receipts;
+        return didId >= 0 && didId < arr.length ? arr[didId] : null;
+    }
+
+    @Override
+    public DidReceipt resolve(String did) {
+        return query(did);
+    }
+
+    // -1 if the DID was never registered
+    public int idOf(String did) {
+        return interner.idOf(did);
+    }
+
+    public String didOf(int didId) {
+        return interner.didOf(didId);
+    }
+
+    public DidInterner getInterner() {
+        return interner;
+    }
+
+    // synchronized: every id below the result has its receipt published
+    public synchronized int size() {
+        return interner.size();
     }
-}
\ No newline at end of file
+}
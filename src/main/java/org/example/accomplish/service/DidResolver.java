@@ -0,0 +1,12 @@
+package org.example.accomplish.service;
+
+import org.example.accomplish.model.DidReceipt;
+
+/**
+ * Resolves a DID to its registration receipt; null if the DID is not registered.
+ * DidRegistry is the local backend, LedgerDidResolver stands in for a remote ledger and
+ * CachingDidResolver sits in front of either.
+ */
+public interface DidResolver {
+    DidReceipt resolve(String did);
+}
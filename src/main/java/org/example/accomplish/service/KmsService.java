@@ -1,26 +1,78 @@
 package org.example.accomplish.service;
 
 import org.example.accomplish.model.*;
+import org.example.accomplish.policy.PolicyEngine;
+import org.example.accomplish.policy.RequestAttributes;
 import org.example.accomplish.util.*;
 
+import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class KmsService {
     private PolicyContract policy;
-    private DidRegistry didRegistry;
+    private DidResolver didResolver;
     private AuditService audit;
     private ResourceStore resourceStore;
+    private final AuthorizationCache authorizations; // local view of the contract, no chain read per request
+    private final PolicyEngine policyEngine = new PolicyEngine();
+    private volatile AttestationVerifier attestationVerifier = new SimulatedAttestationVerifier(0);
 
     // storage for issued wrap_deks, keyed by requestId or wrapId
     private Map<String, WrapDek> wrapsById = new ConcurrentHashMap<>();
     private Map<String, WrapDek> wrapsByRequest = new ConcurrentHashMap<>();
+    private Map<String, Set<WrapDek>> wrapsByAuthorization = new ConcurrentHashMap<>(); // keyed by authorization sha
+    private final Queue<PendingWrap> pendingWraps = new ConcurrentLinkedQueue<>(); // created, not yet finalized
+    // accepted requests, kept so a wrap can be renewed; renewals not yet finalized, by requestId
+    private final Map<String, Request> requestsById = new ConcurrentHashMap<>();
+    private final Map<String, WrapDek> renewals = new ConcurrentHashMap<>();
+    // every registered wrap, due at its validTo; expireWraps drops it from the lookups then
+    private final TimerWheel<WrapDek> wrapExpiries = new TimerWheel<>(1_000, 1024, System.currentTimeMillis());
+    private volatile long wrapValidityMillis = DEFAULT_WRAP_VALIDITY_MILLIS;
+    public static final long DEFAULT_WRAP_VALIDITY_MILLIS = 60_000;
+    private Thread issuer;
+
+    // a wrap waits for a receipt whose range covers the leaf of its own decision evidence
+    private static final class PendingWrap {
+        final WrapDek wrap;
+        final long evidenceLeaf;
+
+        PendingWrap(WrapDek wrap, long evidenceLeaf) {
+            this.wrap = wrap;
+            this.evidenceLeaf = evidenceLeaf;
+        }
+    }
 
     public KmsService(PolicyContract policy, DidRegistry didRegistry, AuditService audit, ResourceStore resourceStore) {
+        this(policy, (DidResolver) didRegistry, audit, resourceStore);
+    }
+
+    // production wiring: a CachingDidResolver in front of the ledger
+    public KmsService(PolicyContract policy, DidResolver didResolver, AuditService audit, ResourceStore resourceStore) {
         this.policy = policy;
-        this.didRegistry = didRegistry;
+        this.didResolver = didResolver;
         this.audit = audit;
         this.resourceStore = resourceStore;
+        this.authorizations = new AuthorizationCache(policy);
+    }
+
+    public AuthorizationCache getAuthorizationCache() {
+        return authorizations;
+    }
+
+    // production wiring: a CachingAttestationVerifier in front of quote verification
+    public void setAttestationVerifier(AttestationVerifier attestationVerifier) {
+        this.attestationVerifier = attestationVerifier;
+    }
+
+    public AttestationVerifier getAttestationVerifier() {
+        return attestationVerifier;
+    }
+
+    // lifetime of newly created wraps, renewals included
+    public void setWrapValidityMillis(long wrapValidityMillis) {
+        this.wrapValidityMillis = wrapValidityMillis;
     }
 
     // Entry point for request handling
@@ -32,14 +84,14 @@ public class KmsService {
             return false;
         }
 // 2. DID query
-        DidReceipt didRec = didRegistry.query(req.getRequesterDid());
+        DidReceipt didRec = didResolver.resolve(req.getRequesterDid());
         if (didRec == null) {
             System.out.println("[KMS] 拒绝：DID 未注册");
             return false;
         }
 // 3. chain authorization check
-        boolean ok = policy.isAuthorizationValid(req.getAuthorizationTxId(), req.getRequesterDid());
-        if (!ok) {
+        AuthorizationCache.Grant grant = authorizations.lookup(req.getAuthorizationTxId(), req.getRequesterDid());
+        if (grant == null || !grant.covers(req.getResourceId())) {
             System.out.println("[KMS] 拒绝：链上授权无效或已过期");
 // submit rejection evidence to audit
             Evidence ev = new Evidence();
@@ -50,14 +102,43 @@ public class KmsService {
             ev.setDecisionResult("REJECT_AUTHORIZATION");
             ev.setTimestamp(System.currentTimeMillis());
             ev.setKmsSignature("kms-sig-simulated");
-            audit.submitEvidence(ev);
+            audit.trySubmitEvidence(ev);
+            return false;
+        }
+// 3b. policy evaluation: purpose / time window / call quota / TEE identity rules of the authorization
+        PolicyEngine.Decision decision = policyEngine.evaluate(grant.getPolicy(), RequestAttributes.of(req, recipientTeeId));
+        if (!decision.isAllowed()) {
+            System.out.println("[KMS] 拒绝：请求不满足授权策略 " + decision.getPolicy());
+            Evidence ev = new Evidence();
+            ev.setEvidenceId(IdUtil.randomUUID());
+            ev.setRequestId(req.getRequestId());
+            ev.setRequesterDid(req.getRequesterDid());
+            ev.setAttestationSummaryHash(req.getAttestationSummaryHash());
+            ev.setDecisionResult("REJECT_POLICY");
+            ev.setTimestamp(System.currentTimeMillis());
+            ev.setKmsSignature("kms-sig-simulated");
+            audit.trySubmitEvidence(ev);
             return false;
         }
-// 4. attestation validation (simulated by checking attestation summary is non-empty)
+// 4. attestation validation for the recipient TEE (cached per TEE and summary hash when so wired)
         if (req.getAttestationSummaryHash() == null) {
             System.out.println("[KMS] 拒绝：缺少 attestation 证明摘要");
             return false;
         }
+        AttestationVerifier.Result attestation = attestationVerifier.verify(recipientTeeId, req.getAttestationSummaryHash());
+        if (!attestation.isValid()) {
+            System.out.println("[KMS] 拒绝：attestation 校验失败（" + attestation.getReason() + "）");
+            Evidence ev = new Evidence();
+            ev.setEvidenceId(IdUtil.randomUUID());
+            ev.setRequestId(req.getRequestId());
+            ev.setRequesterDid(req.getRequesterDid());
+            ev.setAttestationSummaryHash(req.getAttestationSummaryHash());
+            ev.setDecisionResult("REJECT_ATTESTATION");
+            ev.setTimestamp(System.currentTimeMillis());
+            ev.setKmsSignature("kms-sig-simulated");
+            audit.trySubmitEvidence(ev);
+            return false;
+        }
 // 5. build evidence and submit to audit
         Evidence evidence = new Evidence();
         evidence.setEvidenceId(IdUtil.randomUUID());
@@ -67,9 +148,83 @@ public class KmsService {
         evidence.setDecisionResult("ALLOW_PENDING_RECEIPT");
         evidence.setTimestamp(System.currentTimeMillis());
         evidence.setKmsSignature("kms-sig-simulated");
-        audit.submitEvidence(evidence);
+        if (!audit.trySubmitEvidence(evidence)) {
+            // no wrap without its decision on the audit trail
+            System.out.println("[KMS] 拒绝：审计服务未接收决策凭证（队列已满），不下发 wrap_DEK");
+            return false;
+        }
 
 // 6. create pending wrap_DEK but mark as waiting for audit receipt
+        WrapDek wrap = newWrap(req, recipientTeeId, didRec, decision);
+        requestsById.put(req.getRequestId(), req);
+        wrapsByRequest.put(req.getRequestId(), wrap);
+        register(wrap, audit.leafIndexOf(evidence.getEvidenceId()));
+        if (authorizations.lookup(req.getAuthorizationTxId(), req.getRequesterDid()) == null) {
+            wrap.setRevoked(true); // revoked or member removed while we were checking, before the index could see this wrap
+        }
+
+        System.out.println("[KMS] 已创建待定 wrap_DEK: " + wrap.getWrapDekId() + "，等待审计回执以完成下发");
+        return true;
+    }
+
+    /**
+     * Renews the wrap of an accepted request for the TEE holding it, ahead of its validTo. The
+     * request is checked again as of now (DID, authorization, policy, attestation), and a policy
+     * can rule renewal out with renewable=false. The new wrap keeps the requestId and goes through
+     * audit and finalization like any other; until it is finalized, fetchWrapForTee keeps
+     * returning the old one. False if refused; a renewal already pending counts as accepted.
+     */
+    public boolean requestRenewal(String requestId, String recipientTeeId) {
+        Request req = requestsById.get(requestId);
+        WrapDek current = wrapsByRequest.get(requestId);
+        if (req == null || current == null || current.isRevoked() || !recipientTeeId.equals(current.getRecipientTeeId())) {
+            return false;
+        }
+        if (renewals.containsKey(requestId)) {
+            return true;
+        }
+        DidReceipt didRec = didResolver.resolve(req.getRequesterDid());
+        AuthorizationCache.Grant grant = didRec == null ? null : authorizations.lookup(req.getAuthorizationTxId(), req.getRequesterDid());
+        if (grant == null || !grant.covers(req.getResourceId())) {
+            System.out.println("[KMS] 拒绝续期：DID、链上授权或授权资源已失效，requestId=" + requestId);
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        PolicyEngine.Decision decision = policyEngine.evaluate(grant.getPolicy(), RequestAttributes.of(req, recipientTeeId, now));
+        if (!decision.isAllowed() || "false".equals(decision.getUsageConstraints().get("renewable"))) {
+            System.out.println("[KMS] 拒绝续期：授权策略不允许，requestId=" + requestId);
+            return false;
+        }
+        if (!attestationVerifier.verify(recipientTeeId, req.getAttestationSummaryHash()).isValid()) {
+            System.out.println("[KMS] 拒绝续期：attestation 校验失败，requestId=" + requestId);
+            return false;
+        }
+        WrapDek wrap = newWrap(req, recipientTeeId, didRec, decision);
+        if (renewals.putIfAbsent(requestId, wrap) != null) {
+            return true;
+        }
+        Evidence evidence = new Evidence();
+        evidence.setEvidenceId(IdUtil.randomUUID());
+        evidence.setRequestId(requestId);
+        evidence.setRequesterDid(req.getRequesterDid());
+        evidence.setAttestationSummaryHash(req.getAttestationSummaryHash());
+        evidence.setDecisionResult("RENEW_PENDING_RECEIPT");
+        evidence.setTimestamp(now);
+        evidence.setKmsSignature("kms-sig-simulated");
+        if (!audit.trySubmitEvidence(evidence)) {
+            renewals.remove(requestId, wrap);
+            System.out.println("[KMS] 拒绝续期：审计服务未接收续期凭证（队列已满），requestId=" + requestId);
+            return false;
+        }
+        register(wrap, audit.leafIndexOf(evidence.getEvidenceId()));
+        if (current.isRevoked()) {
+            wrap.setRevoked(true); // revoked while we were checking, before the index could see the renewal
+        }
+        System.out.println("[KMS] 已创建续期 wrap_DEK: " + wrap.getWrapDekId() + "，requestId=" + requestId);
+        return true;
+    }
+
+    private WrapDek newWrap(Request req, String recipientTeeId, DidReceipt didRec, PolicyEngine.Decision decision) {
         WrapDek wrap = new WrapDek();
         wrap.setWrapDekId(IdUtil.randomUUID());
 // encryptedDek: simulate by AES-encrypting DEK with recipient public key fingerprint (not real)
@@ -78,61 +233,170 @@ public class KmsService {
         wrap.setEncryptedDek(encryptedDek);
         wrap.setRecipientTeeId(recipientTeeId);
         wrap.setRecipientPublicKeyFingerprint(didRec.getPublicKeyFingerprint());
-        wrap.setValidFrom(System.currentTimeMillis());
-        wrap.setValidTo(System.currentTimeMillis() + 60*1000L); // 60s validity
-        Map<String,String> usage = new HashMap<>();
-        usage.put("maxCalls","3");
-        usage.put("purpose","analysis");
-        wrap.setUsageConstraints(usage);
+        long now = System.currentTimeMillis();
+        wrap.setValidFrom(now);
+        wrap.setValidTo(now + wrapValidityMillis); // 60s by default
+        wrap.setUsageConstraints(new HashMap<>(decision.getUsageConstraints()));
         wrap.setBoundAuthorizationIdSha256(CryptoUtil.sha256Hex(req.getAuthorizationTxId()));
         wrap.setRequestId(req.getRequestId());
+        wrap.setResourceId(req.getResourceId());
 // kmsSignature will be set when finalizing wrap
+        return wrap;
+    }
+
+    private void register(WrapDek wrap, long evidenceLeaf) {
         wrapsById.put(wrap.getWrapDekId(), wrap);
-        wrapsByRequest.put(req.getRequestId(), wrap);
+        // added under the key's lock, so forget cannot drop the set just before the add
+        wrapsByAuthorization.compute(wrap.getBoundAuthorizationIdSha256(), (k, bound) -> {
+            if (bound == null) bound = ConcurrentHashMap.newKeySet();
+            bound.add(wrap);
+            return bound;
+        });
+        wrapExpiries.schedule(wrap, wrap.getValidTo());
+        pendingWraps.add(new PendingWrap(wrap, evidenceLeaf));
+    }
 
-        System.out.println("[KMS] 已创建待定 wrap_DEK: " + wrap.getWrapDekId() + "，等待审计回执以完成下发");
-        return true;
+    // drops the wraps past their validTo from every lookup; returns how many went
+    public int expireWraps(long now) {
+        return wrapExpiries.advance(now, w -> forget(w, true));
+    }
+
+    /**
+     * Drops a wrap from the lookups, and its request once no wrap or renewal is left for it. A
+     * revoked wrap stays in wrapsById until it expires, so the revocation can still be routed to
+     * its TEE by wrap id.
+     */
+    private void forget(WrapDek w, boolean expired) {
+        if (expired) wrapsById.remove(w.getWrapDekId(), w);
+        wrapsByAuthorization.computeIfPresent(w.getBoundAuthorizationIdSha256(), (k, bound) -> {
+            bound.remove(w);
+            return bound.isEmpty() ? null : bound;
+        });
+        String requestId = w.getRequestId();
+        wrapsByRequest.remove(requestId, w);
+        if (!wrapsByRequest.containsKey(requestId) && !renewals.containsKey(requestId)) {
+            requestsById.remove(requestId);
+        }
+    }
+
+    // background finalization, so renewals and new wraps go out without anyone polling
+    public synchronized void startIssuer(long intervalMillis) {
+        if (issuer != null) return;
+        issuer = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    Thread.sleep(intervalMillis);
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                if (!pendingWraps.isEmpty()) tryIssuePendingWraps();
+                else expireWraps(System.currentTimeMillis());
+            }
+        }, "kms-wrap-issuer");
+        issuer.setDaemon(true);
+        issuer.start();
+    }
+
+    public synchronized void stopIssuer() {
+        if (issuer != null) {
+            issuer.interrupt();
+            issuer = null;
+        }
     }
 
-    // periodically called to finalize wraps once audit receipt is available
+    /**
+     * Periodically called to finalize wraps once their audit receipt is available. A wrap is only
+     * bound to a receipt whose range (mmrSize) covers its own decision evidence; the others stay
+     * pending for a later receipt. A wrap that expires while pending is dropped, not issued.
+     */
     public void tryIssuePendingWraps() {
+        long now = System.currentTimeMillis();
+        expireWraps(now);
         AuditReceipt receipt = audit.latestReceipt();
         if (receipt == null) {
             System.out.println("[KMS] 当前无审计回执，暂无法下发 wrap_DEK");
             return;
         }
-// finalize all pending wraps by embedding receipt hash and signing
-        for (WrapDek w : wrapsById.values()) {
-            if (w.getKmsSignature() != null) {
-                continue; // already finalized
+// finalize the pending wraps the receipt covers by embedding receipt hash and signing
+        List<PendingWrap> notCovered = new ArrayList<>();
+        PendingWrap p;
+        for (int n = pendingWraps.size(); n > 0 && (p = pendingWraps.poll()) != null; n--) {
+            if (p.wrap.getValidTo() <= now) {
+                renewals.remove(p.wrap.getRequestId(), p.wrap);
+                forget(p.wrap, true);
+                continue;
             }
+            if (p.evidenceLeaf < 0 || p.evidenceLeaf >= receipt.getMmrSize()) {
+                notCovered.add(p);
+                continue;
+            }
+            WrapDek w = p.wrap;
 // bind receipt
             w.setBoundReceiptIdSha256(CryptoUtil.sha256Hex(receipt.getBatchId()));
 // sign the wrap metadata (simulate)
-            String toSign = w.getWrapDekId() + "|" + w.getRecipientTeeId() + "|" + w.getBoundReceiptIdSha256();
+            ByteBuffer toSign = BinaryCodec.scratch();
+            BinaryCodec.encodeWrapDekForSigning(w, toSign);
+            toSign.flip();
             w.setKmsSignature("kms-sig:" + CryptoUtil.sha256Hex(toSign));
+            if (renewals.get(w.getRequestId()) == w) {
+                // current before it stops being a renewal, so forget never sees the request with neither
+                wrapsByRequest.put(w.getRequestId(), w); // the TEE picks the renewal up on its next fetch
+                renewals.remove(w.getRequestId(), w);
+            }
             System.out.println("[KMS] 完成 wrap_DEK: " + w.getWrapDekId() + "，已绑定审计回执 batchId=" + receipt.getBatchId());
 // 在真实系统中会通过受信通道下发到 TEE；此处仅模拟打印
         }
+        pendingWraps.addAll(notCovered);
     }
 
     public WrapDek getWrapByRequest(String requestId) {
         return wrapsByRequest.get(requestId);
     }
 
-    public void revokeWrapByAuthorizationId(String authorizationId) {
-        String sha = CryptoUtil.sha256Hex(authorizationId);
-        for (WrapDek w : wrapsById.values()) {
-            if (sha.equals(w.getBoundAuthorizationIdSha256())) {
+    public WrapDek getWrap(String wrapId) {
+        return wrapsById.get(wrapId);
+    }
+
+    // returns the ids of the wraps newly revoked
+    public List<String> revokeWrapByAuthorizationId(String authorizationId) {
+        List<String> revoked = new ArrayList<>();
+        Set<WrapDek> bound = wrapsByAuthorization.get(CryptoUtil.sha256Hex(authorizationId));
+        if (bound == null) {
+            return revoked;
+        }
+        for (WrapDek w : bound) {
+            if (!w.isRevoked()) {
                 w.setRevoked(true);
+                forget(w, false);
+                revoked.add(w.getWrapDekId());
                 System.out.println("[KMS] 将 wrap 标记为已撤销: " + w.getWrapDekId());
             }
         }
+        return revoked;
     }
 
-    public void onAuthorizationRevoked(String authorizationId) {
-        revokeWrapByAuthorizationId(authorizationId);
-// 在真实系统中：向活跃会话下发撤销命令
+    public List<String> onAuthorizationRevoked(String authorizationId) {
+// 活跃会话的撤销由 RevocationBus 转发给各 TEE
+        return revokeWrapByAuthorizationId(authorizationId);
+    }
+
+    // a group authorization lost members: revokes the wraps issued to them, returns the ids newly revoked
+    public List<String> onMembersRemoved(String authorizationId, Set<String> removedDids) {
+        List<String> revoked = new ArrayList<>();
+        Set<WrapDek> bound = wrapsByAuthorization.get(CryptoUtil.sha256Hex(authorizationId));
+        if (bound == null) {
+            return revoked;
+        }
+        for (WrapDek w : bound) {
+            Request req = requestsById.get(w.getRequestId());
+            if (!w.isRevoked() && req != null && removedDids.contains(req.getRequesterDid())) {
+                w.setRevoked(true);
+                forget(w, false);
+                revoked.add(w.getWrapDekId());
+                System.out.println("[KMS] 组成员已移除，将 wrap 标记为已撤销: " + w.getWrapDekId() + " did=" + req.getRequesterDid());
+            }
+        }
+        return revoked;
     }
 
     // expose a method for TEE to fetch wrap by request id (simulate secure retrieval)
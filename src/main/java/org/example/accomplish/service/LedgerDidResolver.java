@@ -0,0 +1,42 @@
+package org.example.accomplish.service;
+
+import org.example.accomplish.model.DidReceipt;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stand-in for ledger DID resolution: answers from another resolver (usually DidRegistry) after
+ * latencyMillis plus up to jitterMillis of simulated network and consensus delay.
+ */
+public class LedgerDidResolver implements DidResolver {
+    private final DidResolver source;
+    private final long latencyMillis;
+    private final long jitterMillis;
+    private final AtomicLong calls = new AtomicLong();
+
+    public LedgerDidResolver(DidResolver source, long latencyMillis, long jitterMillis) {
+        this.source = source;
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+    }
+
+    @Override
+    public DidReceipt resolve(String did) {
+        calls.incrementAndGet();
+        long delay = latencyMillis + (jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0);
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("DID resolution interrupted: " + did, ex);
+            }
+        }
+        return source.resolve(did);
+    }
+
+    public long getCallCount() {
+        return calls.get();
+    }
+}
@@ -2,51 +2,236 @@ package org.example.accomplish.service;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import org.example.accomplish.policy.PolicyEngine;
+import org.example.accomplish.util.DidSet;
 import org.example.accomplish.util.IdUtil;
 
+/**
+ * Simulated on-chain authorization contract.
+ * Records are immutable: revoke and membership changes swap in a new record with one atomic map
+ * update, so readers never lock and never see a half-applied change. Every record is also filed
+ * in an expiry index of EXPIRY_BUCKET_MILLIS-wide time buckets; reapExpired() (or the background
+ * reaper) drops whole buckets once they are past, so the table only holds live authorizations.
+ * A revoked record stays until its validity ends, so a lookup still reports "revoked" rather
+ * than "unknown" while it could otherwise have been used.
+ */
 public class PolicyContract {
+    static final long EXPIRY_BUCKET_MILLIS = 1_000;
+
     // simple in-memory map to simulate on-chain authorizations
-    private Map<String, AuthorizationRecord> auths = new ConcurrentHashMap<>();
+    private final Map<String, AuthorizationRecord> auths = new ConcurrentHashMap<>();
+    // bucket (validTo / EXPIRY_BUCKET_MILLIS) -> ids expiring in it
+    private final ConcurrentSkipListMap<Long, Queue<String>> expiryIndex = new ConcurrentSkipListMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong chainReads = new AtomicLong();
+    private final AtomicLong reaped = new AtomicLong();
+    private Thread reaper;
+
+    // contract events, delivered synchronously after the state change
+    public interface Listener {
+        void onPublished(AuthorizationRecord rec);
+        void onRevoked(String authorizationId);
+        // group membership delta; rec already carries the new member set
+        default void onMembersChanged(AuthorizationRecord rec, Collection<String> added, Collection<String> removed) { }
+        // the record has been dropped from the contract after its validity ended
+        default void onExpired(String authorizationId) { }
+    }
+
+    public static final class AuthorizationRecord {
+        private final String authorizationId;
+        private final String resourceId;
+        private final String granteeDid; // null for a group authorization
+        private final DidSet members; // group authorizations only
+        private final long validTo;
+        private final boolean revoked;
+        private final String policy; // rule text for PolicyEngine, never null (PolicyEngine.DEFAULT_POLICY if none given)
+
+        AuthorizationRecord(String authorizationId, String resourceId, String granteeDid, DidSet members,
+                            long validTo, boolean revoked, String policy) {
+            this.authorizationId = authorizationId;
+            this.resourceId = resourceId;
+            this.granteeDid = granteeDid;
+            this.members = members;
+            this.validTo = validTo;
+            this.revoked = revoked;
+            this.policy = policy;
+        }
+
+        AuthorizationRecord withRevoked() {
+            return revoked ? this : new AuthorizationRecord(authorizationId, resourceId, granteeDid, members, validTo, true, policy);
+        }
+
+        AuthorizationRecord withMembers(DidSet newMembers) {
+            return new AuthorizationRecord(authorizationId, resourceId, granteeDid, newMembers, validTo, revoked, policy);
+        }
+
+        public String getAuthorizationId() { return authorizationId; }
+        public String getResourceId() { return resourceId; }
+        public String getGranteeDid() { return granteeDid; }
+        public long getValidTo() { return validTo; }
+        public boolean isRevoked() { return revoked; }
+        public String getPolicy() { return policy; }
+        public DidSet getMembers() { return members; }
+        public boolean isGroup() { return members != null; }
+
+        public boolean covers(String did) {
+            return members != null ? members.contains(did) : granteeDid.equals(did);
+        }
+    }
 
-    public static class AuthorizationRecord {
-        String authorizationId;
-        String resourceId;
-        String granteeDid;
-        long validTo;
-        boolean revoked = false;
+    public void addListener(Listener l) {
+        listeners.add(l);
     }
 
     public String publishAuthorization(String resourceId, String granteeDid, int validSeconds) {
-        AuthorizationRecord rec = new AuthorizationRecord();
-        rec.authorizationId = IdUtil.randomUUID();
-        rec.resourceId = resourceId;
-        rec.granteeDid = granteeDid;
-        rec.validTo = System.currentTimeMillis() + validSeconds * 1000L;
-        auths.put(rec.authorizationId, rec);
+        return publishAuthorization(resourceId, granteeDid, validSeconds, null);
+    }
+
+    public String publishAuthorization(String resourceId, String granteeDid, int validSeconds, String policy) {
+        if (policy != null) {
+            PolicyEngine.validate(policy); // a malformed rule never reaches the chain
+        }
+        AuthorizationRecord rec = new AuthorizationRecord(IdUtil.randomUUID(), resourceId, granteeDid, null,
+                System.currentTimeMillis() + validSeconds * 1000L, false, policy == null ? PolicyEngine.DEFAULT_POLICY : policy);
+        store(rec);
 // 模拟链上事件发布（现实中为链交易）
         System.out.println("[策略合约] 已发布授权记录: authorizationId=" + rec.authorizationId + " resourceId=" + resourceId + " grantee=" + granteeDid);
+        for (Listener l : listeners) l.onPublished(rec);
         return rec.authorizationId;
     }
 
+    /**
+     * One record and one event for a whole set of grantees, instead of one per grantee.
+     */
+    public String publishGroupAuthorization(String resourceId, Collection<String> granteeDids, int validSeconds, String policy) {
+        if (policy != null) {
+            PolicyEngine.validate(policy);
+        }
+        AuthorizationRecord rec = new AuthorizationRecord(IdUtil.randomUUID(), resourceId, null, DidSet.of(granteeDids),
+                System.currentTimeMillis() + validSeconds * 1000L, false, policy == null ? PolicyEngine.DEFAULT_POLICY : policy);
+        store(rec);
+        System.out.println("[策略合约] 已发布组授权记录: authorizationId=" + rec.authorizationId + " resourceId=" + resourceId + " 成员数=" + rec.members.size());
+        for (Listener l : listeners) l.onPublished(rec);
+        return rec.authorizationId;
+    }
+
+    // delta updates of a group's members; false if the id is unknown or not a group
+    public boolean addGroupMembers(String authorizationId, Collection<String> dids) {
+        return changeMembers(authorizationId, dids, Collections.<String>emptyList());
+    }
+
+    public boolean removeGroupMembers(String authorizationId, Collection<String> dids) {
+        return changeMembers(authorizationId, Collections.<String>emptyList(), dids);
+    }
+
+    private boolean changeMembers(String authorizationId, Collection<String> added, Collection<String> removed) {
+        AuthorizationRecord rec = auths.computeIfPresent(authorizationId, (id, r) ->
+                r.members == null ? r : r.withMembers(r.members.withAdded(added).withRemoved(removed)));
+        if (rec == null || rec.members == null) {
+            return false;
+        }
+        System.out.println("[策略合约] 组授权成员变更: authorizationId=" + authorizationId + " +" + added.size() + " -" + removed.size() + " 成员数=" + rec.members.size());
+        for (Listener l : listeners) l.onMembersChanged(rec, added, removed);
+        return true;
+    }
+
+    // a chain read in a real deployment; null if unknown
+    public AuthorizationRecord getAuthorization(String authorizationId) {
+        chainReads.incrementAndGet();
+        return auths.get(authorizationId);
+    }
+
+    public long getChainReadCount() {
+        return chainReads.get();
+    }
+
     public boolean isAuthorizationValid(String authorizationId, String granteeDid) {
-        AuthorizationRecord rec = auths.get(authorizationId);
+        AuthorizationRecord rec = getAuthorization(authorizationId);
         if (rec == null) {
             return false;
         }
         if (rec.revoked) {
             return false;
         }
-        if (!rec.granteeDid.equals(granteeDid)) {
+        if (!rec.covers(granteeDid)) {
             return false;
         }
         return rec.validTo >= System.currentTimeMillis();
     }
 
     public void revokeAuthorization(String authorizationId) {
-        AuthorizationRecord rec = auths.get(authorizationId);
-        if (rec != null) {
-            rec.revoked = true;
-        }
+        auths.computeIfPresent(authorizationId, (id, r) -> r.withRevoked());
         System.out.println("[策略合约] 授权已撤销: " + authorizationId);
+        for (Listener l : listeners) l.onRevoked(authorizationId);
+    }
+
+    public int size() {
+        return auths.size();
+    }
+
+    public long getReapedCount() {
+        return reaped.get();
+    }
+
+    /**
+     * Drops every record whose validity ended before now; returns how many were dropped.
+     * Only buckets entirely in the past are visited, so the cost is proportional to what expired.
+     */
+    public int reapExpired(long now) {
+        int n = 0;
+        long current = now / EXPIRY_BUCKET_MILLIS;
+        Map.Entry<Long, Queue<String>> bucket;
+        while ((bucket = expiryIndex.firstEntry()) != null && bucket.getKey() < current) {
+            if (!expiryIndex.remove(bucket.getKey(), bucket.getValue())) {
+                continue; // another reaper took it
+            }
+            for (String id : bucket.getValue()) {
+                AuthorizationRecord rec = auths.get(id);
+                if (rec != null && rec.validTo < now && auths.remove(id, rec)) {
+                    n++;
+                    for (Listener l : listeners) l.onExpired(id);
+                }
+            }
+        }
+        if (n > 0) {
+            reaped.addAndGet(n);
+        }
+        return n;
+    }
+
+    // background reaping every intervalMillis on a daemon thread
+    public synchronized void startReaper(long intervalMillis) {
+        if (reaper != null) return;
+        reaper = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    Thread.sleep(intervalMillis);
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                int n = reapExpired(System.currentTimeMillis());
+                if (n > 0) {
+                    System.out.println("[策略合约] 已清理过期授权: " + n + " 条，剩余 " + auths.size());
+                }
+            }
+        }, "policy-contract-reaper");
+        reaper.setDaemon(true);
+        reaper.start();
+    }
+
+    public synchronized void stopReaper() {
+        if (reaper != null) {
+            reaper.interrupt();
+            reaper = null;
+        }
+    }
+
+    private void store(AuthorizationRecord rec) {
+        auths.put(rec.authorizationId, rec);
+        expiryIndex.computeIfAbsent(rec.validTo / EXPIRY_BUCKET_MILLIS, b -> new ConcurrentLinkedQueue<>()).add(rec.authorizationId);
     }
-}
\ No newline at end of file
+}
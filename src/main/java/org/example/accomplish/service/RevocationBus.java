@@ -0,0 +1,189 @@
+package org.example.accomplish.service;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * In-process fan-out of authorization revocations: PolicyContract -> KMS wrap revocation -> every
+ * TEE session bound to the revoked wraps.
+ * Events are spread over lanes by authorizationId, so revocations of one authorization are
+ * delivered in the order they were raised. Each lane drains up to maxBatch queued events and
+ * hands the TEEs one set of wrap ids per batch, so a TEE walks its sessions once per batch
+ * rather than once per wrap.
+ * Removing members from a group authorization is a partial revocation: it travels the same lane
+ * and revokes only the wraps issued to the removed DIDs.
+ */
+public class RevocationBus implements PolicyContract.Listener {
+    public interface DeliveryListener {
+        // called once the revocation has reached every TEE; latency measured from onRevoked
+        void onDelivered(String authorizationId, int wraps, long latencyNanos);
+    }
+
+    private final KmsService kms;
+    private final List<Consumer<Set<String>>> tees = new CopyOnWriteArrayList<>(); // TEEs and fleets
+    private final int maxBatch;
+    private final List<BlockingQueue<Revocation>> lanes = new ArrayList<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private volatile DeliveryListener deliveryListener;
+    private volatile boolean running = false;
+
+    private static class Revocation {
+        final String authorizationId;
+        final Set<String> removedDids; // null: the whole authorization
+        final long raisedAt = System.nanoTime();
+
+        Revocation(String authorizationId, Set<String> removedDids) {
+            this.authorizationId = authorizationId;
+            this.removedDids = removedDids;
+        }
+    }
+
+    public RevocationBus(KmsService kms, int laneCount, int maxBatch) {
+        this.kms = kms;
+        this.maxBatch = maxBatch;
+        for (int i = 0; i < laneCount; i++) {
+            lanes.add(new LinkedBlockingQueue<>());
+        }
+    }
+
+    public void addTee(TeeEnvironment tee) {
+        tees.add(tee::onRevokeWraps);
+    }
+
+    // a fleet hands each wrap only to its recipient TEE instead of asking every member
+    public void addFleet(TeeFleet fleet) {
+        tees.add(fleet::onRevokeWraps);
+    }
+
+    public void setDeliveryListener(DeliveryListener l) {
+        this.deliveryListener = l;
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        for (int i = 0; i < lanes.size(); i++) {
+            BlockingQueue<Revocation> lane = lanes.get(i);
+            Thread t = new Thread(() -> laneLoop(lane), "revocation-bus-" + i);
+            t.setDaemon(true);
+            workers.add(t);
+            t.start();
+        }
+    }
+
+    // stops the lanes, then delivers what they still held on this thread, so nothing raised is lost
+    public synchronized void stop() {
+        running = false;
+        for (Thread t : workers) t.interrupt();
+        boolean interrupted = false;
+        for (Thread t : workers) {
+            while (t.isAlive()) {
+                try {
+                    t.join();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+        }
+        workers.clear();
+        List<Revocation> batch = new ArrayList<>(maxBatch);
+        for (BlockingQueue<Revocation> lane : lanes) {
+            while (lane.drainTo(batch, maxBatch) > 0) {
+                deliverBatch(batch);
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    @Override
+    public void onPublished(PolicyContract.AuthorizationRecord rec) {
+        // nothing to fan out
+    }
+
+    @Override
+    public void onRevoked(String authorizationId) {
+        raise(new Revocation(authorizationId, null));
+    }
+
+    @Override
+    public void onMembersChanged(PolicyContract.AuthorizationRecord rec, Collection<String> added, Collection<String> removed) {
+        if (!removed.isEmpty()) {
+            raise(new Revocation(rec.getAuthorizationId(), new HashSet<>(removed)));
+        }
+    }
+
+    private void raise(Revocation r) {
+        pending.incrementAndGet();
+        lanes.get((r.authorizationId.hashCode() & 0x7fffffff) % lanes.size()).add(r);
+    }
+
+    // waits until every revocation raised so far has been delivered; false on timeout
+    public boolean awaitDelivered(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (pending.get() > 0) {
+            if (System.currentTimeMillis() >= deadline) return false;
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    public long getDeliveredCount() { return delivered.get(); }
+    public long getBatchCount() { return batches.get(); }
+
+    private void laneLoop(BlockingQueue<Revocation> lane) {
+        List<Revocation> batch = new ArrayList<>(maxBatch);
+        while (running) {
+            try {
+                batch.add(lane.take());
+            } catch (InterruptedException ex) {
+                return;
+            }
+            lane.drainTo(batch, maxBatch - 1);
+            deliverBatch(batch);
+        }
+    }
+
+    private void deliverBatch(List<Revocation> batch) {
+        try {
+            deliver(batch);
+        } catch (RuntimeException ex) {
+            System.out.println("[撤销总线] 投递失败: " + ex);
+        } finally {
+            pending.addAndGet(-batch.size());
+            batch.clear();
+        }
+    }
+
+    private void deliver(List<Revocation> batch) {
+        // KMS first, in order, so no wrap can be re-fetched once its sessions are gone
+        Set<String> wrapIds = new HashSet<>();
+        int[] counts = new int[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            Revocation r = batch.get(i);
+            List<String> revoked = r.removedDids == null
+                    ? kms.onAuthorizationRevoked(r.authorizationId)
+                    : kms.onMembersRemoved(r.authorizationId, r.removedDids);
+            counts[i] = revoked.size();
+            wrapIds.addAll(revoked);
+        }
+        if (!wrapIds.isEmpty()) {
+            for (Consumer<Set<String>> tee : tees) {
+                tee.accept(wrapIds);
+            }
+        }
+        batches.incrementAndGet();
+        delivered.addAndGet(batch.size());
+        DeliveryListener l = deliveryListener;
+        if (l != null) {
+            long now = System.nanoTime();
+            for (int i = 0; i < batch.size(); i++) {
+                l.onDelivered(batch.get(i).authorizationId, counts[i], now - batch.get(i).raisedAt);
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.accomplish.service;
+
+import org.example.accomplish.util.CryptoUtil;
+
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stand-in for attestation quote verification: spends costMicros of CPU per call (hashing in
+ * place of certificate-chain and signature checks), then accepts any well-formed summary hash
+ * from a TEE whose TCB level has not been revoked. TEEs are at DEFAULT_TCB unless set otherwise;
+ * revokeTcb stands in for the vendor's TCB status feed and notifies listeners.
+ */
+public class SimulatedAttestationVerifier implements AttestationVerifier {
+    public static final String DEFAULT_TCB = "tcb-2026.1";
+
+    private final long costMicros;
+    private final Map<String, String> tcbByTee = new ConcurrentHashMap<>();
+    private final Set<String> revokedTcbs = ConcurrentHashMap.newKeySet();
+    private final List<TcbListener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong calls = new AtomicLong();
+
+    public SimulatedAttestationVerifier(long costMicros) {
+        this.costMicros = costMicros;
+    }
+
+    @Override
+    public Result verify(String teeId, String attestationSummaryHash) {
+        calls.incrementAndGet();
+        burn();
+        if (attestationSummaryHash == null || attestationSummaryHash.length() != 64) {
+            return Result.invalid("malformed attestation summary");
+        }
+        String tcb = tcbOf(teeId);
+        if (revokedTcbs.contains(tcb)) {
+            return Result.invalid("TCB " + tcb + " revoked");
+        }
+        return Result.valid(tcb);
+    }
+
+    @Override
+    public void addTcbListener(TcbListener listener) {
+        listeners.add(listener);
+    }
+
+    public void setTcb(String teeId, String tcbVersion) {
+        tcbByTee.put(teeId, tcbVersion);
+    }
+
+    public String tcbOf(String teeId) {
+        return teeId == null ? DEFAULT_TCB : tcbByTee.getOrDefault(teeId, DEFAULT_TCB);
+    }
+
+    public void revokeTcb(String tcbVersion) {
+        if (!revokedTcbs.add(tcbVersion)) return;
+        System.out.println("[Attestation] TCB 已吊销: " + tcbVersion);
+        for (TcbListener l : listeners) {
+            l.onTcbRevoked(tcbVersion);
+        }
+    }
+
+    public long getCallCount() {
+        return calls.get();
+    }
+
+    // busy work, so the cost shows up as CPU under concurrency rather than as idle sleep
+    private void burn() {
+        if (costMicros <= 0) return;
+        long deadline = System.nanoTime() + costMicros * 1_000;
+        MessageDigest md = CryptoUtil.newSha256();
+        byte[] acc = new byte[32];
+        do {
+            acc = md.digest(acc);
+        } while (System.nanoTime() < deadline);
+    }
+}
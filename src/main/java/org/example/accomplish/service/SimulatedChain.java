@@ -0,0 +1,143 @@
+package org.example.accomplish.service;
+
+import org.example.accomplish.util.IdUtil;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Local stand-in for the anchoring chain. Produces a block every blockTimeMillis from the mempool,
+ * drops a submitted tx with probability failureRate, and with probability reorgRate orphans the
+ * tip blocks that have not yet reached confirmationDepth (their txs are reported as dropped, so
+ * the submitter resubmits). A tx is reported confirmed once it is confirmationDepth blocks deep,
+ * after which it can no longer be reorged.
+ */
+public class SimulatedChain {
+    public interface Listener {
+        void onConfirmed(String txId, String payload, long blockHeight, int confirmations);
+        void onDropped(String txId, String payload, String reason);
+    }
+
+    private final long blockTimeMillis;
+    private final int confirmationDepth;
+    private final double failureRate;
+    private final double reorgRate;
+    private final Random rnd = new Random();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private final Map<String, String> mempool = new LinkedHashMap<>(); // txId -> payload
+    private final List<List<String>> blocks = new ArrayList<>();
+    private final Map<String, String> payloads = new HashMap<>(); // txId -> payload, until final
+    private final Map<String, Long> unconfirmed = new HashMap<>(); // txId -> inclusion height
+    private long confirmedCount = 0;
+    private long droppedCount = 0;
+    private long reorgCount = 0;
+    private ScheduledExecutorService miner;
+
+    public SimulatedChain(long blockTimeMillis, int confirmationDepth, double failureRate, double reorgRate) {
+        this.blockTimeMillis = blockTimeMillis;
+        this.confirmationDepth = confirmationDepth;
+        this.failureRate = failureRate;
+        this.reorgRate = reorgRate;
+    }
+
+    public void addListener(Listener l) {
+        listeners.add(l);
+    }
+
+    public synchronized void start() {
+        if (miner != null) return;
+        miner = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "simulated-chain");
+            t.setDaemon(true);
+            return t;
+        });
+        miner.scheduleAtFixedRate(this::produceBlock, blockTimeMillis, blockTimeMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (miner != null) {
+            miner.shutdownNow();
+            miner = null;
+        }
+    }
+
+    // false before start() and after stop(): submitted txs sit in the mempool, never mined
+    public synchronized boolean isRunning() { return miner != null; }
+
+    public synchronized String submit(String payload) {
+        String txId = "chainTx-" + IdUtil.randomUUID();
+        mempool.put(txId, payload);
+        payloads.put(txId, payload);
+        return txId;
+    }
+
+    public synchronized long height() { return blocks.size(); }
+    public synchronized long getConfirmedCount() { return confirmedCount; }
+    public synchronized long getDroppedCount() { return droppedCount; }
+    public synchronized long getReorgCount() { return reorgCount; }
+    public int getConfirmationDepth() { return confirmationDepth; }
+
+    private void produceBlock() {
+        List<Runnable> events = new ArrayList<>();
+        synchronized (this) {
+            if (!blocks.isEmpty() && confirmationDepth > 1 && rnd.nextDouble() < reorgRate) {
+                int depth = 1 + rnd.nextInt(Math.min(confirmationDepth - 1, blocks.size()));
+                reorgCount++;
+                for (int i = 0; i < depth; i++) {
+                    for (String txId : blocks.remove(blocks.size() - 1)) {
+                        unconfirmed.remove(txId);
+                        droppedCount++;
+                        String payload = payloads.remove(txId);
+                        events.add(() -> fireDropped(txId, payload, "reorg"));
+                    }
+                }
+            }
+            List<String> block = new ArrayList<>();
+            for (String txId : mempool.keySet()) {
+                if (rnd.nextDouble() < failureRate) {
+                    droppedCount++;
+                    String payload = payloads.remove(txId);
+                    events.add(() -> fireDropped(txId, payload, "failed"));
+                } else {
+                    block.add(txId);
+                }
+            }
+            mempool.clear();
+            blocks.add(block);
+            long height = blocks.size();
+            for (String txId : block) {
+                unconfirmed.put(txId, height);
+            }
+            Iterator<Map.Entry<String, Long>> it = unconfirmed.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Long> ent = it.next();
+                int confirmations = (int) (height - ent.getValue() + 1);
+                if (confirmations >= confirmationDepth) {
+                    it.remove();
+                    confirmedCount++;
+                    String txId = ent.getKey();
+                    long included = ent.getValue();
+                    String payload = payloads.remove(txId);
+                    events.add(() -> fireConfirmed(txId, payload, included, confirmations));
+                }
+            }
+        }
+        // callbacks run outside the lock; listeners may resubmit
+        for (Runnable r : events) {
+            try {
+                r.run();
+            } catch (RuntimeException ex) {
+                System.out.println("[模拟链] 事件回调异常: " + ex);
+            }
+        }
+    }
+
+    private void fireConfirmed(String txId, String payload, long height, int confirmations) {
+        for (Listener l : listeners) l.onConfirmed(txId, payload, height, confirmations);
+    }
+
+    private void fireDropped(String txId, String payload, String reason) {
+        for (Listener l : listeners) l.onDropped(txId, payload, reason);
+    }
+}
@@ -4,122 +4,595 @@ import org.example.accomplish.model.*;
 import org.example.accomplish.util.*;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Simulated TEE, one instance per TEE identity (see TeeFleet for many). It only unwraps wraps
+ * addressed to its teeId, and each use reads the resource named in the session's wrap. Sessions live in a ConcurrentHashMap keyed by requestId and are used without
+ * a TEE-wide lock: each session's call quota is a CAS loop on an atomic counter, so concurrent
+ * uses never exceed maxCalls, and the lazy unwrap on first use is single-flight per requestId
+ * (one thread calls KMS, the others wait for its session). Active sessions are also indexed by
+ * wrapId and by bound authorization, so a revocation only touches the sessions it affects.
+ *
+ * Session lifetime: the DEK lives in an off-heap KeySlab slot and every session sits in a timer
+ * wheel. The DEK is zero-filled when the wrap's validTo passes or after idleTimeoutMillis without
+ * a use, whichever is first (by the sweeper, or lazily on the next use). An idle session keeps
+ * only its call count, so a later unwrap of the same wrap carries on with the same quota, and
+ * leaves the table at validTo.
+ *
+ * Usage evidence: by default every use is submitted on its own as TEE_USAGE_OK, and the use only
+ * goes ahead once audit has accepted it. enableUsageAggregation (or a TeeFleet) trades that for
+ * throughput: each use becomes a UsageRecord in a UsageAggregator and reaches audit as part of one
+ * signed TEE_USAGE_BATCH evidence per N uses or per interval. The guarantee is weaker then: a use
+ * goes ahead before audit has its record, the record waits in the TEE until the batch is sealed,
+ * and a batch audit sheds loses its uses (UsageAggregator.getDroppedRecordCount).
+ *
+ * Prefetch (enablePrefetch, off by default): a session whose resource was used within the recency
+ * window is renewed renewAheadMillis before its wrap's validTo (KmsService.requestRenewal). Once
+ * the renewed wrap is signed it is unwrapped in the background and swapped in for the old session
+ * under the same requestId, sharing its call counter, so a steady workload never waits on issuance.
+ * A renewal the KMS refuses (revoked, policy renewable=false, ...) just lets the wrap run out.
+ */
 public class TeeEnvironment {
     private AuditService audit;
     private KmsService kms;
     private ResourceStore resourceStore;
-    private Map<String, Session> sessions = new HashMap<>();
-    private String teeId = "tee:example:alice:1";
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Session>> unwrapping = new ConcurrentHashMap<>();
+    // active sessions only; a revoked session leaves both indexes
+    private final Map<String, Session> byWrap = new ConcurrentHashMap<>();
+    private final Map<String, Set<Session>> byAuthorization = new ConcurrentHashMap<>(); // keyed by authorization sha
+    private static final String REVOKE_ATTESTATION_HASH = CryptoUtil.sha256Hex("tee-revoke-evidence");
+    private final AtomicLong unwraps = new AtomicLong();
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 300_000;
+    private static final int DEK_SLOT_BYTES = 32;
+    private final KeySlab keys;
+    private final TimerWheel<Session> expiries;
+    private volatile long idleTimeoutMillis = DEFAULT_IDLE_TIMEOUT_MILLIS;
+    private final AtomicLong expiredCount = new AtomicLong();
+    private Thread sweeper;
+    public static final String DEFAULT_TEE_ID = "tee:example:alice:1";
+    private final String teeId;
+    private static final String USAGE_ATTESTATION_HASH = CryptoUtil.sha256Hex("tee-attestation-sim");
+    private volatile UsageAggregator usage;
+    private final TimerWheel<Session> renewals; // sessions due for a renewal check
+    private final Map<String, Long> lastAccess = new ConcurrentHashMap<>(); // resourceId -> last use, while prefetching
+    private volatile long renewAheadMillis; // 0: prefetch off
+    private volatile long recencyMillis;
+    private static final long RENEWAL_POLL_MILLIS = 100;
+    private final AtomicLong renewalsRequested = new AtomicLong();
+    private final AtomicLong renewalsRefused = new AtomicLong();
+    private final AtomicLong swaps = new AtomicLong();
 
     static class Session {
-        String sessionId;
-        byte[] dek; // unwrapped DEK held in TEE memory (non-exportable in real)
-        String requestId;
-        int usageCount = 0;
-        int maxCalls = 0;
-        boolean active = true;
+        final String sessionId;
+        final int keyHandle; // unwrapped DEK, a KeySlab slot (non-exportable in real)
+        final String requestId;
+        final String wrapId; // the wrap this DEK was unwrapped from; revocation targets it
+        final String resourceId; // the wrap's
+        final String authorizationSha; // wrap's bound authorization, sha256 hex
+        final int maxCalls;
+        final long validTo; // the wrap's
+        final AtomicInteger usageCount;
+        final AtomicBoolean active = new AtomicBoolean(true); // holds a live DEK
+        volatile long lastUsed;
+        volatile boolean renewing; // renewal accepted by KMS, waiting for the signed wrap
+
+        Session(String sessionId, int keyHandle, String requestId, String wrapId, String resourceId, String authorizationSha,
+                int maxCalls, long validTo, int usedCalls) {
+            this(sessionId, keyHandle, requestId, wrapId, resourceId, authorizationSha, maxCalls, validTo, new AtomicInteger(usedCalls));
+        }
+
+        // usageCount: shared with the session this one renews, so the quota carries across the swap
+        Session(String sessionId, int keyHandle, String requestId, String wrapId, String resourceId, String authorizationSha,
+                int maxCalls, long validTo, AtomicInteger usageCount) {
+            this.sessionId = sessionId;
+            this.keyHandle = keyHandle;
+            this.requestId = requestId;
+            this.wrapId = wrapId;
+            this.resourceId = resourceId;
+            this.authorizationSha = authorizationSha;
+            this.maxCalls = maxCalls;
+            this.validTo = validTo;
+            this.usageCount = usageCount;
+            this.lastUsed = System.currentTimeMillis();
+        }
+
+        // claims one call; the new count, or -1 once the quota is used up
+        int tryAcquire() {
+            for (;;) {
+                int used = usageCount.get();
+                if (used >= maxCalls) return -1;
+                if (usageCount.compareAndSet(used, used + 1)) return used + 1;
+            }
+        }
+
+        // zero-fills the DEK; true only for the caller that actually deactivated it
+        boolean deactivate(KeySlab keys) {
+            if (!active.compareAndSet(true, false)) return false;
+            keys.free(keyHandle);
+            return true;
+        }
     }
 
     public TeeEnvironment(AuditService audit, KmsService kms, ResourceStore resourceStore) {
+        this(DEFAULT_TEE_ID, audit, kms, resourceStore);
+    }
+
+    public TeeEnvironment(String teeId, AuditService audit, KmsService kms, ResourceStore resourceStore) {
+        this(teeId, audit, kms, resourceStore, KeySlab.DEFAULT_CHUNK_BITS, 1024);
+    }
+
+    // fleet members: smaller key chunks and timer wheels, so thousands of idle TEEs stay cheap
+    TeeEnvironment(String teeId, AuditService audit, KmsService kms, ResourceStore resourceStore, int keyChunkBits, int wheelSize) {
+        this.teeId = teeId;
         this.audit = audit;
         this.kms = kms;
         this.resourceStore = resourceStore;
+        this.keys = new KeySlab(DEK_SLOT_BYTES, keyChunkBits);
+        this.expiries = new TimerWheel<>(100, wheelSize, System.currentTimeMillis());
+        this.renewals = new TimerWheel<>(RENEWAL_POLL_MILLIS, wheelSize, System.currentTimeMillis());
     }
 
+    public String getTeeId() {
+        return teeId;
+    }
+
+    // a standalone TEE serves every DID; TeeFleet.teeIdForDid routes across many
     public String getTeeIdForDid(String did) {
-// in real system mapping DID -> TEE id; here return teeId for simplicity
         return teeId;
     }
 
-    // simulate TEE fetching wrap_DEK from KMS and unwrapping DEK
+    // simulate TEE fetching wrap_DEK from KMS and unwrapping DEK; an active session is kept as is
     public boolean acceptWrapAndUnwrap(String requestId) {
+        return unwrap(requestId) != null;
+    }
+
+    // single-flight: concurrent callers for one requestId share a single KMS fetch
+    private Session unwrap(String requestId) {
+        CompletableFuture<Session> mine = new CompletableFuture<>();
+        CompletableFuture<Session> running = unwrapping.putIfAbsent(requestId, mine);
+        if (running != null) {
+            return running.join();
+        }
+        Session s = null;
+        try {
+            // an unwrap may have finished just before we registered; re-unwrapping would reset its quota
+            Session current = sessions.get(requestId);
+            s = current != null && current.active.get() ? current
+                    : fetchAndUnwrap(requestId, current == null ? 0 : current.usageCount.get());
+        } finally {
+            mine.complete(s);
+            unwrapping.remove(requestId, mine);
+        }
+        return s;
+    }
+
+    // usedCalls: calls already made under this wrap by an idle-expired session
+    private Session fetchAndUnwrap(String requestId, int usedCalls) {
+        unwraps.incrementAndGet();
         WrapDek wrap = kms.fetchWrapForTee(requestId);
         if (wrap == null) {
             System.out.println("[TEE] 未找到 wrap（可能已撤销或尚未准备好），requestId=" + requestId);
-            return false;
+            return null;
+        }
+        Session s = open(requestId, wrap, new AtomicInteger(usedCalls));
+        if (s == null) {
+            return null;
+        }
+        sessions.put(requestId, s);
+        index(s);
+        expiries.schedule(s, expiryOf(s));
+        if (wrap.isRevoked()) {
+            // revoked after our fetch; the revocation lookup may have run before index() above
+            if (s.deactivate(keys)) retire(s);
+            System.out.println("[TEE] wrap 在解封期间被撤销，requestId=" + requestId);
+            return null;
+        }
+        scheduleRenewal(s);
+        System.out.println("[TEE] 已解封 DEK 并建立会话 sessionId=" + s.sessionId + "，requestId=" + requestId);
+        return s;
+    }
+
+    // checks the wrap and unwraps its DEK into a new session, not yet installed; null if unusable
+    private Session open(String requestId, WrapDek wrap, AtomicInteger usageCount) {
+        if (wrap.getRecipientTeeId() != null && !wrap.getRecipientTeeId().equals(teeId)) {
+            System.out.println("[TEE] wrap 的接收方不是本 TEE（" + wrap.getRecipientTeeId() + "），requestId=" + requestId);
+            return null;
         }
 // verify kmsSignature (simulated)
         if (wrap.getKmsSignature() == null) {
             System.out.println("[TEE] wrap 尚未由 KMS 完成签名，无法解封；requestId=" + requestId);
-            return false;
+            return null;
         }
 // check validity window
         long now = System.currentTimeMillis();
         if (now < wrap.getValidFrom() || now > wrap.getValidTo()) {
             System.out.println("[TEE] wrap 已过期或尚未生效；requestId=" + requestId);
-            return false;
+            return null;
         }
 // unencrypt dek (simulate)
         byte[] dek = CryptoUtil.randomBytes(16); // 模拟解封得到的 DEK
-        Session s = new Session();
-        s.sessionId = IdUtil.randomUUID();
-        s.dek = dek;
-        s.requestId = requestId;
-        s.maxCalls = Integer.parseInt(wrap.getUsageConstraints().getOrDefault("maxCalls", "1"));
-        sessions.put(requestId, s);
-        System.out.println("[TEE] 已解封 DEK 并建立会话 sessionId=" + s.sessionId + "，requestId=" + requestId);
+        int handle = keys.allocate(dek);
+        Arrays.fill(dek, (byte) 0); // the slab slot is the only copy
+        return new Session(IdUtil.randomUUID(), handle, requestId, wrap.getWrapDekId(), wrap.getResourceId(),
+                wrap.getBoundAuthorizationIdSha256(), Integer.parseInt(wrap.getUsageConstraints().getOrDefault("maxCalls", "1")),
+                wrap.getValidTo(), usageCount);
+    }
+
+    /**
+     * Turns on wrap prefetch: sessions used within recencyMillis are renewed renewAheadMillis
+     * before their wrap expires. Needs the KMS issuer (or someone calling tryIssuePendingWraps)
+     * and audit receipts to keep coming; renewAheadMillis should cover that round trip.
+     */
+    public void enablePrefetch(long renewAheadMillis, long recencyMillis) {
+        this.recencyMillis = recencyMillis;
+        this.renewAheadMillis = renewAheadMillis;
+        for (Session s : sessions.values()) {
+            if (s.active.get()) scheduleRenewal(s);
+        }
+    }
+
+    public void disablePrefetch() {
+        renewAheadMillis = 0;
+        lastAccess.clear();
+    }
+
+    private void scheduleRenewal(Session s) {
+        long ahead = renewAheadMillis;
+        if (ahead > 0) renewals.schedule(s, s.validTo - ahead);
+    }
+
+    /**
+     * Runs the renewal checks that are due: asks KMS to renew sessions still in use, and swaps in
+     * the renewed ones whose wrap has been signed. Called by the sweeper; returns the swaps made.
+     */
+    public int prefetch(long now) {
+        if (renewAheadMillis <= 0) return 0;
+        int[] swapped = {0};
+        renewals.advance(now, s -> {
+            if (!s.active.get() || sessions.get(s.requestId) != s || s.validTo <= now) {
+                return; // expired, revoked or already replaced
+            }
+            if (!s.renewing) {
+                if (!inUse(s, now)) {
+                    // quiet for now; look again later, it may pick up before validTo
+                    long next = Math.min(now + recencyMillis, s.validTo - RENEWAL_POLL_MILLIS);
+                    if (next > now) renewals.schedule(s, next);
+                    return;
+                }
+                if (!kms.requestRenewal(s.requestId, teeId)) {
+                    renewalsRefused.incrementAndGet();
+                    return; // runs out at validTo like any other wrap
+                }
+                renewalsRequested.incrementAndGet();
+                s.renewing = true;
+            }
+            WrapDek wrap = kms.fetchWrapForTee(s.requestId);
+            if (wrap == null) {
+                return; // revoked; the revocation takes the session too
+            }
+            if (!wrap.getWrapDekId().equals(s.wrapId) && wrap.getKmsSignature() != null) {
+                if (swap(s, wrap)) swapped[0]++;
+            } else if (now + RENEWAL_POLL_MILLIS < s.validTo) {
+                renewals.schedule(s, now + RENEWAL_POLL_MILLIS); // not issued yet
+            }
+        });
+        return swapped[0];
+    }
+
+    // its resource and the session itself were used recently, and it has calls left
+    private boolean inUse(Session s, long now) {
+        Long last = lastAccess.get(s.resourceId);
+        return last != null && last >= now - recencyMillis && s.lastUsed >= now - recencyMillis
+                && s.usageCount.get() < s.maxCalls;
+    }
+
+    // installs the renewed wrap's session in place of the old one; uses in flight move over (see simulateUse)
+    private boolean swap(Session old, WrapDek wrap) {
+        unwraps.incrementAndGet();
+        Session s = open(old.requestId, wrap, old.usageCount);
+        if (s == null) {
+            return false;
+        }
+        s.lastUsed = old.lastUsed;
+        if (!sessions.replace(old.requestId, old, s)) {
+            keys.free(s.keyHandle); // replaced or removed meanwhile
+            return false;
+        }
+        index(s);
+        expiries.schedule(s, expiryOf(s));
+        if (old.deactivate(keys)) unindex(old); // leaves the expiry wheel at its validTo
+        if (wrap.isRevoked()) {
+            if (s.deactivate(keys)) retire(s);
+            System.out.println("[TEE] 续期 wrap 在切换期间被撤销，requestId=" + old.requestId);
+            return false;
+        }
+        scheduleRenewal(s);
+        swaps.incrementAndGet();
+        System.out.println("[TEE] 已切换到续期会话 sessionId=" + s.sessionId + "，requestId=" + s.requestId);
+        return true;
+    }
+
+    public long getRenewalRequestCount() {
+        return renewalsRequested.get();
+    }
+
+    public long getRenewalRefusedCount() {
+        return renewalsRefused.get();
+    }
+
+    public long getSwapCount() {
+        return swaps.get();
+    }
+
+    // KMS fetch + unwrap attempts so far
+    public long getUnwrapCount() {
+        return unwraps.get();
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    public int getLiveKeyCount() {
+        return keys.liveCount();
+    }
+
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * Zero-fills the DEK of every session past its wrap validity or idle timeout, and drops idle
+     * sessions whose wrap has expired; returns how many DEKs were destroyed.
+     */
+    public int sweepExpired(long now) {
+        int[] destroyed = {0};
+        expiries.advance(now, s -> {
+            if (!s.active.get()) {
+                // idle (or revoked) session waiting for its wrap to run out
+                if (s.validTo <= now) sessions.remove(s.requestId, s);
+                else expiries.schedule(s, s.validTo);
+                return;
+            }
+            long due = expiryOf(s);
+            if (due > now) {
+                expiries.schedule(s, due); // used since it was scheduled
+            } else if (expire(s, now)) {
+                destroyed[0]++;
+            }
+        });
+        if (destroyed[0] > 0) {
+            System.out.println("[TEE] 会话到期，已销毁 " + destroyed[0] + " 个 DEK，剩余会话 " + sessions.size());
+        }
+        return destroyed[0];
+    }
+
+    public synchronized void startSweeper(long intervalMillis) {
+        if (sweeper != null) return;
+        sweeper = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    Thread.sleep(intervalMillis);
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                long now = System.currentTimeMillis();
+                sweepExpired(now);
+                prefetch(now);
+            }
+        }, "tee-session-sweeper");
+        sweeper.setDaemon(true);
+        sweeper.start();
+    }
+
+    public synchronized void stopSweeper() {
+        if (sweeper != null) {
+            sweeper.interrupt();
+            sweeper = null;
+        }
+    }
+
+    public UsageAggregator getUsageAggregator() {
+        return usage;
+    }
+
+    // batches usage evidence, with the aggregator's own sealer thread so nothing waits on a later use
+    public void enableUsageAggregation(int maxRecords, long maxDelayMillis) {
+        UsageAggregator u = new UsageAggregator(audit, teeId, maxRecords, maxDelayMillis);
+        setUsageAggregator(u);
+        u.start();
+    }
+
+    /**
+     * Replaces the usage buffer (the old one is stopped, which seals what it holds); null submits
+     * one evidence per use. The caller starts the new aggregator's sealer, or has a TeeFleet's
+     * maintenance seal it; otherwise a batch is only sealed when a later use fills or ages it.
+     */
+    public void setUsageAggregator(UsageAggregator aggregator) {
+        UsageAggregator old = usage;
+        usage = aggregator;
+        if (old != null && old != aggregator) {
+            old.stop();
+        }
+    }
+
+    // seals buffered usage records now; returns how many went out
+    public int flushUsage() {
+        UsageAggregator u = usage;
+        return u == null ? 0 : u.flush();
+    }
+
+    private long expiryOf(Session s) {
+        return Math.min(s.validTo, s.lastUsed + idleTimeoutMillis);
+    }
+
+    // an expired wrap ends the session; an idle one keeps its call count until validTo
+    private boolean expire(Session s, long now) {
+        if (!s.deactivate(keys)) return false;
+        expiredCount.incrementAndGet();
+        if (s.validTo <= now) {
+            retire(s);
+        } else {
+            unindex(s);
+            expiries.schedule(s, s.validTo);
+        }
         return true;
     }
 
-    // simulate usage: decrypt resource partially and submit usage evidence
-    public void simulateUse(String requestId, String requesterDid) {
+    // simulate usage: decrypt resource partially and record usage evidence
+    // returns whether the use went ahead (false: no valid wrap, quota used up or revoked)
+    public boolean simulateUse(String requestId, String requesterDid) {
         Session s = sessions.get(requestId);
-        if (s == null || !s.active) {
+        long now = System.currentTimeMillis();
+        if (s != null && s.active.get() && expiryOf(s) <= now) {
+            expire(s, now); // the sweeper has not got to it yet
+        }
+        if (s == null || !s.active.get()) {
 // try accept wrap first
-            boolean ok = acceptWrapAndUnwrap(requestId);
-            if (!ok) {
+            s = unwrap(requestId);
+            if (s == null) {
                 System.out.println("[TEE] 无法访问资源，requestId=" + requestId);
-                return;
+                return false;
             }
-            s = sessions.get(requestId);
         }
-        if (s.usageCount >= s.maxCalls) {
+        Resource r = resourceStore.getResource(s.resourceId);
+        if (r == null) {
+            System.out.println("[TEE] 资源不存在: " + s.resourceId + "，requestId=" + requestId);
+            return false;
+        }
+        int call = s.tryAcquire();
+        if (call < 0) {
             System.out.println("[TEE] 使用次数已达上限，requestId=" + requestId);
-            return;
+            return false;
         }
-        if (!s.active) {
-            System.out.println("[TEE] 会话已失效，requestId=" + requestId);
-            return;
+        if (!s.active.get()) {
+            // swapped for its renewal meanwhile: the call was counted on the shared counter, carry on there
+            Session renewed = sessions.get(requestId);
+            if (renewed == null || renewed.usageCount != s.usageCount || !renewed.active.get()) {
+                System.out.println("[TEE] 会话已失效，requestId=" + requestId);
+                return false;
+            }
+            s = renewed;
+        }
+        s.lastUsed = now;
+        if (renewAheadMillis > 0) lastAccess.put(s.resourceId, now);
+        UsageAggregator u = usage;
+        Evidence ev = null;
+        if (u == null) {
+            // generate signed usage evidence (simulated); the use only goes ahead once audit has it
+            ev = new Evidence();
+            ev.setEvidenceId(IdUtil.randomUUID());
+            ev.setRequestId(requestId);
+            ev.setRequesterDid(requesterDid);
+            ev.setAttestationSummaryHash(USAGE_ATTESTATION_HASH);
+            ev.setDecisionResult("TEE_USAGE_OK");
+            ev.setTimestamp(System.currentTimeMillis());
+            ev.setTeeSignature("tee-sig-simulated");
+            if (!audit.trySubmitEvidence(ev)) {
+                // the call stays counted: an unaudited attempt must not hand back quota
+                System.out.println("[TEE] 审计服务未接收使用凭证（队列已满），本次使用取消，requestId=" + requestId);
+                return false;
+            }
         }
 // simulate decrypt & compute outputHash
-        Resource r = resourceStore.getResource("resource-001");
         byte[] plain = r.getCipher(); // in real TEE would decrypt with dek
-        String outputHash = CryptoUtil.sha256Hex(new String(plain) + ":" + s.usageCount);
-
-// generate signed usage evidence (simulated)
-        Evidence ev = new Evidence();
-        ev.setEvidenceId(IdUtil.randomUUID());
-        ev.setRequestId(requestId);
-        ev.setRequesterDid(requesterDid);
-        ev.setAttestationSummaryHash(CryptoUtil.sha256Hex("tee-attestation-sim"));
-        ev.setDecisionResult("TEE_USAGE_OK");
-        ev.setTimestamp(System.currentTimeMillis());
-        ev.setTeeSignature("tee-sig-simulated");
-        audit.submitEvidence(ev);
+        String outputHash = CryptoUtil.sha256Hex(new String(plain) + ":" + (call - 1));
 
-        s.usageCount++;
-        System.out.println("[TEE] 已执行第 " + s.usageCount + " 次使用，outputHash=" + outputHash + "，evidenceId=" + ev.getEvidenceId());
+        if (u != null) {
+// buffered locally; sealed and signed once per batch
+            u.add(new UsageRecord(requestId, requesterDid, call, outputHash, now));
+            System.out.println("[TEE] 已执行第 " + call + " 次使用，outputHash=" + outputHash);
+            return true;
+        }
+        System.out.println("[TEE] 已执行第 " + call + " 次使用，outputHash=" + outputHash + "，evidenceId=" + ev.getEvidenceId());
+        return true;
     }
 
     // simulate receiving revoke command from KMS
     public void onRevokeWrap(String wrapId) {
-// find any session associated and zeroize DEK
-        for (Map.Entry<String, Session> ent : sessions.entrySet()) {
-            Session s = ent.getValue();
-            s.active = false;
-            s.dek = null;
-            System.out.println("[TEE] 会话 " + s.sessionId + " 已被撤销并销毁 DEK (requestId=" + s.requestId + ")");
+        onRevokeWraps(Collections.singleton(wrapId));
+    }
+
+    // touches only the sessions bound to the revoked wraps; one evidence batch per call
+    public int onRevokeWraps(Collection<String> wrapIds) {
+        List<Session> hit = new ArrayList<>();
+        for (String wrapId : wrapIds) {
+            Session s = byWrap.get(wrapId);
+            if (s != null) hit.add(s);
+        }
+        return revokeSessions(hit);
+    }
+
+    // direct path for a revoked authorization: every session unwrapped from a wrap bound to it
+    public int onRevokeAuthorization(String authorizationId) {
+        Set<Session> bound = byAuthorization.get(CryptoUtil.sha256Hex(authorizationId));
+        return bound == null ? 0 : revokeSessions(new ArrayList<>(bound));
+    }
+
+    private int revokeSessions(List<Session> candidates) {
+        List<Evidence> acks = new ArrayList<>(candidates.size());
+        long now = System.currentTimeMillis();
+        for (Session s : candidates) {
+            if (!s.deactivate(keys)) {
+                continue; // already revoked or expired
+            }
+            retire(s);
 // report anomaly evidence
             Evidence ev = new Evidence();
             ev.setEvidenceId(IdUtil.randomUUID());
             ev.setRequestId(s.requestId);
             ev.setRequesterDid("unknown");
-            ev.setAttestationSummaryHash(CryptoUtil.sha256Hex("tee-revoke-evidence"));
+            ev.setAttestationSummaryHash(REVOKE_ATTESTATION_HASH);
             ev.setDecisionResult("TEE_REVOKE_ACK");
-            ev.setTimestamp(System.currentTimeMillis());
+            ev.setTimestamp(now);
             ev.setTeeSignature("tee-sig-revoke");
-            audit.submitEvidence(ev);
+            acks.add(ev);
+        }
+        if (!acks.isEmpty()) {
+// zeroized DEKs reported to audit in one batch
+            int reported;
+            try {
+                reported = audit.submitEvidenceBatch(acks);
+            } catch (IllegalStateException ex) {
+                reported = 0; // queue full under REJECT; the DEKs are gone either way
+            }
+            System.out.println("[TEE] 已撤销 " + acks.size() + " 个会话并销毁 DEK"
+                    + (acks.size() == 1 ? " (requestId=" + acks.get(0).getRequestId() + ")" : "")
+                    + (reported < acks.size() ? "，审计服务未接收撤销凭证" : ""));
+        }
+        return acks.size();
+    }
+
+    private void index(Session s) {
+        byWrap.put(s.wrapId, s);
+        if (s.authorizationSha != null) {
+            byAuthorization.computeIfAbsent(s.authorizationSha, k -> ConcurrentHashMap.newKeySet()).add(s);
+        }
+    }
+
+    // out of the table and both indexes
+    private void retire(Session s) {
+        unindex(s);
+        sessions.remove(s.requestId, s);
+    }
+
+    private void unindex(Session s) {
+        byWrap.remove(s.wrapId, s);
+        if (s.authorizationSha != null) {
+            byAuthorization.computeIfPresent(s.authorizationSha, (k, set) -> {
+                set.remove(s);
+                return set.isEmpty() ? null : set;
+            });
         }
     }
-}
\ No newline at end of file
+}
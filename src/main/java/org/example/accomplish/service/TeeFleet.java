@@ -0,0 +1,220 @@
+package org.example.accomplish.service;
+
+import org.example.accomplish.model.WrapDek;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Many simulated TEEs in one process, for fleet-scale runs. DIDs are routed to TEEs by
+ * consistent hashing (VNODES points per TEE on a 64-bit ring), so a DID always lands on the same
+ * TEE and resizing the fleet would move only about 1/n of them; pin() overrides the ring for one
+ * DID. Work runs as short tasks on a shared pool of worker threads rather than a thread per TEE,
+ * and a single maintenance task sweeps expired sessions, runs wrap prefetch and seals due usage
+ * batches fleet-wide.
+ * A revocation is handed only to the recipient TEE of each revoked wrap.
+ */
+public class TeeFleet {
+    public static final String ID_PREFIX = "tee:fleet:";
+    private static final int VNODES = 128;
+    private static final int KEY_CHUNK_BITS = 6; // 64 DEK slots per off-heap chunk
+    private static final int WHEEL_SIZE = 64; // 6.4 s per revolution at 100 ms ticks
+
+    private final AuditService audit;
+    private final KmsService kms;
+    private final TeeEnvironment[] tees;
+    private final Map<String, Integer> indexById = new HashMap<>();
+    private final long[] ringPoints; // sorted
+    private final int[] ringOwners; // tee index per point
+    private final Map<String, Integer> pinned = new ConcurrentHashMap<>();
+    private final ExecutorService workers;
+    private Thread maintenance;
+
+    public TeeFleet(int size, int workerThreads, AuditService audit, KmsService kms, ResourceStore resourceStore) {
+        this.audit = audit;
+        this.kms = kms;
+        this.tees = new TeeEnvironment[size];
+        long[][] points = new long[size * VNODES][];
+        for (int i = 0; i < size; i++) {
+            String id = ID_PREFIX + i;
+            tees[i] = new TeeEnvironment(id, audit, kms, resourceStore, KEY_CHUNK_BITS, WHEEL_SIZE);
+            indexById.put(id, i);
+            long h = hash(id);
+            for (int v = 0; v < VNODES; v++) {
+                points[i * VNODES + v] = new long[]{mix(h + v * 0x9e3779b97f4a7c15L), i};
+            }
+        }
+        Arrays.sort(points, (a, b) -> Long.compare(a[0], b[0]));
+        ringPoints = new long[points.length];
+        ringOwners = new int[points.length];
+        for (int p = 0; p < points.length; p++) {
+            ringPoints[p] = points[p][0];
+            ringOwners[p] = (int) points[p][1];
+        }
+        workers = Executors.newFixedThreadPool(workerThreads, r -> {
+            Thread t = new Thread(r, "tee-fleet-worker");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public int size() {
+        return tees.length;
+    }
+
+    public TeeEnvironment tee(int index) {
+        return tees[index];
+    }
+
+    // -1 if teeId is not a member
+    public int indexOf(String teeId) {
+        Integer i = indexById.get(teeId);
+        return i == null ? -1 : i;
+    }
+
+    public String teeIdForDid(String did) {
+        return tees[indexForDid(did)].getTeeId();
+    }
+
+    public TeeEnvironment teeForDid(String did) {
+        return tees[indexForDid(did)];
+    }
+
+    public int indexForDid(String did) {
+        Integer p = pinned.get(did);
+        if (p != null) return p;
+        int at = Arrays.binarySearch(ringPoints, mix(hash(did)));
+        if (at < 0) at = -at - 1;
+        return ringOwners[at == ringPoints.length ? 0 : at]; // first point clockwise, wrapping
+    }
+
+    public void pin(String did, String teeId) {
+        int i = indexOf(teeId);
+        if (i < 0) {
+            throw new IllegalArgumentException("not a fleet member: " + teeId);
+        }
+        pinned.put(did, i);
+    }
+
+    // runs task on the shared pool; tasks for one TEE may run concurrently (TeeEnvironment is thread-safe)
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, workers);
+    }
+
+    public CompletableFuture<Boolean> unwrap(String requestId, String did) {
+        TeeEnvironment tee = teeForDid(did);
+        return submit(() -> tee.acceptWrapAndUnwrap(requestId));
+    }
+
+    public CompletableFuture<Boolean> use(String requestId, String did) {
+        TeeEnvironment tee = teeForDid(did);
+        return submit(() -> tee.simulateUse(requestId, did));
+    }
+
+    // groups the wraps by recipient and revokes on those TEEs only; returns sessions revoked
+    public int onRevokeWraps(Collection<String> wrapIds) {
+        Map<Integer, List<String>> byTee = new HashMap<>();
+        for (String wrapId : wrapIds) {
+            WrapDek w = kms.getWrap(wrapId);
+            int i = w == null ? -1 : indexOf(w.getRecipientTeeId());
+            if (i >= 0) byTee.computeIfAbsent(i, k -> new ArrayList<>()).add(wrapId);
+        }
+        int revoked = 0;
+        for (Map.Entry<Integer, List<String>> e : byTee.entrySet()) {
+            revoked += tees[e.getKey()].onRevokeWraps(e.getValue());
+        }
+        return revoked;
+    }
+
+    // one pass over the fleet: expired sessions swept, usage batches past their delay sealed
+    // (in place of a sweeper and a sealer thread per TEE)
+    public void maintain(long now) {
+        for (TeeEnvironment tee : tees) {
+            tee.sweepExpired(now);
+            tee.prefetch(now);
+            UsageAggregator u = tee.getUsageAggregator();
+            if (u != null) u.sealIfDue(now);
+        }
+    }
+
+    public synchronized void startMaintenance(long intervalMillis) {
+        if (maintenance != null) return;
+        maintenance = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    Thread.sleep(intervalMillis);
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                maintain(System.currentTimeMillis());
+            }
+        }, "tee-fleet-maintenance");
+        maintenance.setDaemon(true);
+        maintenance.start();
+    }
+
+    public synchronized void stopMaintenance() {
+        if (maintenance != null) {
+            maintenance.interrupt();
+            maintenance = null;
+        }
+    }
+
+    // see TeeEnvironment.enablePrefetch; maintenance runs the renewal checks
+    public void enablePrefetch(long renewAheadMillis, long recencyMillis) {
+        for (TeeEnvironment tee : tees) tee.enablePrefetch(renewAheadMillis, recencyMillis);
+    }
+
+    // see TeeEnvironment.enableUsageAggregation; maintenance seals the batches, no thread per TEE
+    public void enableUsageAggregation(int maxRecords, long maxDelayMillis) {
+        for (TeeEnvironment tee : tees) {
+            tee.setUsageAggregator(new UsageAggregator(audit, tee.getTeeId(), maxRecords, maxDelayMillis));
+        }
+    }
+
+    public int flushUsage() {
+        int n = 0;
+        for (TeeEnvironment tee : tees) n += tee.flushUsage();
+        return n;
+    }
+
+    public int getSessionCount() {
+        int n = 0;
+        for (TeeEnvironment tee : tees) n += tee.getSessionCount();
+        return n;
+    }
+
+    public long getUnwrapCount() {
+        long n = 0;
+        for (TeeEnvironment tee : tees) n += tee.getUnwrapCount();
+        return n;
+    }
+
+    // stops maintenance and the workers (queued tasks are dropped), then seals what is buffered
+    public void shutdown() {
+        stopMaintenance();
+        workers.shutdownNow();
+        flushUsage();
+    }
+
+    // FNV-1a over the UTF-16 units; mixed before use, so a weak spread here does not matter
+    private static long hash(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    // murmur3 fmix64
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe53b6a99L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
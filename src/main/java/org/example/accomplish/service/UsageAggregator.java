@@ -0,0 +1,147 @@
+package org.example.accomplish.service;
+
+import org.example.accomplish.model.Evidence;
+import org.example.accomplish.model.UsageRecord;
+import org.example.accomplish.util.CryptoUtil;
+import org.example.accomplish.util.IdUtil;
+import org.example.accomplish.util.UsageBatch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TEE-side buffer for usage records. Uses are appended locally and sealed into a UsageBatch once
+ * maxRecords are buffered or the oldest has waited maxDelayMillis (checked on every add, by the
+ * sealer thread, or on flush). Each batch is signed once and reaches AuditService as a single
+ * TEE_USAGE_BATCH evidence carrying its usageRoot and usageCount; AuditService keeps the batch so
+ * any one use can still be proven (see AuditService.proveUsage).
+ */
+public class UsageAggregator {
+    public static final int DEFAULT_MAX_RECORDS = 256;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 1_000;
+    private static final String ATTESTATION_HASH = CryptoUtil.sha256Hex("tee-attestation-sim");
+
+    private final AuditService audit;
+    private final String teeId;
+    private final int maxRecords;
+    private final long maxDelayMillis;
+    private List<UsageRecord> buffer = new ArrayList<>(); // guarded by this
+    private long oldestAt; // guarded by this
+    private final AtomicLong sealedBatches = new AtomicLong();
+    private final AtomicLong sealedRecords = new AtomicLong();
+    private final AtomicLong droppedRecords = new AtomicLong();
+    private Thread sealer;
+
+    public UsageAggregator(AuditService audit, String teeId) {
+        this(audit, teeId, DEFAULT_MAX_RECORDS, DEFAULT_MAX_DELAY_MILLIS);
+    }
+
+    public UsageAggregator(AuditService audit, String teeId, int maxRecords, long maxDelayMillis) {
+        this.audit = audit;
+        this.teeId = teeId;
+        this.maxRecords = maxRecords;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    public void add(UsageRecord r) {
+        List<UsageRecord> due = null;
+        synchronized (this) {
+            if (buffer.isEmpty()) oldestAt = r.getTimestamp();
+            buffer.add(r);
+            if (buffer.size() >= maxRecords || r.getTimestamp() - oldestAt >= maxDelayMillis) due = take();
+        }
+        if (due != null) seal(due);
+    }
+
+    // seals whatever is buffered; returns how many records went out
+    public int flush() {
+        List<UsageRecord> due;
+        synchronized (this) {
+            due = take();
+        }
+        return due == null ? 0 : seal(due);
+    }
+
+    // seals the buffer if its oldest record has waited maxDelayMillis
+    public int sealIfDue(long now) {
+        List<UsageRecord> due = null;
+        synchronized (this) {
+            if (!buffer.isEmpty() && now - oldestAt >= maxDelayMillis) due = take();
+        }
+        return due == null ? 0 : seal(due);
+    }
+
+    public synchronized int pending() {
+        return buffer.size();
+    }
+
+    public long getSealedBatchCount() { return sealedBatches.get(); }
+    public long getSealedRecordCount() { return sealedRecords.get(); }
+    // records of batches the audit service shed
+    public long getDroppedRecordCount() { return droppedRecords.get(); }
+
+    public synchronized void start() {
+        if (sealer != null) return;
+        long tick = Math.max(1, maxDelayMillis / 2);
+        sealer = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    Thread.sleep(tick);
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                sealIfDue(System.currentTimeMillis());
+            }
+        }, "tee-usage-sealer");
+        sealer.setDaemon(true);
+        sealer.start();
+    }
+
+    // stops the sealer and seals what is still buffered, so no use is left unaudited
+    public void stop() {
+        synchronized (this) {
+            if (sealer != null) {
+                sealer.interrupt();
+                sealer = null;
+            }
+        }
+        flush();
+    }
+
+    // caller holds the lock
+    private List<UsageRecord> take() {
+        if (buffer.isEmpty()) return null;
+        List<UsageRecord> out = buffer;
+        buffer = new ArrayList<>(Math.min(out.size(), maxRecords));
+        return out;
+    }
+
+    // outside the lock: uses keep buffering while a batch is hashed and submitted
+    private int seal(List<UsageRecord> records) {
+        UsageBatch batch = new UsageBatch(records);
+        Evidence ev = new Evidence();
+        ev.setEvidenceId(IdUtil.randomUUID());
+        ev.setAttestationSummaryHash(ATTESTATION_HASH);
+        ev.setDecisionResult("TEE_USAGE_BATCH");
+        ev.setTimestamp(System.currentTimeMillis());
+        ev.setTeeSignature("tee-sig-simulated:" + CryptoUtil.sha256Hex(teeId + ":" + batch.getRootHex())); // one signature per batch
+        ev.setUsageRoot(batch.getRootHex());
+        ev.setUsageCount(batch.size());
+        boolean accepted;
+        try {
+            accepted = audit.submitUsageBatch(ev, batch);
+        } catch (IllegalStateException ex) {
+            accepted = false; // queue full under REJECT
+        }
+        if (!accepted) {
+            droppedRecords.addAndGet(batch.size());
+            System.out.println("[TEE] 使用记录批次被审计服务丢弃: " + batch.size() + " 条");
+            return 0;
+        }
+        sealedBatches.incrementAndGet();
+        sealedRecords.addAndGet(batch.size());
+        System.out.println("[TEE] 已封存使用记录批次: " + batch.size() + " 条，usageRoot=" + batch.getRootHex() + "，evidenceId=" + ev.getEvidenceId());
+        return batch.size();
+    }
+}
@@ -0,0 +1,191 @@
+package org.example.accomplish.storage;
+
+import org.example.accomplish.model.Evidence;
+import org.example.accomplish.util.DidInterner;
+import org.example.accomplish.util.IntObjectMap;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Secondary indexes over an EvidenceLog, maintained incrementally on append:
+ * - a sparse time index: one entry per block of BLOCK_SIZE records with the block's min/max
+ *   timestamp and first position, so a range query only reads blocks that can overlap it;
+ * - hash indexes requestId -> positions and requesterDid -> (position, timestamp), so a DID plus
+ *   time range query is answered from the postings without touching the log. The DID index is
+ *   keyed by DidInterner id in an IntObjectMap. A shared interner (the registry's) is only read,
+ *   never written: its ids stay those of registered DIDs, and evidence of a DID it does not know
+ *   is filed by the DID string instead.
+ * Opening an index over an existing log rebuilds it with one sequential scan.
+ */
+public class EvidenceIndex {
+    static final int BLOCK_SIZE = 256;
+
+    private final EvidenceLog log;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // sparse time index, one slot per block
+    private long[] blockFirstPos = new long[64];
+    private long[] blockMinTs = new long[64];
+    private long[] blockMaxTs = new long[64];
+    private int[] blockCount = new int[64];
+    private int blocks = 0;
+
+    private final Map<String, Postings> byRequest = new HashMap<>();
+    private final DidInterner dids;
+    private final boolean sharedDids; // dids belongs to someone else: idOf only, never intern
+    private final IntObjectMap<Postings> byDid = new IntObjectMap<>();
+    private final Map<String, Postings> byUnknownDid = new HashMap<>(); // shared interner only
+
+    static class Postings {
+        long[] positions = new long[2];
+        long[] times = new long[2];
+        int n = 0;
+
+        void add(long position, long time) {
+            if (n == positions.length) {
+                positions = Arrays.copyOf(positions, n * 2);
+                times = Arrays.copyOf(times, n * 2);
+            }
+            positions[n] = position;
+            times[n] = time;
+            n++;
+        }
+    }
+
+    public EvidenceIndex(EvidenceLog log) {
+        this(log, new DidInterner(), false);
+    }
+
+    // dids is shared (e.g. DidRegistry.getInterner()) and only read
+    public EvidenceIndex(EvidenceLog log, DidInterner dids) {
+        this(log, dids, true);
+    }
+
+    private EvidenceIndex(EvidenceLog log, DidInterner dids, boolean sharedDids) {
+        this.log = log;
+        this.dids = dids;
+        this.sharedDids = sharedDids;
+        log.scan(0, (position, e) -> {
+            add(position, e);
+            return true;
+        });
+    }
+
+    public void add(long position, Evidence e) {
+        lock.writeLock().lock();
+        try {
+            long ts = e.getTimestamp();
+            if (blocks == 0 || blockCount[blocks - 1] == BLOCK_SIZE) {
+                if (blocks == blockFirstPos.length) growBlocks();
+                blockFirstPos[blocks] = position;
+                blockMinTs[blocks] = ts;
+                blockMaxTs[blocks] = ts;
+                blocks++;
+            }
+            int b = blocks - 1;
+            blockCount[b]++;
+            blockMinTs[b] = Math.min(blockMinTs[b], ts);
+            blockMaxTs[b] = Math.max(blockMaxTs[b], ts);
+            if (e.getRequestId() != null) {
+                byRequest.computeIfAbsent(e.getRequestId(), k -> new Postings()).add(position, ts);
+            }
+            String did = e.getRequesterDid();
+            if (did != null) {
+                int id = sharedDids ? dids.idOf(did) : dids.intern(did);
+                Postings p = id >= 0 ? byDid.computeIfAbsent(id, k -> new Postings()) : byUnknownDid.computeIfAbsent(did, k -> new Postings());
+                p.add(position, ts);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // decision trail for a request, in append order
+    public List<Long> positionsByRequestId(String requestId) {
+        lock.readLock().lock();
+        try {
+            Postings p = byRequest.get(requestId);
+            return p == null ? Collections.<Long>emptyList() : select(p, Long.MIN_VALUE, Long.MAX_VALUE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Long> positionsByDid(String requesterDid, long fromTs, long toTs) {
+        lock.readLock().lock();
+        try {
+            int id = dids.idOf(requesterDid);
+            Postings p = id < 0 ? null : byDid.get(id);
+            // a DID registered after some of its evidence was filed has postings in both maps
+            Postings early = byUnknownDid.isEmpty() ? null : byUnknownDid.get(requesterDid);
+            if (early == null) {
+                return p == null ? Collections.<Long>emptyList() : select(p, fromTs, toTs);
+            }
+            List<Long> out = select(early, fromTs, toTs);
+            if (p != null) {
+                out.addAll(select(p, fromTs, toTs));
+                Collections.sort(out);
+            }
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // reads only blocks whose [min, max] overlaps the range
+    public List<Long> positionsByTimeRange(long fromTs, long toTs) {
+        long[] firstPos;
+        int[] counts;
+        int n = 0;
+        lock.readLock().lock();
+        try {
+            firstPos = new long[blocks];
+            counts = new int[blocks];
+            for (int b = 0; b < blocks; b++) {
+                if (blockMaxTs[b] >= fromTs && blockMinTs[b] <= toTs) {
+                    firstPos[n] = blockFirstPos[b];
+                    counts[n] = blockCount[b];
+                    n++;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Long> out = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            final int[] left = {counts[i]};
+            log.scan(firstPos[i], (position, e) -> {
+                if (e.getTimestamp() >= fromTs && e.getTimestamp() <= toTs) out.add(position);
+                return --left[0] > 0;
+            });
+        }
+        return out;
+    }
+
+    public int blockCount() {
+        lock.readLock().lock();
+        try {
+            return blocks;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static List<Long> select(Postings p, long fromTs, long toTs) {
+        List<Long> out = new ArrayList<>();
+        for (int i = 0; i < p.n; i++) {
+            if (p.times[i] >= fromTs && p.times[i] <= toTs) out.add(p.positions[i]);
+        }
+        return out;
+    }
+
+    private void growBlocks() {
+        int cap = blockFirstPos.length * 2;
+        blockFirstPos = Arrays.copyOf(blockFirstPos, cap);
+        blockMinTs = Arrays.copyOf(blockMinTs, cap);
+        blockMaxTs = Arrays.copyOf(blockMaxTs, cap);
+        blockCount = Arrays.copyOf(blockCount, cap);
+    }
+}
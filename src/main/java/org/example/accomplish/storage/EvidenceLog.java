@@ -0,0 +1,257 @@
+package org.example.accomplish.storage;
+
+import org.example.accomplish.model.Evidence;
+import org.example.accomplish.util.BinaryCodec;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durable append-only evidence log made of fixed-size memory-mapped segment files.
+ * A position is (segmentIndex << 32 | offset); segments roll over when the active one is full,
+ * and opening the log recovers each segment, truncating a torn tail left by a crash.
+ * Payloads are the canonical BinaryCodec form of the evidence.
+ * With background compaction on, each sealed segment is rewritten as a compressed SealedSegment
+ * (.cseg) and swapped in; positions stay valid, and the raw .seg file is then deleted. A
+ * compressed copy left half-written (.cseg.tmp) by a crash or a failed compaction is deleted on
+ * open; its raw segment is still there.
+ */
+public class EvidenceLog {
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final String SUFFIX = ".seg";
+    private static final String SEALED_SUFFIX = ".cseg";
+    private static final String TMP_SUFFIX = ".tmp";
+
+    public interface Visitor {
+        // return false to stop the scan
+        boolean visit(long position, Evidence evidence);
+    }
+
+    private final File dir;
+    private final int segmentSize;
+    private final NavigableMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private volatile LogSegment active;
+    private final Object compactionLock = new Object();
+    private ExecutorService compactor;
+    private final ByteBuffer scratch = ByteBuffer.allocate(64 * 1024); // writer side only
+    private long recordCount = 0;
+
+    public EvidenceLog(File dir) throws IOException {
+        this(dir, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public EvidenceLog(File dir, int segmentSize) throws IOException {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("cannot create evidence log dir " + dir);
+        }
+        File[] partial = dir.listFiles((d, name) -> name.endsWith(SEALED_SUFFIX + TMP_SUFFIX));
+        if (partial != null) {
+            for (File f : partial) {
+                if (!f.delete()) throw new IOException("cannot remove partial compressed segment " + f);
+            }
+        }
+        File[] sealed = dir.listFiles((d, name) -> name.endsWith(SEALED_SUFFIX));
+        if (sealed != null) {
+            for (File f : sealed) {
+                long idx = indexOf(f, SEALED_SUFFIX);
+                segments.put(idx, new SealedSegment(f, idx));
+            }
+        }
+        File[] files = dir.listFiles((d, name) -> name.endsWith(SUFFIX));
+        if (files != null) {
+            for (File f : files) {
+                long idx = indexOf(f, SUFFIX);
+                if (segments.containsKey(idx)) {
+                    // crashed after the compressed copy was in place but before the raw one was removed
+                    if (!f.delete()) throw new IOException("cannot remove compacted segment " + f);
+                    continue;
+                }
+                LogSegment seg = new LogSegment(f, idx, segmentSize);
+                seg.recover();
+                segments.put(idx, seg);
+            }
+        }
+        for (Segment seg : segments.values()) {
+            recordCount += seg.recordCount();
+        }
+        Segment last = segments.isEmpty() ? null : segments.lastEntry().getValue();
+        active = last instanceof LogSegment ? (LogSegment) last : roll(last == null ? 0 : last.index() + 1);
+        System.out.println("[审计日志] 已打开 " + dir + "，段数=" + segments.size() + " 记录数=" + recordCount);
+    }
+
+    public File getDir() {
+        return dir;
+    }
+
+    public static long segmentOf(long position) { return position >>> 32; }
+    public static int offsetOf(long position) { return (int) position; }
+
+    public static String toPointer(long position) {
+        return "log:" + segmentOf(position) + ":" + offsetOf(position);
+    }
+
+    public static long parsePointer(String pointer) {
+        String[] parts = pointer.split(":");
+        return (Long.parseLong(parts[1]) << 32) | Integer.parseInt(parts[2]);
+    }
+
+    public synchronized long append(Evidence e) throws IOException {
+        scratch.clear();
+        BinaryCodec.encodeEvidence(e, scratch);
+        scratch.flip();
+        int offset = active.append(scratch);
+        if (offset < 0) {
+            if (active.isEmpty()) {
+                throw new IOException("evidence record larger than segment size " + segmentSize);
+            }
+            active.force(); // sealed segments are always fully on disk
+            active = roll(active.index + 1);
+            if (compactor != null) compactor.execute(this::compactQuietly);
+            scratch.rewind();
+            offset = active.append(scratch);
+        }
+        recordCount++;
+        return (active.index << 32) | offset;
+    }
+
+    public Evidence read(long position) {
+        Segment seg = segments.get(segmentOf(position));
+        if (seg == null) {
+            throw new IllegalArgumentException("no segment for position " + toPointer(position));
+        }
+        return seg.readEvidence(offsetOf(position));
+    }
+
+    // sequential scan of records at or after fromPosition, in append order
+    public void scan(long fromPosition, Visitor visitor) {
+        for (Segment seg : segments.tailMap(segmentOf(fromPosition), true).values()) {
+            int offset = seg.index() == segmentOf(fromPosition) ? offsetOf(fromPosition) : 0;
+            if (!seg.scan(offset, visitor)) {
+                return;
+            }
+        }
+    }
+
+    // flushes the active segment's dirty pages; call before anchoring what was appended
+    public void force() {
+        active.force();
+    }
+
+    public synchronized long recordCount() {
+        return recordCount;
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    public int compressedSegmentCount() {
+        int n = 0;
+        for (Segment seg : segments.values()) {
+            if (seg instanceof SealedSegment) n++;
+        }
+        return n;
+    }
+
+    // bytes holding records across all segments, compressed where sealed
+    public long storedBytes() {
+        long n = 0;
+        for (Segment seg : segments.values()) n += seg.storedBytes();
+        return n;
+    }
+
+    public double bytesPerEvidence() {
+        long records = recordCount();
+        return records == 0 ? 0 : storedBytes() / (double) records;
+    }
+
+    // compresses every sealed raw segment on a background thread, now and after each roll
+    public synchronized void startCompaction() {
+        if (compactor != null) return;
+        compactor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "evidence-log-compactor");
+            t.setDaemon(true);
+            return t;
+        });
+        compactor.execute(this::compactQuietly);
+    }
+
+    /**
+     * Compresses every sealed (non-active) raw segment in the calling thread and swaps it in.
+     * Returns the number of segments compressed.
+     */
+    public int compactSealed() throws IOException {
+        synchronized (compactionLock) {
+            int n = 0;
+            for (Segment seg : segments.values()) {
+                if (!(seg instanceof LogSegment) || seg == active) continue;
+                LogSegment raw = (LogSegment) seg;
+                File tmp = new File(dir, String.format("%020d%s%s", raw.index, SEALED_SUFFIX, TMP_SUFFIX));
+                File dst = new File(dir, String.format("%020d%s", raw.index, SEALED_SUFFIX));
+                try {
+                    SealedSegment.write(raw, tmp);
+                } catch (IOException | RuntimeException ex) {
+                    tmp.delete(); // the raw segment stays in place
+                    throw ex;
+                }
+                if (!tmp.renameTo(dst)) {
+                    throw new IOException("cannot install compressed segment " + dst);
+                }
+                SealedSegment sealed = new SealedSegment(dst, raw.index);
+                segments.put(raw.index, sealed);
+                // readers still holding the raw segment keep a valid mapping until they drop it
+                raw.close();
+                if (!raw.file.delete()) {
+                    System.out.println("[审计日志] 无法删除已压缩的原始段 " + raw.file.getName());
+                }
+                System.out.printf("[审计日志] 段 %s 已压缩: %d -> %d 字节, %d 条%n",
+                        dst.getName(), sealed.rawBytes(), sealed.storedBytes(), sealed.recordCount());
+                n++;
+            }
+            return n;
+        }
+    }
+
+    private void compactQuietly() {
+        try {
+            compactSealed();
+        } catch (IOException | RuntimeException ex) {
+            System.out.println("[审计日志] 段压缩失败，保留原始段: " + ex);
+        }
+    }
+
+    public synchronized void close() throws IOException {
+        if (compactor != null) {
+            compactor.shutdown();
+            try {
+                compactor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            compactor = null;
+        }
+        active.force();
+        for (Segment seg : segments.values()) {
+            seg.close();
+        }
+    }
+
+    private static long indexOf(File f, String suffix) {
+        return Long.parseLong(f.getName().substring(0, f.getName().length() - suffix.length()));
+    }
+
+    private LogSegment roll(long index) throws IOException {
+        File f = new File(dir, String.format("%020d%s", index, SUFFIX));
+        LogSegment seg = new LogSegment(f, index, segmentSize);
+        segments.put(index, seg);
+        return seg;
+    }
+}
@@ -0,0 +1,202 @@
+package org.example.accomplish.storage;
+
+import org.example.accomplish.util.CryptoUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.function.LongPredicate;
+
+/**
+ * Open-addressing table of (16-byte key, long value) slots outside the Java heap, for lookups
+ * that must keep working however many entries pile up. The file form is an 8-byte entry count
+ * followed by 24-byte slots (key, value + 1; 0 marks an empty slot), memory-mapped in chunks of
+ * CHUNK_SLOTS so the table is not capped by the 2 GB limit of one mapping; without a file the same
+ * layout lives in direct buffers. The table doubles and rehashes once half full.
+ * Keys are truncated SHA-256 hashes (see key()); a caller that cannot rule out a collision checks
+ * each candidate value in get().
+ */
+public final class IdIndex {
+    public static final int KEY_LEN = 16;
+    private static final int SLOT = 24;
+    private static final int HEADER = 8;
+    private static final int INITIAL_SLOTS = 1024;
+    private static final int CHUNK_BITS = 20; // 24 MiB per mapped chunk
+    private static final int CHUNK_SLOTS = 1 << CHUNK_BITS;
+
+    private final File file; // null: direct buffers, gone with the process
+    private RandomAccessFile raf;
+    private ByteBuffer header;
+    private ByteBuffer[] chunks;
+    private long slots;
+    private long entries;
+
+    private IdIndex(File file, long slotCount, boolean fresh) throws IOException {
+        this.file = file;
+        open(slotCount, fresh);
+        entries = fresh ? 0 : header.getLong(0);
+    }
+
+    // opens (or creates) a persistent index
+    public static IdIndex open(File file) throws IOException {
+        boolean fresh = !file.exists() || file.length() <= HEADER;
+        return new IdIndex(file, fresh ? INITIAL_SLOTS : (file.length() - HEADER) / SLOT, fresh);
+    }
+
+    // a persistent index that starts out empty, whatever the file held before
+    public static IdIndex create(File file) throws IOException {
+        return create(file, INITIAL_SLOTS);
+    }
+
+    private static IdIndex create(File file, long slotCount) throws IOException {
+        if (file.exists() && !file.delete()) {
+            throw new IOException("cannot reset index " + file);
+        }
+        return new IdIndex(file, slotCount, true);
+    }
+
+    public static IdIndex inMemory() {
+        try {
+            return new IdIndex(null, INITIAL_SLOTS, true);
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex); // no file involved
+        }
+    }
+
+    public static byte[] key(String id) {
+        return key(id.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static byte[] key(byte[] id) {
+        byte[] full = CryptoUtil.sha256(id);
+        byte[] k = new byte[KEY_LEN];
+        System.arraycopy(full, 0, k, 0, KEY_LEN);
+        return k;
+    }
+
+    public synchronized void put(byte[] key, long value) throws IOException {
+        if ((entries + 1) * 2 > slots) {
+            grow();
+        }
+        insert(chunks, slots, key, value);
+        entries++;
+        header.putLong(0, entries);
+    }
+
+    /**
+     * First value stored under key that accept takes (candidates in insertion order along the
+     * probe chain), or -1. Pass null to take the first one.
+     */
+    public synchronized long get(byte[] key, LongPredicate accept) {
+        long mask = slots - 1;
+        for (long i = hash(key) & mask; ; i = (i + 1) & mask) {
+            ByteBuffer chunk = chunks[(int) (i >>> CHUNK_BITS)];
+            int at = (int) (i & (CHUNK_SLOTS - 1)) * SLOT;
+            long ref = chunk.getLong(at + KEY_LEN);
+            if (ref == 0) return -1;
+            if (keyEquals(chunk, at, key) && (accept == null || accept.test(ref - 1))) return ref - 1;
+        }
+    }
+
+    public synchronized long size() {
+        return entries;
+    }
+
+    public synchronized void force() {
+        if (file == null) return;
+        ((MappedByteBuffer) header).force();
+        for (ByteBuffer c : chunks) ((MappedByteBuffer) c).force();
+    }
+
+    public synchronized void close() throws IOException {
+        force();
+        if (raf != null) raf.close();
+    }
+
+    private void open(long slotCount, boolean fresh) throws IOException {
+        slots = slotCount;
+        int n = (int) ((slotCount + CHUNK_SLOTS - 1) >>> CHUNK_BITS);
+        ByteBuffer[] cs = new ByteBuffer[n];
+        if (file == null) {
+            header = ByteBuffer.allocateDirect(HEADER);
+            for (int c = 0; c < n; c++) cs[c] = ByteBuffer.allocateDirect(chunkBytes(slotCount, c));
+        } else {
+            raf = new RandomAccessFile(file, "rw");
+            long len = HEADER + slotCount * SLOT;
+            if (raf.length() < len) raf.setLength(len);
+            FileChannel ch = raf.getChannel();
+            header = ch.map(FileChannel.MapMode.READ_WRITE, 0, HEADER);
+            for (int c = 0; c < n; c++) {
+                cs[c] = ch.map(FileChannel.MapMode.READ_WRITE, HEADER + ((long) c << CHUNK_BITS) * SLOT, chunkBytes(slotCount, c));
+            }
+        }
+        chunks = cs;
+        if (fresh) header.putLong(0, 0);
+    }
+
+    private static int chunkBytes(long slotCount, int chunk) {
+        return (int) Math.min(CHUNK_SLOTS, slotCount - ((long) chunk << CHUNK_BITS)) * SLOT;
+    }
+
+    // rebuilds the table at twice the size (through a temp file when persistent), then swaps it in
+    private void grow() throws IOException {
+        long newSlots = slots * 2;
+        ByteBuffer[] old = chunks;
+        long oldSlots = slots;
+        RandomAccessFile oldRaf = raf;
+        IdIndex next = file == null ? new IdIndex(null, newSlots, true) : create(new File(file.getPath() + ".tmp"), newSlots);
+        byte[] k = new byte[KEY_LEN];
+        for (long i = 0; i < oldSlots; i++) {
+            ByteBuffer chunk = old[(int) (i >>> CHUNK_BITS)];
+            int at = (int) (i & (CHUNK_SLOTS - 1)) * SLOT;
+            long ref = chunk.getLong(at + KEY_LEN);
+            if (ref == 0) continue;
+            for (int b = 0; b < KEY_LEN; b++) k[b] = chunk.get(at + b);
+            insert(next.chunks, newSlots, k, ref - 1);
+        }
+        if (file == null) {
+            chunks = next.chunks;
+            slots = newSlots;
+            header.putLong(0, entries);
+            return;
+        }
+        next.header.putLong(0, entries);
+        next.close();
+        oldRaf.close();
+        if (!next.file.renameTo(file)) {
+            throw new IOException("cannot replace index " + file);
+        }
+        open(newSlots, false);
+    }
+
+    private static void insert(ByteBuffer[] table, long slotCount, byte[] key, long value) {
+        long mask = slotCount - 1;
+        for (long i = hash(key) & mask; ; i = (i + 1) & mask) {
+            ByteBuffer chunk = table[(int) (i >>> CHUNK_BITS)];
+            int at = (int) (i & (CHUNK_SLOTS - 1)) * SLOT;
+            if (chunk.getLong(at + KEY_LEN) == 0) {
+                for (int b = 0; b < KEY_LEN; b++) chunk.put(at + b, key[b]);
+                chunk.putLong(at + KEY_LEN, value + 1);
+                return;
+            }
+        }
+    }
+
+    // the low 32 bits are the big-endian first four key bytes, as in receipt indexes written before
+    private static long hash(byte[] k) {
+        long lo = (k[0] & 0xffL) << 24 | (k[1] & 0xff) << 16 | (k[2] & 0xff) << 8 | (k[3] & 0xff);
+        long hi = (k[4] & 0xffL) << 24 | (k[5] & 0xff) << 16 | (k[6] & 0xff) << 8 | (k[7] & 0xff);
+        return hi << 32 | lo;
+    }
+
+    private static boolean keyEquals(ByteBuffer chunk, int at, byte[] k) {
+        for (int b = 0; b < KEY_LEN; b++) {
+            if (chunk.get(at + b) != k[b]) return false;
+        }
+        return true;
+    }
+}
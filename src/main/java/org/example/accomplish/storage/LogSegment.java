@@ -0,0 +1,170 @@
+package org.example.accomplish.storage;
+
+import org.example.accomplish.model.Evidence;
+import org.example.accomplish.util.BinaryCodec;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * One fixed-size, pre-allocated segment file mapped into memory.
+ * Record frame: [int length][int crc32(payload)][payload]; a zero length marks the end of data.
+ */
+class LogSegment implements Segment {
+    static final int HEADER = 8;
+
+    final long index;
+    final File file;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final int capacity;
+    private volatile int writePos; // readers see only records below this offset
+    private volatile int records;
+    private final CRC32 crc = new CRC32(); // writer side only
+
+    LogSegment(File file, long index, int capacity) throws IOException {
+        this.index = index;
+        this.file = file;
+        this.raf = new RandomAccessFile(file, "rw");
+        if (raf.length() < capacity) {
+            raf.setLength(capacity);
+        }
+        this.capacity = (int) raf.length();
+        this.channel = raf.getChannel();
+        this.map = channel.map(FileChannel.MapMode.READ_WRITE, 0, this.capacity);
+    }
+
+    /**
+     * Scans from the start, stopping at the first zero, oversized or CRC-mismatched frame. Anything
+     * after that point is a torn tail from a crash and is zeroed so later appends start clean.
+     * Returns the number of valid records.
+     */
+    int recover() {
+        ByteBuffer buf = map.duplicate();
+        CRC32 check = new CRC32();
+        int pos = 0;
+        int records = 0;
+        while (pos + HEADER <= capacity) {
+            int len = buf.getInt(pos);
+            if (len <= 0 || pos + HEADER + len > capacity) break;
+            int expected = buf.getInt(pos + 4);
+            ByteBuffer payload = slice(buf, pos + HEADER, len);
+            check.reset();
+            check.update(payload);
+            if ((int) check.getValue() != expected) break;
+            pos += HEADER + len;
+            records++;
+        }
+        // the length is written last, so a torn frame may still leave payload bytes behind
+        for (int i = pos; i < capacity; i++) {
+            if (buf.get(i) != 0) {
+                System.out.println("[审计日志] 段 " + file.getName() + " 在偏移 " + pos + " 处发现残缺记录，已截断");
+                zeroFrom(buf, pos);
+                break;
+            }
+        }
+        writePos = pos;
+        this.records = records;
+        return records;
+    }
+
+    private static void zeroFrom(ByteBuffer buf, int from) {
+        byte[] zeros = new byte[64 * 1024];
+        ByteBuffer dst = buf.duplicate();
+        dst.position(from);
+        while (dst.hasRemaining()) {
+            dst.put(zeros, 0, Math.min(zeros.length, dst.remaining()));
+        }
+    }
+
+    // returns the record offset, or -1 if the segment has no room left
+    int append(ByteBuffer payload) {
+        int len = payload.remaining();
+        int pos = writePos;
+        if (pos + HEADER + len > capacity) return -1;
+        crc.reset();
+        crc.update(payload.duplicate());
+        ByteBuffer dst = map.duplicate();
+        dst.position(pos + 4);
+        dst.putInt((int) crc.getValue());
+        dst.put(payload);
+        // length last, so a torn write never looks like a complete frame
+        map.putInt(pos, len);
+        writePos = pos + HEADER + len;
+        records++;
+        return pos;
+    }
+
+    // payload of the record at offset, as a read-only view
+    ByteBuffer read(int offset) {
+        if (offset < 0 || offset + HEADER > writePos) {
+            throw new IllegalArgumentException("no record at " + index + ":" + offset);
+        }
+        ByteBuffer buf = map.duplicate();
+        return slice(buf, offset + HEADER, buf.getInt(offset)).asReadOnlyBuffer();
+    }
+
+    @Override
+    public long index() {
+        return index;
+    }
+
+    @Override
+    public Evidence readEvidence(int offset) {
+        return BinaryCodec.decodeEvidence(read(offset));
+    }
+
+    @Override
+    public boolean scan(int fromOffset, EvidenceLog.Visitor visitor) {
+        int end = writePos;
+        for (int offset = fromOffset; offset < end; offset = nextOffset(offset)) {
+            if (!visitor.visit((index << 32) | offset, readEvidence(offset))) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int recordCount() {
+        return records;
+    }
+
+    @Override
+    public long storedBytes() {
+        return writePos;
+    }
+
+    int nextOffset(int offset) {
+        return offset + HEADER + map.getInt(offset);
+    }
+
+    int writePos() {
+        return writePos;
+    }
+
+    boolean isEmpty() {
+        return writePos == 0;
+    }
+
+    void force() {
+        map.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        raf.close();
+    }
+
+    private static ByteBuffer slice(ByteBuffer buf, int from, int len) {
+        ByteBuffer dup = buf.duplicate();
+        dup.position(from);
+        dup.limit(from + len);
+        return dup.slice();
+    }
+}
@@ -0,0 +1,109 @@
+package org.example.accomplish.storage;
+
+import org.example.accomplish.model.AuditReceipt;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Receipt history with constant memory:
+ * - latest() is a single atomic read, advanced only to a receipt covering a larger mmrSize, so
+ *   anchors that confirm out of order never move it backwards;
+ * - the most recent receipts sit in a fixed ring, in publish order;
+ * - with a ReceiptStore every receipt is also written through to disk on publish, so one pushed
+ *   out of the ring stays reachable through find(batchId), and a registry opened over an
+ *   existing store starts from its latest receipt and most recent ring. Without a store a
+ *   receipt leaving the ring is simply dropped.
+ */
+public class ReceiptRegistry {
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final AtomicReference<AuditReceipt> latest = new AtomicReference<>();
+    private final AtomicReferenceArray<AuditReceipt> ring;
+    private final AtomicLong published = new AtomicLong();
+    private final ReceiptStore store; // may be null
+
+    public ReceiptRegistry() {
+        this(DEFAULT_CAPACITY, null);
+    }
+
+    public ReceiptRegistry(int capacity, ReceiptStore store) {
+        this.ring = new AtomicReferenceArray<>(capacity);
+        this.store = store;
+        if (store != null) {
+            try {
+                store.scan(this::remember);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+
+    public void publish(AuditReceipt receipt) {
+        if (store != null) {
+            try {
+                store.put(receipt); // forced to disk before anyone can see it as latest
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        remember(receipt);
+    }
+
+    private void remember(AuditReceipt receipt) {
+        AuditReceipt cur;
+        do {
+            cur = latest.get();
+            if (cur != null && cur.getMmrSize() >= receipt.getMmrSize()) break;
+        } while (!latest.compareAndSet(cur, receipt));
+
+        int slot = (int) (published.getAndIncrement() % ring.length());
+        ring.set(slot, receipt);
+    }
+
+    public AuditReceipt latest() {
+        return latest.get();
+    }
+
+    // ring first, then the on-disk store; null if never published or dropped
+    public AuditReceipt find(String batchId) {
+        for (int i = 0; i < ring.length(); i++) {
+            AuditReceipt r = ring.get(i);
+            if (r != null && batchId.equals(r.getBatchId())) return r;
+        }
+        if (store == null) {
+            return null;
+        }
+        try {
+            return store.get(batchId);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    // up to n most recently published receipts, newest first
+    public List<AuditReceipt> recent(int n) {
+        long end = published.get();
+        int count = (int) Math.min(Math.min(n, ring.length()), end);
+        List<AuditReceipt> out = new ArrayList<>(count);
+        for (long s = end - 1; s >= end - count; s--) {
+            AuditReceipt r = ring.get((int) (s % ring.length()));
+            if (r != null) out.add(r);
+        }
+        return out;
+    }
+
+    public long publishedCount() {
+        return published.get();
+    }
+
+    // receipts held on disk, i.e. all of them when a store is configured
+    public long spilledCount() {
+        return store == null ? 0 : store.size();
+    }
+}
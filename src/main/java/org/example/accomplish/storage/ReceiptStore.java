@@ -0,0 +1,135 @@
+package org.example.accomplish.storage;
+
+import org.example.accomplish.model.AuditReceipt;
+import org.example.accomplish.util.BinaryCodec;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.function.Consumer;
+
+/**
+ * On-disk receipt file with a batchId lookup index: the durable copy of every published receipt.
+ * receipts.dat holds [int length][BinaryCodec receipt] records in publish order; receipts.idx is
+ * an IdIndex from the batchId key to the record's data offset. Nothing here grows with the
+ * receipt count on the heap. put forces the record to disk before it returns, and opening the
+ * store truncates a record torn by a crash so later receipts are appended right after the last
+ * good one.
+ */
+public class ReceiptStore {
+    private final RandomAccessFile data;
+    private final FileChannel dataChannel;
+    private final IdIndex index;
+
+    public ReceiptStore(File dir) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("cannot create receipt store dir " + dir);
+        }
+        this.data = new RandomAccessFile(new File(dir, "receipts.dat"), "rw");
+        this.dataChannel = data.getChannel();
+        this.index = IdIndex.open(new File(dir, "receipts.idx"));
+        long end = goodLength();
+        if (end < dataChannel.size()) {
+            System.out.println("[审计日志] 回执文件在偏移 " + end + " 处发现残缺记录，已截断");
+            dataChannel.truncate(end);
+            dataChannel.force(false);
+        }
+    }
+
+    public synchronized void put(AuditReceipt r) throws IOException {
+        ByteBuffer buf = BinaryCodec.scratch();
+        buf.position(4);
+        BinaryCodec.encodeAuditReceipt(r, buf);
+        buf.putInt(0, buf.position() - 4);
+        buf.flip();
+        long offset = dataChannel.size();
+        while (buf.hasRemaining()) {
+            dataChannel.write(buf, offset + buf.position());
+        }
+        dataChannel.force(false); // the record is on disk before the index can point at it
+        index.put(IdIndex.key(r.getBatchId()), offset);
+        index.force();
+    }
+
+    public synchronized AuditReceipt get(String batchId) throws IOException {
+        AuditReceipt[] found = new AuditReceipt[1];
+        IOException[] failed = new IOException[1];
+        index.get(IdIndex.key(batchId), offset -> {
+            try {
+                AuditReceipt r = readAt(offset);
+                if (!batchId.equals(r.getBatchId())) return false;
+                found[0] = r;
+                return true;
+            } catch (IOException ex) {
+                failed[0] = ex;
+                return true;
+            }
+        });
+        if (failed[0] != null) throw failed[0];
+        return found[0];
+    }
+
+    // every stored receipt in publish order
+    public synchronized void scan(Consumer<AuditReceipt> visitor) throws IOException {
+        long end = dataChannel.size();
+        long offset = 0;
+        while (offset < end) {
+            visitor.accept(readAt(offset));
+            offset += 4 + lengthAt(offset);
+        }
+    }
+
+    public synchronized long size() {
+        return index.size();
+    }
+
+    public synchronized void force() throws IOException {
+        dataChannel.force(false);
+        index.force();
+    }
+
+    public synchronized void close() throws IOException {
+        force();
+        dataChannel.close();
+        data.close();
+        index.close();
+    }
+
+    // end of the last whole, decodable record: a crash can leave a short length or body behind
+    private long goodLength() throws IOException {
+        long end = dataChannel.size();
+        long offset = 0;
+        while (offset + 4 <= end) {
+            int n = lengthAt(offset);
+            if (n <= 0 || offset + 4 + n > end) break;
+            try {
+                readAt(offset);
+            } catch (RuntimeException ex) {
+                break; // a body that does not decode
+            }
+            offset += 4 + n;
+        }
+        return offset;
+    }
+
+    private int lengthAt(long offset) throws IOException {
+        ByteBuffer len = ByteBuffer.allocate(4);
+        while (len.hasRemaining()) {
+            if (dataChannel.read(len, offset + len.position()) < 0) return -1;
+        }
+        return len.getInt(0);
+    }
+
+    private AuditReceipt readAt(long offset) throws IOException {
+        ByteBuffer len = ByteBuffer.allocate(4);
+        dataChannel.read(len, offset);
+        ByteBuffer body = ByteBuffer.allocate(len.getInt(0));
+        while (body.hasRemaining()) {
+            dataChannel.read(body, offset + 4 + body.position());
+        }
+        body.flip();
+        return BinaryCodec.decodeAuditReceipt(body);
+    }
+}
@@ -0,0 +1,335 @@
+package org.example.accomplish.storage;
+
+import org.example.accomplish.model.Evidence;
+import org.example.accomplish.util.BinaryCodec;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Read-only compressed form of a sealed LogSegment.
+ * Records are grouped into blocks of RECORDS_PER_BLOCK, each deflated independently (BEST_SPEED),
+ * so a random read inflates one block. Before deflating, the DID and signature fields are replaced
+ * by references into a per-segment string dictionary (decisions are already one-byte codes in the
+ * codec form). The block table keeps each block's first raw offset, so positions from the raw
+ * segment resolve unchanged.
+ *
+ * File: [blocks][dictionary block][block table][footer]
+ * Block record: [varint raw payload length][varint record length][varint did ref][varint kms sig ref]
+ *               [varint tee sig ref][codec form with those three fields null]; ref 0 is null,
+ *               i + 1 is dictionary[i]. The record length lets a read skip to its record unparsed.
+ */
+class SealedSegment implements Segment {
+    static final int RECORDS_PER_BLOCK = 64;
+    private static final int MAGIC = 0x45564331; // "EVC1"
+    private static final int TABLE_ENTRY = 24; // raw first offset, file offset, compressed len, raw len, records
+    private static final int FOOTER = 40;
+
+    private final long index;
+    private final File file;
+    private final RandomAccessFile raf;
+    private final MappedByteBuffer map;
+    private final int records;
+    private final int rawBytes;
+    private final String[] dictionary;
+    private final int[] blockFirstOffset;
+    private final long[] blockFileOffset;
+    private final int[] blockCompressedLen;
+    private final int[] blockRawLen;
+    private final int[] blockRecords;
+    private volatile Block last; // most recently inflated block; point reads tend to cluster
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+
+    private static class Block {
+        final int no;
+        final byte[] data;
+        final int[] offsets; // raw frame offset of each record
+        final int[] starts; // start of each record in data
+
+        Block(int no, byte[] data, int[] offsets, int[] starts) {
+            this.no = no;
+            this.data = data;
+            this.offsets = offsets;
+            this.starts = starts;
+        }
+    }
+
+    /**
+     * Writes the compressed form of src to dst. src must be sealed (no further appends).
+     */
+    static void write(LogSegment src, File dst) throws IOException {
+        Map<String, Integer> dict = new LinkedHashMap<>();
+        List<long[]> table = new ArrayList<>();
+        ByteBuffer block = ByteBuffer.allocate(RECORDS_PER_BLOCK * 1024);
+        ByteBuffer rec = ByteBuffer.allocate(1024);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        byte[] out = new byte[block.capacity() + 1024];
+        try (RandomAccessFile raf = new RandomAccessFile(dst, "rw")) {
+            raf.setLength(0);
+            FileChannel ch = raf.getChannel();
+            int end = src.writePos();
+            int offset = 0;
+            int records = 0;
+            while (offset < end) {
+                block.clear();
+                int first = offset;
+                int n = 0;
+                for (; n < RECORDS_PER_BLOCK && offset < end; n++) {
+                    ByteBuffer payload = src.read(offset);
+                    if (block.remaining() < payload.remaining() + 32) {
+                        // the stripped form is never longer than the raw payload
+                        block = ByteBuffer.allocate(block.capacity() * 2 + payload.remaining()).put((ByteBuffer) block.flip());
+                    }
+                    if (rec.capacity() < payload.remaining() + 16) {
+                        rec = ByteBuffer.allocate(payload.remaining() + 16);
+                    }
+                    Evidence e = BinaryCodec.decodeEvidence(payload.duplicate());
+                    rec.clear();
+                    BinaryCodec.putVarLong(rec, ref(dict, e.getRequesterDid()));
+                    BinaryCodec.putVarLong(rec, ref(dict, e.getKmsSignature()));
+                    BinaryCodec.putVarLong(rec, ref(dict, e.getTeeSignature()));
+                    e.setRequesterDid(null);
+                    e.setKmsSignature(null);
+                    e.setTeeSignature(null);
+                    BinaryCodec.encodeEvidence(e, rec);
+                    rec.flip();
+                    BinaryCodec.putVarLong(block, payload.remaining());
+                    BinaryCodec.putVarLong(block, rec.remaining());
+                    block.put(rec);
+                    offset = src.nextOffset(offset);
+                    records++;
+                }
+                block.flip();
+                long at = ch.position();
+                if (out.length < block.limit() + 1024) out = new byte[block.limit() + 1024];
+                int len = deflate(deflater, block, out);
+                ch.write(ByteBuffer.wrap(out, 0, len));
+                table.add(new long[]{first, at, len, block.limit(), n});
+            }
+
+            ByteBuffer dictBuf = ByteBuffer.allocate(16 + dict.size() * 64);
+            BinaryCodec.putVarLong(dictBuf, dict.size());
+            for (String s : dict.keySet()) {
+                byte[] b = s.getBytes(StandardCharsets.UTF_8);
+                if (dictBuf.remaining() < b.length + 10) {
+                    dictBuf = ByteBuffer.allocate(dictBuf.capacity() * 2 + b.length).put((ByteBuffer) dictBuf.flip());
+                }
+                BinaryCodec.putVarLong(dictBuf, b.length);
+                dictBuf.put(b);
+            }
+            dictBuf.flip();
+            long dictAt = ch.position();
+            if (out.length < dictBuf.limit() + 1024) out = new byte[dictBuf.limit() + 1024];
+            int dictLen = deflate(deflater, dictBuf, out);
+            ch.write(ByteBuffer.wrap(out, 0, dictLen));
+
+            long tableAt = ch.position();
+            ByteBuffer tail = ByteBuffer.allocate(table.size() * TABLE_ENTRY + FOOTER);
+            for (long[] t : table) {
+                tail.putInt((int) t[0]).putLong(t[1]).putInt((int) t[2]).putInt((int) t[3]).putInt((int) t[4]);
+            }
+            tail.putLong(dictAt).putInt(dictLen).putInt(dictBuf.limit());
+            tail.putLong(tableAt).putInt(table.size()).putInt(records).putInt(end).putInt(MAGIC);
+            tail.flip();
+            while (tail.hasRemaining()) ch.write(tail);
+            ch.force(true);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    SealedSegment(File file, long index) throws IOException {
+        this.index = index;
+        this.file = file;
+        this.raf = new RandomAccessFile(file, "r");
+        this.map = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+        int f = map.capacity() - FOOTER;
+        if (f < 0 || map.getInt(f + 36) != MAGIC) {
+            raf.close();
+            throw new IOException("not a sealed evidence segment: " + file);
+        }
+        long dictAt = map.getLong(f);
+        int dictLen = map.getInt(f + 8);
+        int dictRaw = map.getInt(f + 12);
+        long tableAt = map.getLong(f + 16);
+        int blocks = map.getInt(f + 24);
+        this.records = map.getInt(f + 28);
+        this.rawBytes = map.getInt(f + 32);
+
+        blockFirstOffset = new int[blocks];
+        blockFileOffset = new long[blocks];
+        blockCompressedLen = new int[blocks];
+        blockRawLen = new int[blocks];
+        blockRecords = new int[blocks];
+        for (int b = 0; b < blocks; b++) {
+            int at = (int) tableAt + b * TABLE_ENTRY;
+            blockFirstOffset[b] = map.getInt(at);
+            blockFileOffset[b] = map.getLong(at + 4);
+            blockCompressedLen[b] = map.getInt(at + 12);
+            blockRawLen[b] = map.getInt(at + 16);
+            blockRecords[b] = map.getInt(at + 20);
+        }
+
+        ByteBuffer d = ByteBuffer.wrap(inflate(dictAt, dictLen, dictRaw));
+        dictionary = new String[(int) BinaryCodec.getVarLong(d)];
+        for (int i = 0; i < dictionary.length; i++) {
+            int len = (int) BinaryCodec.getVarLong(d);
+            dictionary[i] = new String(d.array(), d.position(), len, StandardCharsets.UTF_8);
+            d.position(d.position() + len);
+        }
+    }
+
+    @Override
+    public long index() {
+        return index;
+    }
+
+    @Override
+    public Evidence readEvidence(int offset) {
+        int b = Arrays.binarySearch(blockFirstOffset, offset);
+        if (b < 0) b = -b - 2;
+        if (b >= 0) {
+            Block block = block(b);
+            int i = Arrays.binarySearch(block.offsets, offset);
+            if (i >= 0) return decode(block, i);
+        }
+        throw new IllegalArgumentException("no record at " + index + ":" + offset);
+    }
+
+    @Override
+    public boolean scan(int fromOffset, EvidenceLog.Visitor visitor) {
+        int b = Arrays.binarySearch(blockFirstOffset, fromOffset);
+        if (b < 0) b = Math.max(0, -b - 2);
+        for (; b < blockFirstOffset.length; b++) {
+            Block block = block(b);
+            for (int i = 0; i < block.offsets.length; i++) {
+                if (block.offsets[i] < fromOffset) continue;
+                if (!visitor.visit((index << 32) | block.offsets[i], decode(block, i))) return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int recordCount() {
+        return records;
+    }
+
+    @Override
+    public long storedBytes() {
+        return map.capacity();
+    }
+
+    // size the records occupied before compression
+    int rawBytes() {
+        return rawBytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        raf.close();
+    }
+
+    File file() {
+        return file;
+    }
+
+    private Block block(int no) {
+        Block cached = last;
+        if (cached != null && cached.no == no) return cached;
+        byte[] data = inflate(blockFileOffset[no], blockCompressedLen[no], blockRawLen[no]);
+        int n = blockRecords[no];
+        int[] offsets = new int[n];
+        int[] starts = new int[n];
+        ByteBuffer buf = ByteBuffer.wrap(data);
+        int offset = blockFirstOffset[no];
+        for (int i = 0; i < n; i++) {
+            starts[i] = buf.position();
+            offsets[i] = offset;
+            int rawLen = (int) BinaryCodec.getVarLong(buf);
+            int len = (int) BinaryCodec.getVarLong(buf);
+            buf.position(buf.position() + len);
+            offset += LogSegment.HEADER + rawLen;
+        }
+        Block block = new Block(no, data, offsets, starts);
+        last = block;
+        return block;
+    }
+
+    private Evidence decode(Block block, int i) {
+        ByteBuffer buf = ByteBuffer.wrap(block.data);
+        buf.position(block.starts[i]);
+        BinaryCodec.getVarLong(buf);
+        BinaryCodec.getVarLong(buf);
+        int did = (int) BinaryCodec.getVarLong(buf);
+        int kms = (int) BinaryCodec.getVarLong(buf);
+        int tee = (int) BinaryCodec.getVarLong(buf);
+        Evidence e = BinaryCodec.decodeEvidence(buf);
+        e.setRequesterDid(lookup(did));
+        e.setKmsSignature(lookup(kms));
+        e.setTeeSignature(lookup(tee));
+        return e;
+    }
+
+    private String lookup(int ref) {
+        return ref == 0 ? null : dictionary[ref - 1];
+    }
+
+    private byte[] inflate(long at, int len, int rawLen) {
+        byte[] in = new byte[len];
+        ByteBuffer src = map.duplicate();
+        src.position((int) at);
+        src.get(in);
+        byte[] out = new byte[rawLen];
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        try {
+            inflater.setInput(in);
+            int n = 0;
+            while (n < rawLen && !inflater.finished()) {
+                n += inflater.inflate(out, n, rawLen - n);
+                if (n < rawLen && inflater.needsInput()) break;
+            }
+            if (n != rawLen) {
+                throw new IllegalStateException("corrupt block in " + file.getName() + " at " + at);
+            }
+            return out;
+        } catch (DataFormatException ex) {
+            throw new IllegalStateException("corrupt block in " + file.getName() + " at " + at, ex);
+        }
+    }
+
+    private static int ref(Map<String, Integer> dict, String value) {
+        if (value == null) return 0;
+        Integer id = dict.get(value);
+        if (id == null) {
+            id = dict.size();
+            dict.put(value, id);
+        }
+        return id + 1;
+    }
+
+    private static int deflate(Deflater deflater, ByteBuffer in, byte[] out) {
+        deflater.reset();
+        deflater.setInput(in.array(), in.position(), in.remaining());
+        deflater.finish();
+        int n = 0;
+        while (!deflater.finished()) {
+            if (n == out.length) {
+                // deflate() returns 0 on a full buffer, so this would never finish
+                throw new IllegalStateException("deflated block exceeds " + out.length + " bytes");
+            }
+            n += deflater.deflate(out, n, out.length - n);
+        }
+        return n;
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.accomplish.storage;
+
+import org.example.accomplish.model.Evidence;
+
+import java.io.IOException;
+
+/**
+ * A segment of the evidence log as seen by readers: either a raw LogSegment (the active one, or a
+ * sealed one not yet compressed) or a SealedSegment. Offsets are the raw frame offsets in both, so
+ * positions handed out at append time stay valid after compression.
+ */
+interface Segment {
+    long index();
+
+    Evidence readEvidence(int offset);
+
+    // visits records at or after fromOffset in append order; false if the visitor stopped
+    boolean scan(int fromOffset, EvidenceLog.Visitor visitor);
+
+    int recordCount();
+
+    // bytes actually holding records (not the pre-allocated file length)
+    long storedBytes();
+
+    void close() throws IOException;
+}
@@ -0,0 +1,143 @@
+package org.example.accomplish.storage;
+
+import org.example.accomplish.model.Evidence;
+import org.example.accomplish.model.UsageRecord;
+import org.example.accomplish.util.BinaryCodec;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * On-disk copy of sealed TEE usage batches, next to the evidence log, so a single use stays
+ * provable however many batches pile up and across restarts.
+ * usage.dat holds [int length][aggregate evidence][varint count][usage records] in seal order,
+ * all in BinaryCodec form; usage.idx is an IdIndex from each record's (requestId, call) key to its
+ * batch's data offset.
+ */
+public class UsageBatchStore {
+    private final RandomAccessFile data;
+    private final FileChannel dataChannel;
+    private final IdIndex index;
+
+    // a stored batch: the aggregated evidence and its records, in batch order
+    public static final class Entry {
+        private final Evidence aggregate;
+        private final List<UsageRecord> records;
+
+        Entry(Evidence aggregate, List<UsageRecord> records) {
+            this.aggregate = aggregate;
+            this.records = records;
+        }
+
+        public Evidence getAggregate() { return aggregate; }
+        public List<UsageRecord> getRecords() { return records; }
+    }
+
+    public UsageBatchStore(File dir) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("cannot create usage store dir " + dir);
+        }
+        this.data = new RandomAccessFile(new File(dir, "usage.dat"), "rw");
+        this.dataChannel = data.getChannel();
+        this.index = IdIndex.open(new File(dir, "usage.idx"));
+    }
+
+    public static byte[] key(String requestId, int call) {
+        return IdIndex.key(requestId + ":" + call);
+    }
+
+    public synchronized void put(Evidence aggregate, List<UsageRecord> records) throws IOException {
+        ByteBuffer buf = encode(aggregate, records);
+        long offset = dataChannel.size();
+        while (buf.hasRemaining()) {
+            dataChannel.write(buf, offset + buf.position());
+        }
+        for (UsageRecord r : records) {
+            index.put(key(r.getRequestId(), r.getCall()), offset);
+        }
+    }
+
+    /**
+     * The batch holding the use (requestId, call) whose aggregate accept takes, or null. A batch
+     * written just before a crash, whose evidence never reached the log, is skipped that way.
+     */
+    public synchronized Entry find(String requestId, int call, Predicate<Evidence> accept) throws IOException {
+        Entry[] found = new Entry[1];
+        IOException[] failed = new IOException[1];
+        index.get(key(requestId, call), offset -> {
+            try {
+                Entry e = readAt(offset);
+                if (!contains(e.records, requestId, call) || !accept.test(e.aggregate)) return false;
+                found[0] = e;
+                return true;
+            } catch (IOException ex) {
+                failed[0] = ex;
+                return true;
+            }
+        });
+        if (failed[0] != null) throw failed[0];
+        return found[0];
+    }
+
+    public synchronized long size() {
+        return index.size();
+    }
+
+    public synchronized void force() throws IOException {
+        dataChannel.force(false);
+        index.force();
+    }
+
+    public synchronized void close() throws IOException {
+        force();
+        dataChannel.close();
+        data.close();
+        index.close();
+    }
+
+    private static ByteBuffer encode(Evidence aggregate, List<UsageRecord> records) {
+        for (int cap = 4 + 512 + records.size() * 128; ; cap *= 2) {
+            ByteBuffer buf = ByteBuffer.allocate(cap);
+            try {
+                buf.position(4);
+                BinaryCodec.encodeEvidence(aggregate, buf);
+                BinaryCodec.putVarLong(buf, records.size());
+                for (UsageRecord r : records) BinaryCodec.encodeUsageRecord(r, buf);
+            } catch (BufferOverflowException ex) {
+                continue; // unusually long DIDs or signatures
+            }
+            buf.putInt(0, buf.position() - 4);
+            buf.flip();
+            return buf;
+        }
+    }
+
+    private Entry readAt(long offset) throws IOException {
+        ByteBuffer len = ByteBuffer.allocate(4);
+        dataChannel.read(len, offset);
+        ByteBuffer body = ByteBuffer.allocate(len.getInt(0));
+        while (body.hasRemaining()) {
+            dataChannel.read(body, offset + 4 + body.position());
+        }
+        body.flip();
+        Evidence aggregate = BinaryCodec.decodeEvidence(body);
+        int n = (int) BinaryCodec.getVarLong(body);
+        List<UsageRecord> records = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) records.add(BinaryCodec.decodeUsageRecord(body));
+        return new Entry(aggregate, records);
+    }
+
+    private static boolean contains(List<UsageRecord> records, String requestId, int call) {
+        for (UsageRecord r : records) {
+            if (r.getCall() == call && requestId.equals(r.getRequestId())) return true;
+        }
+        return false;
+    }
+}
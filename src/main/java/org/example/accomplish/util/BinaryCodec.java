@@ -0,0 +1,441 @@
+package org.example.accomplish.util;
+
+import org.example.accomplish.model.AuditReceipt;
+import org.example.accomplish.model.DidReceipt;
+import org.example.accomplish.model.Evidence;
+import org.example.accomplish.model.UsageRecord;
+import org.example.accomplish.model.WrapDek;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Canonical, versioned binary form of Evidence, WrapDek, AuditReceipt, DidReceipt and UsageRecord, used alike for
+ * hashing, signing, storage and the wire. Evidence without a usageRoot keeps the V1 form (and so its leaf hash);
+ * aggregated TEE usage evidence is V2, which appends usageRoot and usageCount. Likewise a WrapDek is V2, with its
+ * resourceId after the bound hashes, only when it names a resource.
+ *
+ * Field forms (first byte is a tag, 0 = null):
+ * - id:       1 + 16 bytes for a lowercase UUID, 2 + string otherwise
+ * - did:      1 + 16 bytes for did:idata:&lt;32 hex&gt;, 2 + string otherwise
+ * - hash:     1 + 32 raw bytes for 64 lowercase hex chars, 2 + string otherwise
+ * - decision: 1..n index into DECISIONS, 0xff + string for anything else
+ * - string:   varint(utf8 length + 1) + bytes, 0 = null
+ * - time:     unsigned LEB128 varint
+ * The tag picks the compact form only when it round-trips to the identical String, so
+ * encode(decode(x)) == x and equal objects always produce equal bytes.
+ */
+public class BinaryCodec {
+    public static final byte EVIDENCE_V1 = 1;
+    public static final byte EVIDENCE_V2 = 2;
+    public static final byte WRAP_DEK_V1 = 1;
+    public static final byte WRAP_DEK_V2 = 2;
+    public static final byte AUDIT_RECEIPT_V1 = 1;
+    public static final byte DID_RECEIPT_V1 = 1;
+    public static final byte USAGE_RECORD_V1 = 1;
+    // append-only: a code, once assigned, keeps its meaning
+    private static final String[] DECISIONS = {
+            null,
+            "ALLOW_PENDING_RECEIPT",
+            "REJECT_AUTHORIZATION",
+            "TEE_USAGE_OK",
+            "TEE_REVOKE_ACK",
+            "REJECT_POLICY",
+            "TEE_USAGE_BATCH",
+            "REJECT_ATTESTATION",
+            "RENEW_PENDING_RECEIPT"
+    };
+    private static final Map<String, Integer> DECISION_CODES = new HashMap<>();
+    static {
+        for (int i = 1; i < DECISIONS.length; i++) DECISION_CODES.put(DECISIONS[i], i);
+    }
+
+    private static final byte NULL = 0;
+    private static final byte COMPACT = 1;
+    private static final byte RAW = 2;
+    private static final int CUSTOM_DECISION = 0xff;
+    private static final String DID_PREFIX = "did:idata:";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final byte[] HEX_VALUE = new byte[128];
+    static {
+        Arrays.fill(HEX_VALUE, (byte) -1);
+        for (int i = 0; i < 16; i++) HEX_VALUE[HEX[i]] = (byte) i;
+    }
+
+    private static final ThreadLocal<ByteBuffer> SCRATCH = ThreadLocal.withInitial(() -> ByteBuffer.allocate(64 * 1024));
+
+    // per-thread reusable buffer, cleared
+    public static ByteBuffer scratch() {
+        ByteBuffer b = SCRATCH.get();
+        b.clear();
+        return b;
+    }
+
+    public static void encodeEvidence(Evidence e, ByteBuffer out) {
+        boolean aggregate = e.getUsageRoot() != null;
+        out.put(aggregate ? EVIDENCE_V2 : EVIDENCE_V1);
+        putId(out, e.getEvidenceId());
+        putId(out, e.getRequestId());
+        putDid(out, e.getRequesterDid());
+        putHash(out, e.getAttestationSummaryHash());
+        putDecision(out, e.getDecisionResult());
+        putVarLong(out, e.getTimestamp());
+        putString(out, e.getKmsSignature());
+        putString(out, e.getTeeSignature());
+        if (aggregate) {
+            putHash(out, e.getUsageRoot());
+            putVarLong(out, e.getUsageCount());
+        }
+    }
+
+    public static Evidence decodeEvidence(ByteBuffer in) {
+        byte version = in.get();
+        if (version != EVIDENCE_V1 && version != EVIDENCE_V2) {
+            throw new IllegalArgumentException("unsupported evidence encoding version " + version);
+        }
+        Evidence e = new Evidence();
+        e.setEvidenceId(getId(in));
+        e.setRequestId(getId(in));
+        e.setRequesterDid(getDid(in));
+        e.setAttestationSummaryHash(getHash(in));
+        e.setDecisionResult(getDecision(in));
+        e.setTimestamp(getVarLong(in));
+        e.setKmsSignature(getString(in));
+        e.setTeeSignature(getString(in));
+        if (version == EVIDENCE_V2) {
+            e.setUsageRoot(getHash(in));
+            e.setUsageCount((int) getVarLong(in));
+        }
+        return e;
+    }
+
+    public static void encodeWrapDek(WrapDek w, ByteBuffer out) {
+        encodeWrapDek(w, out, false);
+    }
+
+    // the bytes the KMS signs: the full wrap minus its signature and revocation state
+    public static void encodeWrapDekForSigning(WrapDek w, ByteBuffer out) {
+        encodeWrapDek(w, out, true);
+    }
+
+    private static void encodeWrapDek(WrapDek w, ByteBuffer out, boolean forSigning) {
+        boolean withResource = w.getResourceId() != null;
+        out.put(withResource ? WRAP_DEK_V2 : WRAP_DEK_V1);
+        putId(out, w.getWrapDekId());
+        putId(out, w.getRequestId());
+        putBytes(out, w.getEncryptedDek());
+        putString(out, w.getRecipientTeeId());
+        putString(out, w.getRecipientPublicKeyFingerprint());
+        putVarLong(out, w.getValidFrom());
+        putVarLong(out, w.getValidTo());
+        Map<String, String> usage = w.getUsageConstraints() == null ? Collections.<String, String>emptyMap() : w.getUsageConstraints();
+        putVarLong(out, usage.size());
+        for (Map.Entry<String, String> ent : new TreeMap<>(usage).entrySet()) {
+            putString(out, ent.getKey());
+            putString(out, ent.getValue());
+        }
+        putHash(out, w.getBoundReceiptIdSha256());
+        putHash(out, w.getBoundAuthorizationIdSha256());
+        if (withResource) {
+            putString(out, w.getResourceId());
+        }
+        if (!forSigning) {
+            putString(out, w.getKmsSignature());
+            out.put((byte) (w.isRevoked() ? 1 : 0));
+        }
+    }
+
+    public static WrapDek decodeWrapDek(ByteBuffer in) {
+        byte version = in.get();
+        if (version != WRAP_DEK_V1 && version != WRAP_DEK_V2) {
+            throw new IllegalArgumentException("unsupported wrap_DEK encoding version " + version);
+        }
+        WrapDek w = new WrapDek();
+        w.setWrapDekId(getId(in));
+        w.setRequestId(getId(in));
+        w.setEncryptedDek(getBytes(in));
+        w.setRecipientTeeId(getString(in));
+        w.setRecipientPublicKeyFingerprint(getString(in));
+        w.setValidFrom(getVarLong(in));
+        w.setValidTo(getVarLong(in));
+        int n = (int) getVarLong(in);
+        Map<String, String> usage = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            usage.put(getString(in), getString(in));
+        }
+        w.setUsageConstraints(usage);
+        w.setBoundReceiptIdSha256(getHash(in));
+        w.setBoundAuthorizationIdSha256(getHash(in));
+        if (version == WRAP_DEK_V2) {
+            w.setResourceId(getString(in));
+        }
+        w.setKmsSignature(getString(in));
+        w.setRevoked(in.get() == 1);
+        return w;
+    }
+
+    public static void encodeAuditReceipt(AuditReceipt r, ByteBuffer out) {
+        out.put(AUDIT_RECEIPT_V1);
+        putId(out, r.getBatchId());
+        putHash(out, r.getMerkleRoot());
+        putVarLong(out, r.getMmrSize());
+        putVarLong(out, r.getBatchSize());
+        putString(out, r.getChainTxId());
+        putVarLong(out, r.getConfirmations());
+        putVarLong(out, r.getBlockHeight());
+        putVarLong(out, r.getTimestamp());
+        putString(out, r.getAuditSignature());
+    }
+
+    public static AuditReceipt decodeAuditReceipt(ByteBuffer in) {
+        byte version = in.get();
+        if (version != AUDIT_RECEIPT_V1) {
+            throw new IllegalArgumentException("unsupported audit receipt encoding version " + version);
+        }
+        AuditReceipt r = new AuditReceipt();
+        r.setBatchId(getId(in));
+        r.setMerkleRoot(getHash(in));
+        r.setMmrSize(getVarLong(in));
+        r.setBatchSize((int) getVarLong(in));
+        r.setChainTxId(getString(in));
+        r.setConfirmations((int) getVarLong(in));
+        r.setBlockHeight(getVarLong(in));
+        r.setTimestamp(getVarLong(in));
+        r.setAuditSignature(getString(in));
+        return r;
+    }
+
+    // the dense didId is registry-local and not part of the canonical form
+    public static void encodeDidReceipt(DidReceipt r, ByteBuffer out) {
+        out.put(DID_RECEIPT_V1);
+        putDid(out, r.getDid());
+        putString(out, r.getPublicKeyFingerprint());
+        putVarLong(out, r.getTimestamp());
+        putId(out, r.getReceiptId());
+    }
+
+    public static DidReceipt decodeDidReceipt(ByteBuffer in) {
+        byte version = in.get();
+        if (version != DID_RECEIPT_V1) {
+            throw new IllegalArgumentException("unsupported DID receipt encoding version " + version);
+        }
+        DidReceipt r = new DidReceipt();
+        r.setDid(getDid(in));
+        r.setPublicKeyFingerprint(getString(in));
+        r.setTimestamp(getVarLong(in));
+        r.setReceiptId(getId(in));
+        return r;
+    }
+
+    public static void encodeUsageRecord(UsageRecord r, ByteBuffer out) {
+        out.put(USAGE_RECORD_V1);
+        putId(out, r.getRequestId());
+        putDid(out, r.getRequesterDid());
+        putVarLong(out, r.getCall());
+        putHash(out, r.getOutputHash());
+        putVarLong(out, r.getTimestamp());
+    }
+
+    public static UsageRecord decodeUsageRecord(ByteBuffer in) {
+        byte version = in.get();
+        if (version != USAGE_RECORD_V1) {
+            throw new IllegalArgumentException("unsupported usage record encoding version " + version);
+        }
+        UsageRecord r = new UsageRecord();
+        r.setRequestId(getId(in));
+        r.setRequesterDid(getDid(in));
+        r.setCall((int) getVarLong(in));
+        r.setOutputHash(getHash(in));
+        r.setTimestamp(getVarLong(in));
+        return r;
+    }
+
+    // ---- field forms ----
+
+    static void putId(ByteBuffer out, String id) {
+        if (id == null) {
+            out.put(NULL);
+            return;
+        }
+        byte[] b = new byte[16];
+        if (id.length() == 36 && id.charAt(8) == '-' && id.charAt(13) == '-' && id.charAt(18) == '-' && id.charAt(23) == '-'
+                && hexToBytes(id, 0, 8, b, 0) && hexToBytes(id, 9, 13, b, 4) && hexToBytes(id, 14, 18, b, 6)
+                && hexToBytes(id, 19, 23, b, 8) && hexToBytes(id, 24, 36, b, 10)) {
+            out.put(COMPACT);
+            out.put(b);
+        } else {
+            out.put(RAW);
+            putString(out, id);
+        }
+    }
+
+    static String getId(ByteBuffer in) {
+        byte tag = in.get();
+        if (tag == NULL) return null;
+        if (tag == RAW) return getString(in);
+        byte[] raw = new byte[16];
+        in.get(raw);
+        char[] c = new char[36];
+        int p = 0;
+        for (int i = 0; i < 16; i++) {
+            if (i == 4 || i == 6 || i == 8 || i == 10) c[p++] = '-';
+            int b = raw[i] & 0xff;
+            c[p++] = HEX[b >>> 4];
+            c[p++] = HEX[b & 0xf];
+        }
+        return new String(c);
+    }
+
+    static void putDid(ByteBuffer out, String did) {
+        if (did == null) {
+            out.put(NULL);
+            return;
+        }
+        byte[] b = new byte[16];
+        if (did.length() == DID_PREFIX.length() + 32 && did.startsWith(DID_PREFIX)
+                && hexToBytes(did, DID_PREFIX.length(), did.length(), b, 0)) {
+            out.put(COMPACT);
+            out.put(b);
+        } else {
+            out.put(RAW);
+            putString(out, did);
+        }
+    }
+
+    static String getDid(ByteBuffer in) {
+        byte tag = in.get();
+        if (tag == NULL) return null;
+        if (tag == RAW) return getString(in);
+        return DID_PREFIX + getHexRun(in, 16);
+    }
+
+    static void putHash(ByteBuffer out, String hex) {
+        if (hex == null) {
+            out.put(NULL);
+            return;
+        }
+        byte[] b = new byte[32];
+        if (hex.length() == 64 && hexToBytes(hex, 0, 64, b, 0)) {
+            out.put(COMPACT);
+            out.put(b);
+        } else {
+            out.put(RAW);
+            putString(out, hex);
+        }
+    }
+
+    static String getHash(ByteBuffer in) {
+        byte tag = in.get();
+        if (tag == NULL) return null;
+        if (tag == RAW) return getString(in);
+        return getHexRun(in, 32);
+    }
+
+    static void putDecision(ByteBuffer out, String decision) {
+        if (decision == null) {
+            out.put(NULL);
+            return;
+        }
+        Integer code = DECISION_CODES.get(decision);
+        if (code != null) {
+            out.put(code.byteValue());
+        } else {
+            out.put((byte) CUSTOM_DECISION);
+            putString(out, decision);
+        }
+    }
+
+    static String getDecision(ByteBuffer in) {
+        int code = in.get() & 0xff;
+        if (code == CUSTOM_DECISION) return getString(in);
+        if (code >= DECISIONS.length) {
+            throw new IllegalArgumentException("unknown decision code " + code);
+        }
+        return DECISIONS[code];
+    }
+
+    static void putString(ByteBuffer out, String s) {
+        if (s == null) {
+            out.put(NULL);
+            return;
+        }
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        putVarLong(out, b.length + 1L);
+        out.put(b);
+    }
+
+    static String getString(ByteBuffer in) {
+        int len = (int) getVarLong(in);
+        if (len == 0) return null;
+        byte[] b = new byte[len - 1];
+        in.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    static void putBytes(ByteBuffer out, byte[] b) {
+        if (b == null) {
+            out.put(NULL);
+            return;
+        }
+        putVarLong(out, b.length + 1L);
+        out.put(b);
+    }
+
+    static byte[] getBytes(ByteBuffer in) {
+        int len = (int) getVarLong(in);
+        if (len == 0) return null;
+        byte[] b = new byte[len - 1];
+        in.get(b);
+        return b;
+    }
+
+    public static void putVarLong(ByteBuffer out, long v) {
+        while ((v & ~0x7fL) != 0) {
+            out.put((byte) ((v & 0x7f) | 0x80));
+            v >>>= 7;
+        }
+        out.put((byte) v);
+    }
+
+    public static long getVarLong(ByteBuffer in) {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            v |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IllegalArgumentException("varint too long");
+    }
+
+    /**
+     * Parses s[from, to) as lowercase hex into dst; false on any other character. Uppercase is
+     * rejected on purpose so the compact form always decodes back to the identical String.
+     */
+    private static boolean hexToBytes(String s, int from, int to, byte[] dst, int dstOff) {
+        int bad = 0;
+        for (int i = from, j = dstOff; i < to; i += 2, j++) {
+            int hi = hexValue(s.charAt(i));
+            int lo = hexValue(s.charAt(i + 1));
+            bad |= hi | lo;
+            dst[j] = (byte) ((hi << 4) | lo);
+        }
+        return bad >= 0;
+    }
+
+    private static int hexValue(char c) {
+        return c < 128 ? HEX_VALUE[c] : -1;
+    }
+
+    private static String getHexRun(ByteBuffer in, int bytes) {
+        byte[] raw = new byte[bytes];
+        in.get(raw);
+        char[] c = new char[bytes * 2];
+        for (int i = 0; i < bytes; i++) {
+            int b = raw[i] & 0xff;
+            c[2 * i] = HEX[b >>> 4];
+            c[2 * i + 1] = HEX[b & 0xf];
+        }
+        return new String(c);
+    }
+}
@@ -1,5 +1,6 @@
 package org.example.accomplish.util;
 
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.security.SecureRandom;
 import java.util.*;
@@ -23,12 +24,38 @@ public class CryptoUtil {
         }
     }
 
+    public static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (Exception ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    public static String sha256Hex(ByteBuffer data) {
+        MessageDigest md = newSha256();
+        md.update(data);
+        return bytesToHex(md.digest());
+    }
+
+    public static byte[] sha256(byte[] data) {
+        return newSha256().digest(data);
+    }
+
     public static String bytesToHex(byte[] bytes) {
         StringBuilder sb = new StringBuilder();
         for (byte b : bytes) sb.append(String.format("%02x", b & 0xff));
         return sb.toString();
     }
 
+    public static byte[] hexToBytes(String hex) {
+        byte[] out = new byte[hex.length() / 2];
+        for (int i=0;i<out.length;i++) {
+            out[i] = (byte) Integer.parseInt(hex.substring(2*i, 2*i+2), 16);
+        }
+        return out;
+    }
+
     public static byte[] xor(byte[] a, byte[] b) {
         byte[] out = new byte[a.length];
         for (int i=0;i<a.length;i++) {
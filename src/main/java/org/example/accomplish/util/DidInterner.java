@@ -0,0 +1,113 @@
+package org.example.accomplish.util;
+
+/**
+ * Assigns each distinct DID a dense int id (0, 1, 2, ...) so indexes can key on the id instead
+ * of the ~45-character string. The table is open-addressing over long slots packing the hash
+ * (high half) with id + 1 (low half, 0 = empty), so a probe compares hashes without leaving the
+ * slot array; the DID strings are stored once, by id. Lookups run without locking; a
+ * lookup that misses, or that races a concurrent intern, retries under the lock. Ids are never
+ * reused or removed.
+ */
+public final class DidInterner {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private volatile Table table = new Table(INITIAL_CAPACITY * 2, INITIAL_CAPACITY);
+    private int size;
+
+    private static final class Table {
+        final long[] slots; // hash << 32 | id + 1; power-of-two length, at most half full
+        final String[] dids;
+
+        Table(int slotCount, int idCapacity) {
+            slots = new long[slotCount];
+            dids = new String[idCapacity];
+        }
+
+        int find(String did, int h) {
+            int mask = slots.length - 1;
+            for (int i = h & mask; ; i = (i + 1) & mask) {
+                long s = slots[i];
+                if (s == 0) return -1;
+                if ((int) (s >>> 32) != h) continue;
+                int id = (int) s - 1;
+                String d = dids[id];
+                if (d == null) return -1; // not yet visible to this thread
+                if (d.equals(did)) return id;
+            }
+        }
+    }
+
+    // id of did, assigning the next one if new
+    public int intern(String did) {
+        int h = hash(did);
+        int id = table.find(did, h);
+        return id >= 0 ? id : internLocked(did, h);
+    }
+
+    // id of did, or -1 if it was never interned
+    public int idOf(String did) {
+        if (did == null) return -1;
+        int h = hash(did);
+        int id = table.find(did, h);
+        if (id >= 0) return id;
+        synchronized (this) {
+            return table.find(did, h);
+        }
+    }
+
+    public String didOf(int id) {
+        Table t = table;
+        String d = id >= 0 && id < t.dids.length ? t.dids[id] : null;
+        if (d != null) return d;
+        synchronized (this) {
+            return id >= 0 && id < size ? table.dids[id] : null;
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    // approximate bytes held by the table itself, excluding the DID strings
+    public synchronized long tableBytes() {
+        Table t = table;
+        return 8L * t.slots.length + 8L * t.dids.length;
+    }
+
+    private synchronized int internLocked(String did, int h) {
+        Table t = table;
+        int id = t.find(did, h);
+        if (id >= 0) return id;
+        if (size == t.dids.length || (size + 1) * 2 > t.slots.length) {
+            t = grow(t);
+        }
+        id = size;
+        t.dids[id] = did;
+        insert(t, id, h);
+        size++;
+        return id;
+    }
+
+    private Table grow(Table old) {
+        Table t = new Table(old.slots.length * 2, old.dids.length * 2);
+        System.arraycopy(old.dids, 0, t.dids, 0, size);
+        for (long s : old.slots) {
+            if (s != 0) insert(t, (int) s - 1, (int) (s >>> 32));
+        }
+        table = t;
+        return t;
+    }
+
+    private static void insert(Table t, int id, int h) {
+        int mask = t.slots.length - 1;
+        int i = h & mask;
+        while (t.slots[i] != 0) i = (i + 1) & mask;
+        t.slots[i] = ((long) h << 32) | (id + 1);
+    }
+
+    // String.hashCode spread so that neighbouring DIDs do not cluster in the low bits
+    private static int hash(String did) {
+        int h = did.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
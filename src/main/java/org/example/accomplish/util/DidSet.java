@@ -0,0 +1,122 @@
+package org.example.accomplish.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.*;
+
+/**
+ * Immutable, compact set of DIDs for group authorizations.
+ * Each member is stored as a 128-bit fingerprint (the first 16 bytes of SHA-256(did)) in two
+ * parallel long arrays sorted by (hi, lo): 16 bytes per member, membership by binary search, and
+ * collisions are out of reach at any realistic group size. Adding or removing members merges a
+ * sorted delta into a new set; the original is never modified.
+ */
+public final class DidSet {
+    public static final DidSet EMPTY = new DidSet(new long[0], new long[0]);
+
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(CryptoUtil::newSha256);
+
+    private final long[] hi;
+    private final long[] lo;
+
+    private DidSet(long[] hi, long[] lo) {
+        this.hi = hi;
+        this.lo = lo;
+    }
+
+    public static DidSet of(Collection<String> dids) {
+        return EMPTY.withAdded(dids);
+    }
+
+    public boolean contains(String did) {
+        if (did == null || hi.length == 0) return false;
+        byte[] f = fingerprint(did);
+        return indexOf(readLong(f, 0), readLong(f, 8)) >= 0;
+    }
+
+    public int size() {
+        return hi.length;
+    }
+
+    public DidSet withAdded(Collection<String> dids) {
+        long[][] delta = sortedFingerprints(dids);
+        long[] nh = new long[hi.length + delta[0].length];
+        long[] nl = new long[nh.length];
+        int i = 0, j = 0, n = 0;
+        while (i < hi.length || j < delta[0].length) {
+            int c = i == hi.length ? 1 : j == delta[0].length ? -1 : compare(hi[i], lo[i], delta[0][j], delta[1][j]);
+            if (c <= 0) {
+                nh[n] = hi[i];
+                nl[n++] = lo[i++];
+                if (c == 0) j++; // already a member
+            } else {
+                nh[n] = delta[0][j];
+                nl[n++] = delta[1][j++];
+            }
+        }
+        return new DidSet(Arrays.copyOf(nh, n), Arrays.copyOf(nl, n));
+    }
+
+    public DidSet withRemoved(Collection<String> dids) {
+        long[][] delta = sortedFingerprints(dids);
+        long[] nh = new long[hi.length];
+        long[] nl = new long[hi.length];
+        int j = 0, n = 0;
+        for (int i = 0; i < hi.length; i++) {
+            while (j < delta[0].length && compare(delta[0][j], delta[1][j], hi[i], lo[i]) < 0) j++;
+            if (j < delta[0].length && delta[0][j] == hi[i] && delta[1][j] == lo[i]) continue;
+            nh[n] = hi[i];
+            nl[n++] = lo[i];
+        }
+        return n == hi.length ? this : new DidSet(Arrays.copyOf(nh, n), Arrays.copyOf(nl, n));
+    }
+
+    private int indexOf(long h, long l) {
+        int low = 0, high = hi.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int c = compare(hi[mid], lo[mid], h, l);
+            if (c < 0) low = mid + 1;
+            else if (c > 0) high = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    // sorted and de-duplicated
+    private static long[][] sortedFingerprints(Collection<String> dids) {
+        long[][] pairs = new long[dids.size()][];
+        int n = 0;
+        for (String did : dids) {
+            byte[] f = fingerprint(did);
+            pairs[n++] = new long[]{readLong(f, 0), readLong(f, 8)};
+        }
+        Arrays.sort(pairs, 0, n, (a, b) -> compare(a[0], a[1], b[0], b[1]));
+        long[] h = new long[n];
+        long[] l = new long[n];
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            if (m > 0 && h[m - 1] == pairs[i][0] && l[m - 1] == pairs[i][1]) continue;
+            h[m] = pairs[i][0];
+            l[m++] = pairs[i][1];
+        }
+        return new long[][]{Arrays.copyOf(h, m), Arrays.copyOf(l, m)};
+    }
+
+    private static int compare(long h1, long l1, long h2, long l2) {
+        int c = Long.compareUnsigned(h1, h2);
+        return c != 0 ? c : Long.compareUnsigned(l1, l2);
+    }
+
+    private static byte[] fingerprint(String did) {
+        MessageDigest md = DIGEST.get();
+        md.reset();
+        return md.digest(did.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long readLong(byte[] b, int off) {
+        long v = 0;
+        for (int i = 0; i < 8; i++) v = (v << 8) | (b[off + i] & 0xff);
+        return v;
+    }
+}
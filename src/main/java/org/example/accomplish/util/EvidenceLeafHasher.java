@@ -0,0 +1,30 @@
+package org.example.accomplish.util;
+
+import org.example.accomplish.model.Evidence;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+
+/**
+ * Leaf hashes for evidence in the audit accumulator.
+ * FULL_CONTENT commits to every canonical field (BinaryCodec form, so originalEvidencePointer is
+ * excluded): the fields are encoded into the per-thread scratch buffer and streamed into a
+ * per-thread digest, with no intermediate Strings. ID_ONLY is the original evidenceId leaf.
+ * Safe to call from many threads at once.
+ */
+public class EvidenceLeafHasher {
+    public enum Mode { ID_ONLY, FULL_CONTENT }
+
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(CryptoUtil::newSha256);
+
+    public static byte[] hash(Evidence e, Mode mode) {
+        return mode == Mode.FULL_CONTENT ? fullContent(e) : MerkleMountainRange.hashLeaf(DIGEST.get(), e.getEvidenceId());
+    }
+
+    public static byte[] fullContent(Evidence e) {
+        ByteBuffer buf = BinaryCodec.scratch();
+        BinaryCodec.encodeEvidence(e, buf);
+        buf.flip();
+        return MerkleMountainRange.hashLeaf(DIGEST.get(), buf);
+    }
+}
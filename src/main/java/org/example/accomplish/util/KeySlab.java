@@ -0,0 +1,84 @@
+package org.example.accomplish.util;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Off-heap store for unwrapped key bytes. Keys sit in fixed-size slots of direct ByteBuffer
+ * chunks (2^chunkBits slots each, 4096 by default) instead of heap arrays the GC may copy
+ * around, so a freed key is zero-filled in the one place it ever lived. Freed slots are reused. A handle is
+ * (chunk << chunkBits) | slot; handles are only valid until freed.
+ */
+public final class KeySlab {
+    public static final int DEFAULT_CHUNK_BITS = 12;
+
+    private final int slotSize;
+    private final int chunkBits;
+    private final int chunkSlots;
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private volatile ByteBuffer[] chunkView = new ByteBuffer[0];
+    private int[] free;
+    private int freeCount;
+    private int live;
+
+    public KeySlab(int slotSize) {
+        this(slotSize, DEFAULT_CHUNK_BITS);
+    }
+
+    public KeySlab(int slotSize, int chunkBits) {
+        this.slotSize = slotSize;
+        this.chunkBits = chunkBits;
+        this.chunkSlots = 1 << chunkBits;
+        this.free = new int[chunkSlots];
+    }
+
+    // copies key into a slot; the caller should then zero its own copy
+    public synchronized int allocate(byte[] key) {
+        if (key.length > slotSize) {
+            throw new IllegalArgumentException("key of " + key.length + " bytes exceeds slot size " + slotSize);
+        }
+        if (freeCount == 0) addChunk();
+        int handle = free[--freeCount];
+        ByteBuffer chunk = chunks.get(handle >>> chunkBits);
+        int base = (handle & (chunkSlots - 1)) * slotSize;
+        for (int i = 0; i < key.length; i++) chunk.put(base + i, key[i]);
+        live++;
+        return handle;
+    }
+
+    // copies the key into dst (dst.length bytes); the slot must not have been freed
+    public void read(int handle, byte[] dst) {
+        ByteBuffer chunk = chunkView[handle >>> chunkBits];
+        int base = (handle & (chunkSlots - 1)) * slotSize;
+        for (int i = 0; i < dst.length; i++) dst[i] = chunk.get(base + i);
+    }
+
+    // zero-fills the slot and makes it reusable
+    public synchronized void free(int handle) {
+        ByteBuffer chunk = chunks.get(handle >>> chunkBits);
+        int base = (handle & (chunkSlots - 1)) * slotSize;
+        for (int i = 0; i < slotSize; i++) chunk.put(base + i, (byte) 0);
+        if (freeCount == free.length) free = Arrays.copyOf(free, free.length * 2);
+        free[freeCount++] = handle;
+        live--;
+    }
+
+    public synchronized int liveCount() {
+        return live;
+    }
+
+    public synchronized long offHeapBytes() {
+        return (long) chunks.size() * chunkSlots * slotSize;
+    }
+
+    private void addChunk() {
+        int c = chunks.size();
+        chunks.add(ByteBuffer.allocateDirect(chunkSlots * slotSize));
+        chunkView = chunks.toArray(new ByteBuffer[0]);
+        if (free.length < chunkSlots) free = new int[chunkSlots];
+        // hand out low slots first
+        for (int s = chunkSlots - 1; s >= 0; s--) free[freeCount++] = (c << chunkBits) | s;
+    }
+}
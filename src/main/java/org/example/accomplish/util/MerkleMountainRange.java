@@ -0,0 +1,240 @@
+package org.example.accomplish.util;
+
+import org.example.accomplish.model.InclusionProof;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.*;
+
+/**
+ * Append-only Merkle Mountain Range accumulator.
+ * Node (h, j) is the j-th complete subtree of height h; level h holds (size >> h) nodes and a peak
+ * of height h exists iff bit h of the leaf count is set, so an append merges at most log2(n) nodes
+ * and a snapshot is just the current peaks.
+ * Node hashes are retained per level in 32-byte slots so proofs can be served for any earlier
+ * size (nodes never change once written). A level is a list of fixed chunks of CHUNK_NODES slots
+ * addressed by long node index, so no single array caps the leaf count; the first chunk starts
+ * small and grows, so short-lived small ranges stay cheap.
+ */
+public class MerkleMountainRange {
+    public static final int HASH_LEN = 32;
+    private static final byte LEAF_PREFIX = 0x00;
+    private static final byte NODE_PREFIX = 0x01;
+
+    private static final int CHUNK_BITS = 15; // 1 MiB per chunk
+    private static final int CHUNK_NODES = 1 << CHUNK_BITS;
+
+    private final byte[][][] levels = new byte[64][][]; // level -> chunk -> slots
+    private final MessageDigest md = CryptoUtil.newSha256();
+    private long size = 0;
+
+    public static class Snapshot {
+        private final long size;
+        private final List<byte[]> peaks; // left (highest) to right (lowest)
+        private final byte[] root;
+
+        Snapshot(long size, List<byte[]> peaks, byte[] root) {
+            this.size = size;
+            this.peaks = peaks;
+            this.root = root;
+        }
+
+        public long getSize() { return size; }
+        public List<byte[]> getPeaks() { return peaks; }
+        public byte[] getRoot() { return root; }
+        public String getRootHex() { return root == null ? "" : CryptoUtil.bytesToHex(root); }
+    }
+
+    public static byte[] hashLeaf(MessageDigest md, String content) {
+        md.reset();
+        md.update(LEAF_PREFIX);
+        md.update(content.getBytes(StandardCharsets.UTF_8));
+        return md.digest();
+    }
+
+    // consumes content's remaining bytes
+    public static byte[] hashLeaf(MessageDigest md, ByteBuffer content) {
+        md.reset();
+        md.update(LEAF_PREFIX);
+        md.update(content);
+        return md.digest();
+    }
+
+    public static byte[] hashNode(MessageDigest md, byte[] left, byte[] right) {
+        md.reset();
+        md.update(NODE_PREFIX);
+        md.update(left);
+        md.update(right);
+        return md.digest();
+    }
+
+    // bag peaks right-to-left into a single root
+    public static byte[] bagPeaks(MessageDigest md, List<byte[]> peaks) {
+        if (peaks.isEmpty()) return null;
+        byte[] acc = peaks.get(peaks.size() - 1);
+        for (int i = peaks.size() - 2; i >= 0; i--) {
+            acc = hashNode(md, peaks.get(i), acc);
+        }
+        return acc;
+    }
+
+    // height of the mountain that holds leafIndex in a range of the given size
+    public static int mountainHeight(long leafIndex, long size) {
+        long start = 0;
+        for (int h = 63; h >= 0; h--) {
+            if ((size & (1L << h)) == 0) continue;
+            if (leafIndex < start + (1L << h)) return h;
+            start += 1L << h;
+        }
+        throw new IllegalArgumentException("leaf " + leafIndex + " outside size " + size);
+    }
+
+    public synchronized long append(String leafContent) {
+        return appendLeafHash(hashLeaf(md, leafContent));
+    }
+
+    // returns the 0-based index of the appended leaf
+    public synchronized long appendLeafHash(byte[] leafHash) {
+        long index = size;
+        put(0, index, leafHash);
+        byte[] carry = leafHash;
+        int h = 0;
+        while ((index & (1L << h)) != 0) {
+            long j = ((index + 1) >> h) - 1;
+            carry = hashNode(md, node(h, j - 1), carry);
+            put(h + 1, j >> 1, carry);
+            h++;
+        }
+        size++;
+        return index;
+    }
+
+    public synchronized long size() {
+        return size;
+    }
+
+    public synchronized Snapshot snapshot() {
+        List<byte[]> peaks = peaks(size);
+        return new Snapshot(size, Collections.unmodifiableList(peaks), bagPeaks(md, peaks));
+    }
+
+    public synchronized byte[] rootAt(long atSize) {
+        checkSize(atSize);
+        return bagPeaks(md, peaks(atSize));
+    }
+
+    public synchronized List<byte[]> peaksAt(long atSize) {
+        checkSize(atSize);
+        return peaks(atSize);
+    }
+
+    public synchronized byte[] leafHash(long leafIndex) {
+        checkSize(leafIndex + 1);
+        return node(0, leafIndex);
+    }
+
+    // siblings from the leaf up to (excluding) its peak in a range of atSize leaves
+    public synchronized List<byte[]> inclusionPath(long leafIndex, long atSize) {
+        checkSize(atSize);
+        int height = mountainHeight(leafIndex, atSize);
+        List<byte[]> path = new ArrayList<>(height);
+        long j = leafIndex;
+        for (int h = 0; h < height; h++) {
+            path.add(node(h, j ^ 1));
+            j >>= 1;
+        }
+        return path;
+    }
+
+    // inclusion proof for leafIndex against the root at atSize; evidenceId is left for the caller
+    public synchronized InclusionProof prove(long leafIndex, long atSize) {
+        checkSize(atSize);
+        int height = mountainHeight(leafIndex, atSize);
+        int peakIndex = Long.bitCount(atSize >>> (height + 1));
+        List<String> otherPeaks = toHex(peaks(atSize));
+        otherPeaks.remove(peakIndex);
+        InclusionProof proof = new InclusionProof();
+        proof.setLeafIndex(leafIndex);
+        proof.setMmrSize(atSize);
+        proof.setLeafHash(CryptoUtil.bytesToHex(leafHash(leafIndex)));
+        proof.setSiblings(toHex(inclusionPath(leafIndex, atSize)));
+        proof.setOtherPeaks(otherPeaks);
+        proof.setPeakIndex(peakIndex);
+        proof.setMerkleRoot(CryptoUtil.bytesToHex(rootAt(atSize)));
+        return proof;
+    }
+
+    /**
+     * Right-hand siblings needed to lift the lowest old peak of oldSize into the new mountain that
+     * absorbs it at newSize. Left-hand siblings on that walk are the other old peaks, which the
+     * verifier already holds, so they are not repeated.
+     */
+    public synchronized List<byte[]> consistencyPath(long oldSize, long newSize) {
+        checkSize(newSize);
+        List<byte[]> path = new ArrayList<>();
+        if (oldSize <= 0 || oldSize >= newSize) return path;
+        int k = 63 - Long.numberOfLeadingZeros(oldSize ^ newSize);
+        long below = oldSize & ((1L << k) - 1);
+        if (below == 0) return path;
+        int h = Long.numberOfTrailingZeros(oldSize);
+        long j = (oldSize >> h) - 1;
+        for (; h < k; h++) {
+            if ((j & 1) == 0) path.add(node(h, j + 1));
+            j >>= 1;
+        }
+        return path;
+    }
+
+    private List<byte[]> peaks(long atSize) {
+        List<byte[]> peaks = new ArrayList<>();
+        for (int h = 63; h >= 0; h--) {
+            if ((atSize & (1L << h)) != 0) peaks.add(node(h, (atSize >> h) - 1));
+        }
+        return peaks;
+    }
+
+    private static List<String> toHex(List<byte[]> hashes) {
+        List<String> out = new ArrayList<>(hashes.size());
+        for (byte[] h : hashes) out.add(CryptoUtil.bytesToHex(h));
+        return out;
+    }
+
+    private void checkSize(long atSize) {
+        if (atSize < 0 || atSize > size) {
+            throw new IllegalArgumentException("size " + atSize + " not in accumulator of size " + size);
+        }
+    }
+
+    private byte[] node(int h, long j) {
+        byte[] out = new byte[HASH_LEN];
+        System.arraycopy(levels[h][chunkOf(j)], slotOf(j), out, 0, HASH_LEN);
+        return out;
+    }
+
+    private void put(int h, long j, byte[] hash) {
+        int c = chunkOf(j);
+        int off = slotOf(j);
+        byte[][] level = levels[h];
+        if (level == null) {
+            level = levels[h] = new byte[4][];
+        } else if (c >= level.length) {
+            level = levels[h] = Arrays.copyOf(level, Math.max(c + 1, level.length * 2));
+        }
+        byte[] chunk = level[c];
+        if (chunk == null) {
+            chunk = level[c] = new byte[c == 0 ? HASH_LEN * 16 : HASH_LEN * CHUNK_NODES];
+        } else if (chunk.length < off + HASH_LEN) {
+            chunk = level[c] = Arrays.copyOf(chunk, Math.min(Math.max(off + HASH_LEN, chunk.length * 2), HASH_LEN * CHUNK_NODES));
+        }
+        System.arraycopy(hash, 0, chunk, off, HASH_LEN);
+    }
+
+    private static int chunkOf(long j) {
+        return Math.toIntExact(j >>> CHUNK_BITS);
+    }
+
+    private static int slotOf(long j) {
+        return (int) (j & (CHUNK_NODES - 1)) * HASH_LEN;
+    }
+}
@@ -0,0 +1,120 @@
+package org.example.accomplish.util;
+
+import org.example.accomplish.model.ConsistencyProof;
+import org.example.accomplish.model.Evidence;
+import org.example.accomplish.model.InclusionProof;
+import org.example.accomplish.model.UsageProof;
+import org.example.accomplish.model.UsageRecord;
+
+import java.security.MessageDigest;
+import java.util.*;
+
+/**
+ * Standalone verifier for proofs served by AuditService. Needs nothing but the proof and the
+ * anchored root(s); the mountain layout is re-derived from the sizes carried in the proof.
+ */
+public class MerkleProofVerifier {
+
+    public static boolean verifyInclusion(String evidenceId, InclusionProof proof, String anchoredRoot) {
+        MessageDigest md = CryptoUtil.newSha256();
+        byte[] leaf = MerkleMountainRange.hashLeaf(md, evidenceId);
+        return CryptoUtil.bytesToHex(leaf).equals(proof.getLeafHash()) && verifyInclusion(proof, anchoredRoot);
+    }
+
+    // for FULL_CONTENT leaves: the evidence as read back, every canonical field must match
+    public static boolean verifyInclusion(Evidence evidence, InclusionProof proof, String anchoredRoot) {
+        byte[] leaf = EvidenceLeafHasher.fullContent(evidence);
+        return CryptoUtil.bytesToHex(leaf).equals(proof.getLeafHash()) && verifyInclusion(proof, anchoredRoot);
+    }
+
+    /**
+     * One TEE use under an aggregated TEE_USAGE_BATCH evidence: record -> usageRoot, then the
+     * evidence (FULL_CONTENT leaf, which commits to usageRoot and usageCount) -> anchoredRoot.
+     */
+    public static boolean verifyUsage(UsageRecord record, UsageProof proof, String anchoredRoot) {
+        Evidence aggregate = proof.getAggregate();
+        InclusionProof usage = proof.getUsageProof();
+        if (aggregate == null || usage == null || proof.getAggregateProof() == null || aggregate.getUsageRoot() == null
+                || usage.getMmrSize() != aggregate.getUsageCount()) {
+            return false;
+        }
+        byte[] leaf = UsageBatch.leafHash(record);
+        return CryptoUtil.bytesToHex(leaf).equals(usage.getLeafHash())
+                && verifyInclusion(usage, aggregate.getUsageRoot())
+                && verifyInclusion(aggregate, proof.getAggregateProof(), anchoredRoot);
+    }
+
+    // checks the path from proof.leafHash to anchoredRoot
+    public static boolean verifyInclusion(InclusionProof proof, String anchoredRoot) {
+        long size = proof.getMmrSize();
+        long index = proof.getLeafIndex();
+        if (index < 0 || index >= size || proof.getLeafHash() == null) return false;
+        int height = MerkleMountainRange.mountainHeight(index, size);
+        int peakIndex = Long.bitCount(size >>> (height + 1));
+        if (proof.getSiblings().size() != height
+                || proof.getPeakIndex() != peakIndex
+                || proof.getOtherPeaks().size() != Long.bitCount(size) - 1) {
+            return false;
+        }
+        MessageDigest md = CryptoUtil.newSha256();
+        byte[] acc = CryptoUtil.hexToBytes(proof.getLeafHash());
+        for (int h = 0; h < height; h++) {
+            byte[] sib = CryptoUtil.hexToBytes(proof.getSiblings().get(h));
+            acc = ((index >> h) & 1) == 0
+                    ? MerkleMountainRange.hashNode(md, acc, sib)
+                    : MerkleMountainRange.hashNode(md, sib, acc);
+        }
+        List<byte[]> peaks = decode(proof.getOtherPeaks());
+        peaks.add(peakIndex, acc);
+        return rootMatches(md, peaks, anchoredRoot);
+    }
+
+    public static boolean verifyConsistency(ConsistencyProof proof, String oldRoot, String newRoot) {
+        long m = proof.getOldSize();
+        long n = proof.getNewSize();
+        if (m <= 0 || m > n || Long.bitCount(m) != proof.getOldPeaks().size()) return false;
+        MessageDigest md = CryptoUtil.newSha256();
+        List<byte[]> oldPeaks = decode(proof.getOldPeaks());
+        if (!rootMatches(md, oldPeaks, oldRoot)) return false;
+        if (m == n) return oldRoot.equals(newRoot);
+
+        int k = 63 - Long.numberOfLeadingZeros(m ^ n);
+        int common = Long.bitCount(m >>> (k + 1));
+        List<byte[]> newPeaks = new ArrayList<>(oldPeaks.subList(0, common));
+        // old peaks below bit k all fold into the new mountain of height k
+        Deque<byte[]> pending = new ArrayDeque<>(oldPeaks.subList(common, oldPeaks.size()));
+        Iterator<String> path = proof.getMergePath().iterator();
+        if (!pending.isEmpty()) {
+            int h = Long.numberOfTrailingZeros(m);
+            long j = (m >> h) - 1;
+            byte[] acc = pending.pollLast();
+            for (; h < k; h++) {
+                if ((j & 1) == 0) {
+                    if (!path.hasNext()) return false;
+                    acc = MerkleMountainRange.hashNode(md, acc, CryptoUtil.hexToBytes(path.next()));
+                } else {
+                    if (pending.isEmpty()) return false;
+                    acc = MerkleMountainRange.hashNode(md, pending.pollLast(), acc);
+                }
+                j >>= 1;
+            }
+            if (!pending.isEmpty()) return false;
+            newPeaks.add(acc);
+        }
+        if (path.hasNext()) return false;
+        newPeaks.addAll(decode(proof.getRightPeaks()));
+        if (newPeaks.size() != Long.bitCount(n)) return false;
+        return rootMatches(md, newPeaks, newRoot);
+    }
+
+    private static boolean rootMatches(MessageDigest md, List<byte[]> peaks, String expectedRoot) {
+        byte[] root = MerkleMountainRange.bagPeaks(md, peaks);
+        return root != null && CryptoUtil.bytesToHex(root).equals(expectedRoot);
+    }
+
+    private static List<byte[]> decode(List<String> hex) {
+        List<byte[]> out = new ArrayList<>(hex.size() + 1);
+        for (String h : hex) out.add(CryptoUtil.hexToBytes(h));
+        return out;
+    }
+}
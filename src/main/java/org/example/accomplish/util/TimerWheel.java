@@ -0,0 +1,77 @@
+package org.example.accomplish.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel: wheelSize buckets of tickMillis each. schedule() drops an item into the
+ * bucket of its deadline tick (O(1), any thread); advance() visits only the buckets whose ticks
+ * have passed and hands due items to the callback. An item whose deadline is a whole revolution
+ * or more away is simply put back when its bucket comes round. An item whose deadline has
+ * already passed goes to the first tick advance() has not visited yet, so it fires on the next
+ * pass (or later in the current one) rather than a revolution later. There is no cancel: the
+ * callback decides whether an item is still relevant, and may schedule it again.
+ */
+public final class TimerWheel<T> {
+    private final long tickMillis;
+    private final Queue<Entry<T>>[] buckets;
+    private final int mask;
+    private volatile long currentTick; // oldest tick advance() has not finished with
+    // oldest bucket an item may have been added to after advance() had visited it
+    private final AtomicLong lateTick = new AtomicLong(Long.MAX_VALUE);
+
+    private static final class Entry<T> {
+        final T item;
+        final long deadline;
+
+        Entry(T item, long deadline) {
+            this.item = item;
+            this.deadline = deadline;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public TimerWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("wheel size must be a power of two: " + wheelSize);
+        }
+        this.tickMillis = tickMillis;
+        this.buckets = (Queue<Entry<T>>[]) new Queue<?>[wheelSize];
+        for (int i = 0; i < wheelSize; i++) buckets[i] = new ConcurrentLinkedQueue<>();
+        this.mask = wheelSize - 1;
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    public void schedule(T item, long deadlineMillis) {
+        long tick = Math.max(deadlineMillis / tickMillis, currentTick);
+        buckets[(int) tick & mask].add(new Entry<>(item, deadlineMillis));
+        // a concurrent advance() may have visited that bucket between the read and the add
+        if (currentTick > tick) lateTick.accumulateAndGet(tick, Math::min);
+    }
+
+    // fires every item due at or before now; returns how many fired
+    public synchronized int advance(long nowMillis, Consumer<T> onExpired) {
+        long lastTick = nowMillis / tickMillis;
+        int fired = 0;
+        // never more than one revolution per call: later ticks share the same buckets
+        long from = Math.max(Math.min(currentTick, lateTick.getAndSet(Long.MAX_VALUE)), lastTick - mask);
+        for (long tick = from; tick <= lastTick; tick++) {
+            currentTick = tick + 1; // items due by now, scheduled from the callback, go to the next tick
+            Queue<Entry<T>> bucket = buckets[(int) tick & mask];
+            for (int n = bucket.size(); n > 0; n--) {
+                Entry<T> e = bucket.poll();
+                if (e == null) break;
+                if (e.deadline <= nowMillis) {
+                    onExpired.accept(e.item);
+                    fired++;
+                } else {
+                    bucket.add(e); // a later revolution
+                }
+            }
+        }
+        currentTick = lastTick; // the current tick may still gain due items
+        return fired;
+    }
+}
@@ -0,0 +1,54 @@
+package org.example.accomplish.util;
+
+import org.example.accomplish.model.InclusionProof;
+import org.example.accomplish.model.UsageRecord;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.*;
+
+/**
+ * A TEE's sealed run of usage records: a Merkle Mountain Range over their canonical (BinaryCodec)
+ * leaves, built once at seal time. The root travels in the aggregated evidence as usageRoot; the
+ * batch itself is kept by AuditService to prove single records under it. Immutable once built.
+ */
+public class UsageBatch {
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(CryptoUtil::newSha256);
+
+    private final List<UsageRecord> records;
+    private final MerkleMountainRange tree = new MerkleMountainRange();
+    private final String rootHex;
+
+    public UsageBatch(List<UsageRecord> records) {
+        if (records.isEmpty()) {
+            throw new IllegalArgumentException("empty usage batch");
+        }
+        this.records = Collections.unmodifiableList(new ArrayList<>(records));
+        for (UsageRecord r : this.records) tree.appendLeafHash(leafHash(r));
+        this.rootHex = CryptoUtil.bytesToHex(tree.rootAt(this.records.size()));
+    }
+
+    public static byte[] leafHash(UsageRecord r) {
+        ByteBuffer buf = BinaryCodec.scratch();
+        BinaryCodec.encodeUsageRecord(r, buf);
+        buf.flip();
+        return MerkleMountainRange.hashLeaf(DIGEST.get(), buf);
+    }
+
+    public List<UsageRecord> getRecords() { return records; }
+    public int size() { return records.size(); }
+    public String getRootHex() { return rootHex; }
+
+    // position of the given call of requestId, or -1; batches are small, so a scan is enough
+    public int indexOf(String requestId, int call) {
+        for (int i = 0; i < records.size(); i++) {
+            UsageRecord r = records.get(i);
+            if (r.getCall() == call && requestId.equals(r.getRequestId())) return i;
+        }
+        return -1;
+    }
+
+    public InclusionProof prove(int index) {
+        return tree.prove(index, records.size());
+    }
+}
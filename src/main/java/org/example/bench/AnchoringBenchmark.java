@@ -0,0 +1,61 @@
+package org.example.bench;
+
+import org.example.accomplish.model.Evidence;
+import org.example.accomplish.service.AuditService;
+import org.example.accomplish.service.SimulatedChain;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * 流水线锚定测试：在模拟链（出块时间、确认深度、失败率、重组率可调）上，
+ * 比较同时在途的锚定批次数（1 / 4 / 16）对批次吞吐与确认延迟的影响。
+ */
+public class AnchoringBenchmark {
+    static long blockTimeMillis = 20;
+    static int confirmationDepth = 3;
+    static double failureRate = 0.05;
+    static double reorgRate = 0.1;
+    static int batches = 200;
+    static int batchSize = 256;
+
+    public static void main(String[] args) throws Exception {
+        for (int inFlight : new int[]{1, 4, 16}) {
+            run(inFlight);
+        }
+    }
+
+    static void run(int maxInFlight) throws Exception {
+        SimulatedChain chain = new SimulatedChain(blockTimeMillis, confirmationDepth, failureRate, reorgRate);
+        AuditService audit = new AuditService();
+        audit.setVerbose(false);
+        audit.setChain(chain);
+        chain.start();
+
+        Semaphore slots = new Semaphore(maxInFlight);
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(batches);
+        long t0 = System.nanoTime();
+        for (int b = 0; b < batches; b++) {
+            for (int i = 0; i < batchSize; i++) {
+                audit.submitEvidence(EvidenceLogBenchmark.sampleEvidence(i));
+            }
+            slots.acquire();
+            long start = System.nanoTime();
+            audit.flushBatchToChainAsync().thenAccept(r -> {
+                latencies.add((System.nanoTime() - start) / 1_000_000);
+                slots.release();
+                done.countDown();
+            });
+        }
+        done.await();
+        double seconds = (System.nanoTime() - t0) / 1e9;
+        chain.stop();
+
+        Collections.sort(latencies);
+        System.out.printf("在途上限=%d: %d 批 / %.2f s = %.1f 批/秒, 确认延迟 p50=%d ms p99=%d ms, 重新提交=%d, 重组=%d%n",
+                maxInFlight, batches, seconds, batches / seconds,
+                latencies.get(latencies.size() / 2), latencies.get((int) (latencies.size() * 0.99)),
+                audit.getResubmitCount(), chain.getReorgCount());
+    }
+}
@@ -0,0 +1,133 @@
+package org.example.bench;
+
+import org.example.accomplish.model.Evidence;
+import org.example.accomplish.model.WrapDek;
+import org.example.accomplish.util.BinaryCodec;
+import org.example.accomplish.util.CryptoUtil;
+import org.example.accomplish.util.IdUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * 二进制编解码对比：BinaryCodec 规范二进制形式 vs 现有的字符串拼接形式（"a|b|c" + UTF-8）。
+ *
+ * 输出每条记录的字节数、编码/解码耗时，并校验 encode(decode(x)) 与原字节完全一致。
+ */
+public class CodecBenchmark {
+    static int rounds = 5;
+    static int perRound = 500_000;
+
+    public static void main(String[] args) {
+        Evidence[] evidences = new Evidence[1024];
+        for (int i = 0; i < evidences.length; i++) {
+            evidences[i] = EvidenceLogBenchmark.sampleEvidence(i);
+        }
+        WrapDek wrap = sampleWrap();
+
+        ByteBuffer buf = ByteBuffer.allocate(4096);
+        long binBytes = 0, strBytes = 0;
+        for (Evidence e : evidences) {
+            buf.clear();
+            BinaryCodec.encodeEvidence(e, buf);
+            binBytes += buf.position();
+            strBytes += evidenceString(e).getBytes(StandardCharsets.UTF_8).length;
+            checkCanonical(buf);
+        }
+        System.out.printf("Evidence 平均大小: 二进制 %.1f B, 字符串 %.1f B%n",
+                binBytes / (double) evidences.length, strBytes / (double) evidences.length);
+        buf.clear();
+        BinaryCodec.encodeWrapDek(wrap, buf);
+        System.out.printf("WrapDek 大小: 二进制 %d B, 字符串 %d B%n",
+                buf.position(), wrapString(wrap).getBytes(StandardCharsets.UTF_8).length);
+
+        for (int r = 0; r < rounds; r++) {
+            long sink = 0;
+            long t0 = System.nanoTime();
+            for (int i = 0; i < perRound; i++) {
+                buf.clear();
+                BinaryCodec.encodeEvidence(evidences[i & 1023], buf);
+                sink += buf.position();
+            }
+            long binEnc = System.nanoTime() - t0;
+            t0 = System.nanoTime();
+            for (int i = 0; i < perRound; i++) {
+                sink += evidenceString(evidences[i & 1023]).getBytes(StandardCharsets.UTF_8).length;
+            }
+            long strEnc = System.nanoTime() - t0;
+
+            buf.clear();
+            BinaryCodec.encodeEvidence(evidences[0], buf);
+            buf.flip();
+            byte[] strForm = evidenceString(evidences[0]).getBytes(StandardCharsets.UTF_8);
+            t0 = System.nanoTime();
+            for (int i = 0; i < perRound; i++) {
+                sink += BinaryCodec.decodeEvidence(buf.duplicate()).getTimestamp();
+            }
+            long binDec = System.nanoTime() - t0;
+            t0 = System.nanoTime();
+            for (int i = 0; i < perRound; i++) {
+                sink += parseEvidenceString(new String(strForm, StandardCharsets.UTF_8)).getTimestamp();
+            }
+            long strDec = System.nanoTime() - t0;
+            System.out.printf("第 %d 轮 ns/条: 编码 二进制 %.0f / 字符串 %.0f，解码 二进制 %.0f / 字符串 %.0f (sink=%d)%n",
+                    r + 1, binEnc / (double) perRound, strEnc / (double) perRound,
+                    binDec / (double) perRound, strDec / (double) perRound, sink & 1);
+        }
+    }
+
+    static void checkCanonical(ByteBuffer encoded) {
+        ByteBuffer original = (ByteBuffer) encoded.duplicate().flip();
+        ByteBuffer again = ByteBuffer.allocate(original.remaining());
+        BinaryCodec.encodeEvidence(BinaryCodec.decodeEvidence(original.duplicate()), again);
+        again.flip();
+        if (!again.equals(original)) {
+            throw new IllegalStateException("encoding is not canonical");
+        }
+    }
+
+    static String evidenceString(Evidence e) {
+        return e.getEvidenceId() + "|" + e.getRequestId() + "|" + e.getRequesterDid() + "|" + e.getAttestationSummaryHash()
+                + "|" + e.getDecisionResult() + "|" + e.getTimestamp() + "|" + e.getKmsSignature() + "|" + e.getTeeSignature();
+    }
+
+    static Evidence parseEvidenceString(String s) {
+        String[] f = s.split("\\|", -1);
+        Evidence e = new Evidence();
+        e.setEvidenceId(f[0]);
+        e.setRequestId(f[1]);
+        e.setRequesterDid(f[2]);
+        e.setAttestationSummaryHash(f[3]);
+        e.setDecisionResult(f[4]);
+        e.setTimestamp(Long.parseLong(f[5]));
+        e.setKmsSignature(f[6]);
+        e.setTeeSignature(f[7]);
+        return e;
+    }
+
+    static String wrapString(WrapDek w) {
+        return w.getWrapDekId() + "|" + w.getRequestId() + "|" + CryptoUtil.bytesToHex(w.getEncryptedDek()) + "|" + w.getRecipientTeeId()
+                + "|" + w.getRecipientPublicKeyFingerprint() + "|" + w.getValidFrom() + "|" + w.getValidTo() + "|" + w.getUsageConstraints()
+                + "|" + w.getBoundReceiptIdSha256() + "|" + w.getBoundAuthorizationIdSha256() + "|" + w.getKmsSignature() + "|" + w.isRevoked();
+    }
+
+    static WrapDek sampleWrap() {
+        WrapDek w = new WrapDek();
+        w.setWrapDekId(IdUtil.randomUUID());
+        w.setRequestId(IdUtil.randomUUID());
+        w.setEncryptedDek(CryptoUtil.randomBytes(16));
+        w.setRecipientTeeId("tee:example:alice:1");
+        w.setRecipientPublicKeyFingerprint("alice-public-key-sim");
+        w.setValidFrom(System.currentTimeMillis());
+        w.setValidTo(w.getValidFrom() + 60_000L);
+        Map<String, String> usage = new HashMap<>();
+        usage.put("maxCalls", "3");
+        usage.put("purpose", "analysis");
+        w.setUsageConstraints(usage);
+        w.setBoundReceiptIdSha256(CryptoUtil.sha256Hex(IdUtil.randomUUID()));
+        w.setBoundAuthorizationIdSha256(CryptoUtil.sha256Hex(IdUtil.randomUUID()));
+        w.setKmsSignature("kms-sig:" + CryptoUtil.sha256Hex("x"));
+        return w;
+    }
+}
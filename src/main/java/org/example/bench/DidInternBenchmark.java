@@ -0,0 +1,95 @@
+package org.example.bench;
+
+import org.example.accomplish.util.DidInterner;
+import org.example.accomplish.util.IntObjectMap;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * DID 驻留：10 万个 DID，每个请求带一个新解码的 DID 字符串（哈希尚未计算），依次查 3 个按 DID
+ * 建立的索引（DID 解析、授权、审计）。对比 String 为键的 HashMap 与“驻留一次 + 3 个
+ * IntObjectMap”两种方式的单请求耗时（ns）与索引内存（字节/DID），以及 id 随请求传递、
+ * 不再查字符串时的耗时。
+ */
+public class DidInternBenchmark {
+    static int dids = 100_000;
+    static int requests = 4_000_000;
+    static int indexes = 3;
+
+    public static void main(String[] args) {
+        String[] all = new String[dids];
+        for (int i = 0; i < dids; i++) all[i] = "did:idata:" + String.format("%032x", i * 2654435761L);
+        // a request's DID as it arrives off the wire: decoded into a fresh String, hash not yet computed
+        char[][] wire = new char[4096][];
+        for (int i = 0; i < wire.length; i++) wire[i] = all[(int) ((i * 7919L) % dids)].toCharArray();
+
+        long before = usedMemory();
+        @SuppressWarnings("unchecked")
+        Map<String, Object>[] stringMaps = (Map<String, Object>[]) new Map<?, ?>[indexes];
+        for (int k = 0; k < indexes; k++) {
+            stringMaps[k] = new HashMap<>();
+            for (String d : all) stringMaps[k].put(d, d);
+        }
+        long stringBytes = usedMemory() - before;
+
+        before = usedMemory();
+        DidInterner interner = new DidInterner();
+        @SuppressWarnings("unchecked")
+        IntObjectMap<Object>[] intMaps = (IntObjectMap<Object>[]) new IntObjectMap<?>[indexes];
+        for (int k = 0; k < indexes; k++) intMaps[k] = new IntObjectMap<>();
+        for (String d : all) {
+            int id = interner.intern(d);
+            for (int k = 0; k < indexes; k++) intMaps[k].put(id, d);
+        }
+        long internBytes = usedMemory() - before;
+
+        int[] wireIds = new int[wire.length];
+        for (int i = 0; i < wire.length; i++) wireIds[i] = interner.idOf(new String(wire[i]));
+
+        long bestDecode = Long.MAX_VALUE, bestString = Long.MAX_VALUE, bestInt = Long.MAX_VALUE, bestCarried = Long.MAX_VALUE;
+        long sink = 0;
+        for (int r = 0; r < 5; r++) {
+            long t0 = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                sink += new String(wire[i & (wire.length - 1)]).length();
+            }
+            bestDecode = Math.min(bestDecode, System.nanoTime() - t0);
+
+            t0 = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                String d = new String(wire[i & (wire.length - 1)]);
+                for (int k = 0; k < indexes; k++) if (stringMaps[k].get(d) != null) sink++;
+            }
+            bestString = Math.min(bestString, System.nanoTime() - t0);
+
+            t0 = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                int id = interner.idOf(new String(wire[i & (wire.length - 1)]));
+                for (int k = 0; k < indexes; k++) if (intMaps[k].get(id) != null) sink++;
+            }
+            bestInt = Math.min(bestInt, System.nanoTime() - t0);
+
+            // the id travels with the request (DidReceipt.getDidId()), no string lookup at all
+            t0 = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                int id = wireIds[i & (wire.length - 1)];
+                for (int k = 0; k < indexes; k++) if (intMaps[k].get(id) != null) sink++;
+            }
+            bestCarried = Math.min(bestCarried, System.nanoTime() - t0);
+        }
+        System.out.printf("String 键 HashMap x%d: %6.1f ns/请求（不含解码）, 索引 %5.1f 字节/DID%n",
+                indexes, (bestString - bestDecode) / (double) requests, stringBytes / (double) dids);
+        System.out.printf("驻留 + IntObjectMap x%d: %6.1f ns/请求（不含解码）, 索引 %5.1f 字节/DID (其中驻留表 %.1f)%n",
+                indexes, (bestInt - bestDecode) / (double) requests, internBytes / (double) dids,
+                interner.tableBytes() / (double) dids);
+        System.out.printf("已持有 id + IntObjectMap x%d: %6.1f ns/请求%n", indexes, bestCarried / (double) requests);
+        System.out.println("(" + sink + ")");
+    }
+
+    static long usedMemory() {
+        for (int i = 0; i < 3; i++) System.gc();
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -0,0 +1,73 @@
+package org.example.bench;
+
+import org.example.accomplish.service.CachingDidResolver;
+import org.example.accomplish.service.DidRegistry;
+import org.example.accomplish.service.LedgerDidResolver;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * DID 解析：账本查询模拟 20ms±5ms 延迟，16 个线程按热点分布（80% 请求落在 10% 的 DID 上）
+ * 发起解析，其中 5% 为未注册 DID。对比直接查询账本与经 CachingDidResolver 的
+ * 单次解析延迟（p50/p99）和账本调用次数。
+ */
+public class DidResolutionBenchmark {
+    static int threads = 16;
+    static int dids = 2_000;
+    static int lookupsPerThread = 2_000;
+
+    public static void main(String[] args) throws Exception {
+        DidRegistry registry = new DidRegistry();
+        for (int i = 0; i < dids; i++) registry.register(did(i), "bench-public-key-" + i);
+
+        LedgerDidResolver direct = new LedgerDidResolver(registry, 20, 5);
+        // direct ledger reads are slow, so that run does a tenth of the lookups
+        report("直接查询账本", run(direct::resolve, lookupsPerThread / 10), direct.getCallCount());
+
+        LedgerDidResolver ledger = new LedgerDidResolver(registry, 20, 5);
+        CachingDidResolver cache = new CachingDidResolver(ledger, 2_000, 500, 0.8, 1 << 16, 4);
+        report("缓存 TTL=2s", run(cache::resolve, lookupsPerThread), ledger.getCallCount());
+        System.out.printf("  命中 %d, 未命中 %d, 合并 %d, 提前刷新 %d%n",
+                cache.getHitCount(), cache.getMissCount(), cache.getCoalescedCount(), cache.getRefreshCount());
+        cache.shutdown();
+    }
+
+    interface Lookup {
+        Object resolve(String did);
+    }
+
+    static long[] run(Lookup lookup, int perThread) throws InterruptedException {
+        long[] latencies = new long[threads * perThread];
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int base = t * perThread;
+            new Thread(() -> {
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                for (int i = 0; i < perThread; i++) {
+                    String d;
+                    if (rnd.nextInt(100) < 5) d = "did:idata:unregistered-" + rnd.nextInt(100);
+                    else if (rnd.nextInt(100) < 80) d = did(rnd.nextInt(dids / 10));
+                    else d = did(rnd.nextInt(dids));
+                    long t0 = System.nanoTime();
+                    lookup.resolve(d);
+                    latencies[base + i] = System.nanoTime() - t0;
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        return latencies;
+    }
+
+    static void report(String name, long[] latencies, long ledgerCalls) {
+        Arrays.sort(latencies);
+        System.out.printf("%s: %d 次解析, p50 %.3f ms, p99 %.3f ms, 账本调用 %d 次%n", name, latencies.length,
+                latencies[latencies.length / 2] / 1e6, latencies[(int) (latencies.length * 0.99)] / 1e6, ledgerCalls);
+    }
+
+    static String did(int i) {
+        return "did:idata:" + String.format("%032x", i);
+    }
+}
@@ -0,0 +1,201 @@
+package org.example.bench;
+
+import org.example.accomplish.model.Request;
+import org.example.accomplish.service.*;
+import org.example.accomplish.util.CryptoUtil;
+import org.example.accomplish.util.IdUtil;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TEE 集群仿真：2,000 个 TEE、20,000 个 DID、64 个资源。每个 DID 按一致性哈希路由到一个 TEE，
+ * 持有一个资源的授权并发起 3 个请求（请求的资源各不相同，由 TEE 按 wrap 中的 resourceId 读取）。
+ * 随后 8 个工作线程执行 20 万个混合操作（解封 15%、使用 84%、撤销授权 1%），任务在共享线程池上
+ * 运行，而不是每个 TEE 一个线程。报告总体与各操作类型的吞吐和延迟、撤销传播延迟，以及按 TEE
+ * 统计的吞吐与延迟分布和最繁忙的 TEE。
+ *
+ * 参数：[TEE 数] [DID 数] [操作数] [工作线程数]
+ */
+public class FleetSimulator {
+    static int teeCount = 2_000;
+    static int didCount = 20_000;
+    static int resources = 64;
+    static int requestsPerDid = 3;
+    static int operations = 200_000;
+    static int workers = 8;
+    static int maxInFlight = 4_096;
+
+    static final int UNWRAP = 0, USE = 1, REVOKE = 2;
+    static final String[] OP_NAMES = {"解封", "使用", "撤销"};
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) teeCount = Integer.parseInt(args[0]);
+        if (args.length > 1) didCount = Integer.parseInt(args[1]);
+        if (args.length > 2) operations = Integer.parseInt(args[2]);
+        if (args.length > 3) workers = Integer.parseInt(args[3]);
+
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) { }
+        }));
+        ResourceStore resourceStore = new ResourceStore();
+        PolicyContract policy = new PolicyContract();
+        DidRegistry didRegistry = new DidRegistry();
+        AuditService audit = new AuditService();
+        audit.setVerbose(false);
+        KmsService kms = new KmsService(policy, didRegistry, audit, resourceStore);
+        long t0 = System.currentTimeMillis();
+        TeeFleet fleet = new TeeFleet(teeCount, workers, audit, kms, resourceStore);
+        fleet.enableUsageAggregation(UsageAggregator.DEFAULT_MAX_RECORDS, UsageAggregator.DEFAULT_MAX_DELAY_MILLIS);
+        RevocationBus bus = new RevocationBus(kms, 4, 256);
+        bus.addFleet(fleet);
+        policy.addListener(bus);
+        List<Long> revocationNanos = Collections.synchronizedList(new ArrayList<>());
+        bus.setDeliveryListener((authId, wraps, latencyNanos) -> revocationNanos.add(latencyNanos));
+        bus.start();
+
+        for (int r = 0; r < resources; r++) {
+            resourceStore.createResource("resource-" + r, ("fleet resource " + r).getBytes(StandardCharsets.UTF_8));
+        }
+        String[] dids = new String[didCount];
+        String[] authIds = new String[didCount];
+        int[] didsPerTee = new int[teeCount];
+        List<String[]> requests = new ArrayList<>(didCount * requestsPerDid); // {requestId, did, didIndex}
+        for (int d = 0; d < didCount; d++) {
+            dids[d] = "did:idata:" + CryptoUtil.sha256Hex("fleet-did-" + d).substring(0, 32);
+            didRegistry.register(dids[d], "fleet-public-key-" + d);
+            String resourceId = "resource-" + (d % resources);
+            authIds[d] = policy.publishAuthorization(resourceId, dids[d], 3_600);
+            String teeId = fleet.teeIdForDid(dids[d]);
+            didsPerTee[fleet.indexOf(teeId)]++;
+            for (int k = 0; k < requestsPerDid; k++) {
+                Request req = new Request();
+                req.setRequestId(IdUtil.randomUUID());
+                req.setRequesterDid(dids[d]);
+                req.setResourceId(resourceId);
+                req.setAuthorizationTxId(authIds[d]);
+                req.setTimestamp(System.currentTimeMillis());
+                req.setAttestationSummaryHash(CryptoUtil.sha256Hex("simulated-attestation-" + teeId));
+                req.setSignature("sig-simulated");
+                if (kms.handleRequest(req, teeId)) {
+                    requests.add(new String[]{req.getRequestId(), dids[d], Integer.toString(d)});
+                }
+            }
+        }
+        audit.flushBatchToChain();
+        kms.tryIssuePendingWraps();
+        fleet.startMaintenance(1_000);
+        long setupMillis = System.currentTimeMillis() - t0;
+
+        // per-TEE latencies (nanos) and per-op-type latencies, filled by the worker tasks
+        long[][] teeLatencies = new long[teeCount][16];
+        int[] teeOps = new int[teeCount];
+        long[][] opLatencies = new long[3][operations];
+        AtomicInteger[] opCounts = {new AtomicInteger(), new AtomicInteger(), new AtomicInteger()};
+        AtomicLong[] opOk = {new AtomicLong(), new AtomicLong(), new AtomicLong()};
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        CountDownLatch done = new CountDownLatch(operations);
+        Random rnd = new Random(42);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            int roll = rnd.nextInt(100);
+            int op = roll < 15 ? UNWRAP : roll < 99 ? USE : REVOKE;
+            String[] req = requests.get(rnd.nextInt(requests.size()));
+            int didIndex = Integer.parseInt(req[2]);
+            int teeIndex = fleet.indexForDid(req[1]);
+            TeeEnvironment tee = fleet.tee(teeIndex);
+            inFlight.acquire();
+            fleet.submit(() -> {
+                long s = System.nanoTime();
+                boolean ok;
+                if (op == UNWRAP) {
+                    ok = tee.acceptWrapAndUnwrap(req[0]);
+                } else if (op == USE) {
+                    ok = tee.simulateUse(req[0], req[1]);
+                } else {
+                    policy.revokeAuthorization(authIds[didIndex]); // propagates through the bus
+                    ok = true;
+                }
+                long nanos = System.nanoTime() - s;
+                opLatencies[op][opCounts[op].getAndIncrement()] = nanos;
+                if (ok) opOk[op].incrementAndGet();
+                synchronized (teeLatencies[teeIndex]) {
+                    long[] l = teeLatencies[teeIndex];
+                    if (teeOps[teeIndex] == l.length) teeLatencies[teeIndex] = l = Arrays.copyOf(l, l.length * 2);
+                    l[teeOps[teeIndex]++] = nanos;
+                }
+                return null;
+            }).whenComplete((v, ex) -> {
+                inFlight.release();
+                done.countDown();
+            });
+        }
+        done.await();
+        long wallNanos = System.nanoTime() - start;
+        bus.awaitDelivered(10_000);
+        fleet.shutdown();
+        bus.stop();
+        System.setOut(out);
+
+        double wallSec = wallNanos / 1e9;
+        System.out.printf("集群: %d 个 TEE, %d 个 DID, %d 个请求, %d 个工作线程; 准备耗时 %d ms%n",
+                teeCount, didCount, requests.size(), workers, setupMillis);
+        int[] routed = didsPerTee.clone();
+        Arrays.sort(routed);
+        System.out.printf("路由: 每个 TEE 的 DID 数 最少 %d / 中位 %d / 最多 %d (平均 %.1f)%n",
+                routed[0], routed[routed.length / 2], routed[routed.length - 1], didCount / (double) teeCount);
+        System.out.printf("总体: %d 次操作, 耗时 %.2f s, %.0f 次/秒%n", operations, wallSec, operations / wallSec);
+        for (int op = 0; op < 3; op++) {
+            int n = opCounts[op].get();
+            long[] l = Arrays.copyOf(opLatencies[op], n);
+            Arrays.sort(l);
+            System.out.printf("  %s: %d 次 (成功 %d), %.0f 次/秒, p50 %.1f µs, p99 %.1f µs, 最大 %.1f µs%n",
+                    OP_NAMES[op], n, opOk[op].get(), n / wallSec, pct(l, 0.50) / 1e3, pct(l, 0.99) / 1e3,
+                    n == 0 ? 0 : l[n - 1] / 1e3);
+        }
+        long[] rev;
+        synchronized (revocationNanos) {
+            rev = new long[revocationNanos.size()];
+            for (int i = 0; i < rev.length; i++) rev[i] = revocationNanos.get(i);
+        }
+        Arrays.sort(rev);
+        System.out.printf("撤销传播 (链上撤销 -> KMS -> 接收方 TEE): %d 次, p50 %.2f ms, p99 %.2f ms%n",
+                rev.length, pct(rev, 0.50) / 1e6, pct(rev, 0.99) / 1e6);
+
+        double[] teeRate = new double[teeCount];
+        double[] teeP99 = new double[teeCount];
+        Integer[] order = new Integer[teeCount];
+        for (int t = 0; t < teeCount; t++) {
+            long[] l = Arrays.copyOf(teeLatencies[t], teeOps[t]);
+            Arrays.sort(l);
+            teeRate[t] = teeOps[t] / wallSec;
+            teeP99[t] = pct(l, 0.99) / 1e3;
+            order[t] = t;
+        }
+        double[] rates = teeRate.clone();
+        double[] p99s = teeP99.clone();
+        Arrays.sort(rates);
+        Arrays.sort(p99s);
+        System.out.printf("按 TEE: 吞吐 最少 %.1f / 中位 %.1f / 最多 %.1f 次/秒; p99 延迟 中位 %.1f µs / 最大 %.1f µs%n",
+                rates[0], rates[teeCount / 2], rates[teeCount - 1], p99s[teeCount / 2], p99s[teeCount - 1]);
+        Arrays.sort(order, (a, b) -> Integer.compare(teeOps[b], teeOps[a]));
+        for (int k = 0; k < Math.min(3, teeCount); k++) {
+            int t = order[k];
+            System.out.printf("  最繁忙 %s: %d 个 DID, %d 次操作, %.1f 次/秒, p99 %.1f µs%n",
+                    fleet.tee(t).getTeeId(), didsPerTee[t], teeOps[t], teeRate[t], teeP99[t]);
+        }
+        System.out.printf("结束时: 会话 %d, 解封 %d 次%n", fleet.getSessionCount(), fleet.getUnwrapCount());
+    }
+
+    static long pct(long[] sorted, double q) {
+        return sorted.length == 0 ? 0 : sorted[Math.min(sorted.length - 1, (int) (sorted.length * q))];
+    }
+}
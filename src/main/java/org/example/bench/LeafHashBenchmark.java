@@ -0,0 +1,71 @@
+package org.example.bench;
+
+import org.example.accomplish.model.Evidence;
+import org.example.accomplish.service.AuditService;
+import org.example.accomplish.util.EvidenceLeafHasher;
+import org.example.accomplish.util.MerkleMountainRange;
+import org.example.accomplish.util.CryptoUtil;
+
+import java.security.MessageDigest;
+
+/**
+ * 叶子哈希开销测试：按批次大小比较三种叶子构造的单批耗时
+ * - 仅 evidenceId（原方案）
+ * - 全字段字符串拼接后哈希（朴素方案）
+ * - 全字段规范二进制流式写入复用摘要（FULL_CONTENT，批次较大时并行）
+ * 以及 AuditService 在 ID_ONLY / FULL_CONTENT 下 flushBatchToChain 的端到端耗时。
+ */
+public class LeafHashBenchmark {
+    static int rounds = 5;
+    static int[] batchSizes = {64, 1024, 16_384};
+
+    public static void main(String[] args) {
+        for (int size : batchSizes) {
+            Evidence[] batch = new Evidence[size];
+            for (int i = 0; i < size; i++) {
+                batch[i] = EvidenceLogBenchmark.sampleEvidence(i);
+            }
+            int reps = Math.max(1, 200_000 / size);
+            for (int r = 0; r < rounds; r++) {
+                MessageDigest md = CryptoUtil.newSha256();
+                long sink = 0;
+                long t0 = System.nanoTime();
+                for (int k = 0; k < reps; k++) {
+                    for (Evidence e : batch) sink += MerkleMountainRange.hashLeaf(md, e.getEvidenceId())[0];
+                }
+                long idOnly = System.nanoTime() - t0;
+                t0 = System.nanoTime();
+                for (int k = 0; k < reps; k++) {
+                    for (Evidence e : batch) sink += MerkleMountainRange.hashLeaf(md, CodecBenchmark.evidenceString(e))[0];
+                }
+                long naive = System.nanoTime() - t0;
+                t0 = System.nanoTime();
+                for (int k = 0; k < reps; k++) {
+                    for (Evidence e : batch) sink += EvidenceLeafHasher.fullContent(e)[0];
+                }
+                long streamed = System.nanoTime() - t0;
+                if (r == rounds - 1) {
+                    System.out.printf("批次 %6d 条, 单批 µs: 仅ID %.0f / 字符串拼接 %.0f / 规范流式 %.0f (sink=%d)%n", size,
+                            idOnly / 1e3 / reps, naive / 1e3 / reps, streamed / 1e3 / reps, sink & 1);
+                }
+            }
+            for (EvidenceLeafHasher.Mode mode : EvidenceLeafHasher.Mode.values()) {
+                System.out.printf("批次 %6d 条, %-12s flush 单批 µs: %.0f%n", size, mode, flushMicros(batch, mode, reps));
+            }
+        }
+    }
+
+    static double flushMicros(Evidence[] batch, EvidenceLeafHasher.Mode mode, int reps) {
+        AuditService audit = new AuditService();
+        audit.setVerbose(false);
+        audit.setLeafHashMode(mode);
+        long total = 0;
+        for (int k = 0; k < reps * 2; k++) {
+            for (Evidence e : batch) audit.submitEvidence(e);
+            long t0 = System.nanoTime();
+            audit.flushBatchToChain();
+            if (k >= reps) total += System.nanoTime() - t0; // first half is warm-up
+        }
+        return total / 1e3 / reps;
+    }
+}
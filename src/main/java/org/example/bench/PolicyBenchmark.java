@@ -0,0 +1,45 @@
+package org.example.bench;
+
+import org.example.accomplish.policy.CompiledPolicy;
+import org.example.accomplish.policy.PolicyEngine;
+import org.example.accomplish.policy.RequestAttributes;
+
+/**
+ * 策略评估耗时：规则逐步变复杂（用途、时间窗、调用配额、TEE 身份白名单），
+ * 报告编译后谓词树的单次评估耗时（ns），较大的规则会启用按引用属性记忆的决策缓存。
+ */
+public class PolicyBenchmark {
+    static int perRound = 2_000_000;
+
+    static final String[] RULES = {
+            PolicyEngine.DEFAULT_POLICY,
+            "purpose == \"analysis\" && calls <= 3 => maxCalls=3; purpose=analysis",
+            "purpose in {\"analysis\", \"audit\"} && calls <= 3 && hour >= 0 && hour < 24 => maxCalls=3; purpose=analysis",
+            "(purpose in {\"analysis\", \"audit\"} || did == \"did:idata:00000000000000000000000000000001\") && calls <= 3"
+                    + " && hour >= 0 && hour < 24 && tee in {\"tee:example:alice:1\", \"tee:example:bob:1\", \"tee:fleet:0\", \"tee:fleet:1\"}"
+                    + " && !(purpose == \"marketing\") => maxCalls=3; purpose=analysis",
+    };
+
+    public static void main(String[] args) {
+        PolicyEngine engine = new PolicyEngine();
+        RequestAttributes[] attrs = new RequestAttributes[64];
+        for (int i = 0; i < attrs.length; i++) {
+            attrs[i] = new RequestAttributes(i % 2 == 0 ? "analysis" : "audit", 1 + i % 3, System.currentTimeMillis(),
+                    i % 4 == 0 ? "tee:fleet:0" : "tee:example:alice:1", "did:idata:" + String.format("%032x", i));
+        }
+        for (String rule : RULES) {
+            CompiledPolicy p = engine.compile(rule);
+            int allowed = 0;
+            long best = Long.MAX_VALUE;
+            for (int r = 0; r < 5; r++) {
+                long t0 = System.nanoTime();
+                for (int i = 0; i < perRound; i++) {
+                    if (engine.evaluate(rule, attrs[i & 63]).isAllowed()) allowed++;
+                }
+                best = Math.min(best, System.nanoTime() - t0);
+            }
+            System.out.printf("%5.1f ns/次 (缓存决策 %d 条, 允许 %d): %s%n",
+                    best / (double) perRound, p.cachedDecisionCount(), allowed, rule);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.example.bench;
+
+import org.example.accomplish.model.Request;
+import org.example.accomplish.service.*;
+import org.example.accomplish.util.CryptoUtil;
+import org.example.accomplish.util.IdUtil;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Wrap 预取：wrap 有效期缩短为 2 秒，200 个会话在 8 秒内被轮流持续使用（KMS 下发线程与审计批处理在后台运行）。
+ * 关闭预取时，wrap 到期后的那次使用失败，需要重新提交请求并等待审计回执与签名才能继续，这段时间计为一次停顿；
+ * 开启预取后 TEE 在到期前 1 秒续期并切换会话。报告使用次数、停顿次数与总时长、单次使用的 p99/最大延迟以及续期数。
+ */
+public class PrefetchBenchmark {
+    static int sessions = 200;
+    static long runMillis = 8_000;
+    static long wrapValidityMillis = 2_000;
+    static long renewAheadMillis = 1_000;
+
+    public static void main(String[] args) throws Exception {
+        run(false);
+        run(true);
+    }
+
+    static void run(boolean prefetch) throws Exception {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) { }
+        }));
+        ResourceStore resourceStore = new ResourceStore();
+        PolicyContract policy = new PolicyContract();
+        DidRegistry didRegistry = new DidRegistry();
+        AuditService audit = new AuditService();
+        audit.setVerbose(false);
+        KmsService kms = new KmsService(policy, didRegistry, audit, resourceStore);
+        kms.setWrapValidityMillis(wrapValidityMillis);
+        TeeEnvironment tee = new TeeEnvironment("tee:bench", audit, kms, resourceStore);
+        tee.setUsageAggregator(null);
+
+        resourceStore.createResource("resource-001", "benchmark resource".getBytes(StandardCharsets.UTF_8));
+        String did = "did:idata:" + CryptoUtil.sha256Hex("prefetch-bench").substring(0, 32);
+        didRegistry.register(did, "bench-public-key-sim");
+        String authId = policy.publishAuthorization("resource-001", did, 600, "true => maxCalls=1000000; purpose=analysis");
+
+        audit.startBatcher(256, 50, 1);
+        kms.startIssuer(50);
+        tee.startSweeper(50);
+        if (prefetch) tee.enablePrefetch(renewAheadMillis, renewAheadMillis / 2);
+
+        String[] ids = new String[sessions];
+        for (int i = 0; i < sessions; i++) ids[i] = request(kms, did, authId);
+        for (int i = 0; i < sessions; i++) awaitUse(tee, ids[i], did);
+
+        long[] latencies = new long[1 << 20];
+        int uses = 0, stalls = 0;
+        long stallNanos = 0;
+        long end = System.currentTimeMillis() + runMillis;
+        while (System.currentTimeMillis() < end) {
+            for (int i = 0; i < sessions; i++) {
+                long t0 = System.nanoTime();
+                if (!tee.simulateUse(ids[i], did)) {
+                    // wrap ran out: a fresh request, then wait for its receipt and signature
+                    ids[i] = request(kms, did, authId);
+                    awaitUse(tee, ids[i], did);
+                    stalls++;
+                    stallNanos += System.nanoTime() - t0;
+                }
+                if (uses < latencies.length) latencies[uses] = System.nanoTime() - t0;
+                uses++;
+            }
+            Thread.sleep(20);
+        }
+        tee.stopSweeper();
+        kms.stopIssuer();
+        audit.stopBatcher();
+        System.setOut(out);
+
+        long[] sorted = Arrays.copyOf(latencies, Math.min(uses, latencies.length));
+        Arrays.sort(sorted);
+        System.out.printf("%s: 使用 %d 次, 停顿 %d 次共 %.0f ms, 单次使用 p99 %.2f ms / 最大 %.1f ms, 续期请求 %d, 会话切换 %d%n",
+                prefetch ? "开启预取" : "关闭预取", uses, stalls, stallNanos / 1e6,
+                sorted[(int) (sorted.length * 0.99)] / 1e6, sorted[sorted.length - 1] / 1e6,
+                tee.getRenewalRequestCount(), tee.getSwapCount());
+    }
+
+    static String request(KmsService kms, String did, String authId) {
+        Request req = new Request();
+        req.setRequestId(IdUtil.randomUUID());
+        req.setRequesterDid(did);
+        req.setResourceId("resource-001");
+        req.setAuthorizationTxId(authId);
+        req.setTimestamp(System.currentTimeMillis());
+        req.setAttestationSummaryHash(CryptoUtil.sha256Hex("simulated-attestation"));
+        req.setSignature("sig-simulated");
+        if (!kms.handleRequest(req, "tee:bench")) {
+            throw new IllegalStateException("request rejected");
+        }
+        return req.getRequestId();
+    }
+
+    static void awaitUse(TeeEnvironment tee, String requestId, String did) throws InterruptedException {
+        while (!tee.simulateUse(requestId, did)) Thread.sleep(5);
+    }
+}
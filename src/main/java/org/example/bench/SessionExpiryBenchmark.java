@@ -0,0 +1,81 @@
+package org.example.bench;
+
+import org.example.accomplish.model.Request;
+import org.example.accomplish.service.*;
+import org.example.accomplish.util.CryptoUtil;
+import org.example.accomplish.util.IdUtil;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 会话到期清理：单个 TEE 上建立 10 万个会话（各使用一次），空闲超时 1 秒。
+ * 报告每个会话的堆内存、一次扫描销毁全部到期 DEK 的耗时，以及扫描后仍存活的 DEK 数。
+ */
+public class SessionExpiryBenchmark {
+    static int sessions = 100_000;
+
+    public static void main(String[] args) throws Exception {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) { }
+        }));
+        ResourceStore resourceStore = new ResourceStore();
+        PolicyContract policy = new PolicyContract();
+        DidRegistry didRegistry = new DidRegistry();
+        AuditService audit = new AuditService();
+        audit.setVerbose(false);
+        KmsService kms = new KmsService(policy, didRegistry, audit, resourceStore);
+
+        resourceStore.createResource("resource-001", "benchmark resource".getBytes(StandardCharsets.UTF_8));
+        String did = "did:idata:" + CryptoUtil.sha256Hex("session-expiry-bench").substring(0, 32);
+        didRegistry.register(did, "bench-public-key-sim");
+        String authId = policy.publishAuthorization("resource-001", did, 600);
+        List<String> requestIds = new ArrayList<>();
+        for (int i = 0; i < sessions; i++) {
+            Request req = new Request();
+            req.setRequestId(IdUtil.randomUUID());
+            req.setRequesterDid(did);
+            req.setResourceId("resource-001");
+            req.setAuthorizationTxId(authId);
+            req.setTimestamp(System.currentTimeMillis());
+            req.setAttestationSummaryHash(CryptoUtil.sha256Hex("simulated-attestation-" + did));
+            req.setSignature("sig-simulated");
+            kms.handleRequest(req, "tee:bench");
+            requestIds.add(req.getRequestId());
+        }
+        audit.flushBatchToChain();
+        kms.tryIssuePendingWraps();
+
+        long before = usedMemory();
+        TeeEnvironment tee = new TeeEnvironment("tee:bench", audit, kms, resourceStore);
+        tee.setIdleTimeoutMillis(1_000);
+        for (String requestId : requestIds) {
+            tee.acceptWrapAndUnwrap(requestId);
+        }
+        long liveBytes = usedMemory() - before;
+        int liveKeys = tee.getLiveKeyCount();
+
+        Thread.sleep(1_200);
+        long t0 = System.nanoTime();
+        int destroyed = tee.sweepExpired(System.currentTimeMillis());
+        long sweepNanos = System.nanoTime() - t0;
+        long idleBytes = usedMemory() - before;
+        System.setOut(out);
+
+        System.out.printf("%d 个活跃会话: 堆内存 %.0f 字节/会话, 存活 DEK %d%n", sessions, liveBytes / (double) sessions, liveKeys);
+        System.out.printf("空闲扫描: 销毁 %d 个 DEK, 耗时 %.1f ms (%.2f µs/会话), 扫描后存活 DEK %d, 空闲会话堆内存 %.0f 字节/会话%n",
+                destroyed, sweepNanos / 1e6, sweepNanos / 1e3 / Math.max(1, destroyed), tee.getLiveKeyCount(),
+                idleBytes / (double) sessions);
+    }
+
+    static long usedMemory() {
+        for (int i = 0; i < 3; i++) System.gc();
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -0,0 +1,93 @@
+package org.example.bench;
+
+import org.example.accomplish.model.Request;
+import org.example.accomplish.model.WrapDek;
+import org.example.accomplish.service.*;
+import org.example.accomplish.util.CryptoUtil;
+import org.example.accomplish.util.IdUtil;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * 定向会话撤销：单个 TEE 上分别建立 1 万 / 10 万个活跃会话（每个授权 100 个会话），
+ * 逐个撤销 1,000 个 wrap，再按授权撤销 20 个授权（每个 100 个会话），
+ * 报告单次撤销耗时（µs）。按索引撤销时开销只与受影响会话数有关，与活跃会话总数无关。
+ */
+public class SessionRevocationBenchmark {
+    static int sessionsPerAuthorization = 100;
+
+    public static void main(String[] args) throws Exception {
+        for (int sessions : new int[]{10_000, 100_000}) {
+            run(sessions);
+        }
+    }
+
+    static void run(int sessionCount) throws Exception {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) { }
+        }));
+        ResourceStore resourceStore = new ResourceStore();
+        PolicyContract policy = new PolicyContract();
+        DidRegistry didRegistry = new DidRegistry();
+        AuditService audit = new AuditService();
+        audit.setVerbose(false);
+        KmsService kms = new KmsService(policy, didRegistry, audit, resourceStore);
+        TeeEnvironment tee = new TeeEnvironment("tee:bench", audit, kms, resourceStore);
+
+        resourceStore.createResource("resource-001", "benchmark resource".getBytes(StandardCharsets.UTF_8));
+        String did = "did:idata:" + CryptoUtil.sha256Hex("session-revocation-bench").substring(0, 32);
+        didRegistry.register(did, "bench-public-key-sim");
+        List<String> authIds = new ArrayList<>();
+        List<String> requestIds = new ArrayList<>();
+        for (int a = 0; a < sessionCount / sessionsPerAuthorization; a++) {
+            String authId = policy.publishAuthorization("resource-001", did, 600);
+            authIds.add(authId);
+            for (int s = 0; s < sessionsPerAuthorization; s++) {
+                Request req = new Request();
+                req.setRequestId(IdUtil.randomUUID());
+                req.setRequesterDid(did);
+                req.setResourceId("resource-001");
+                req.setAuthorizationTxId(authId);
+                req.setTimestamp(System.currentTimeMillis());
+                req.setAttestationSummaryHash(CryptoUtil.sha256Hex("simulated-attestation-" + did));
+                req.setSignature("sig-simulated");
+                kms.handleRequest(req, "tee:bench");
+                requestIds.add(req.getRequestId());
+            }
+        }
+        audit.flushBatchToChain();
+        kms.tryIssuePendingWraps();
+        for (String requestId : requestIds) {
+            tee.acceptWrapAndUnwrap(requestId);
+        }
+
+        // single wraps, spread over the whole session table
+        int wrapRevocations = 1_000;
+        long t0 = System.nanoTime();
+        int revoked = 0;
+        for (int i = 0; i < wrapRevocations; i++) {
+            WrapDek w = kms.getWrapByRequest(requestIds.get(i * (requestIds.size() / wrapRevocations)));
+            revoked += tee.onRevokeWraps(Collections.singletonList(w.getWrapDekId()));
+        }
+        long wrapNanos = System.nanoTime() - t0;
+
+        // whole authorizations, from the end of the list (untouched above)
+        int authRevocations = 20;
+        t0 = System.nanoTime();
+        int authRevoked = 0;
+        for (int i = 0; i < authRevocations; i++) {
+            authRevoked += tee.onRevokeAuthorization(authIds.get(authIds.size() - 1 - i));
+        }
+        long authNanos = System.nanoTime() - t0;
+        System.setOut(out);
+
+        System.out.printf("%d 个活跃会话: 按 wrap 撤销 %.1f µs/次 (销毁 %d 个会话); 按授权撤销 %.1f µs/次 (销毁 %d 个会话)%n",
+                tee.getSessionCount(), wrapNanos / 1e3 / wrapRevocations, revoked,
+                authNanos / 1e3 / authRevocations, authRevoked);
+    }
+}
@@ -0,0 +1,95 @@
+package org.example.bench;
+
+import org.example.accomplish.model.Request;
+import org.example.accomplish.service.*;
+import org.example.accomplish.util.CryptoUtil;
+import org.example.accomplish.util.IdUtil;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TEE 并发使用：2,000 个请求（默认策略 maxCalls=3），1/2/4/8 个线程随机并发调用 simulateUse，
+ * 每个请求的会话在首次使用时懒解封。统计吞吐（次/秒）、成功使用次数是否超过配额、
+ * 以及解封次数（单飞行时应等于请求数）。
+ */
+public class TeeConcurrencyBenchmark {
+    static int requests = 2_000;
+    static int attemptsPerThread = 20_000;
+
+    public static void main(String[] args) throws Exception {
+        for (int threads : new int[]{1, 2, 4, 8}) {
+            run(threads);
+        }
+    }
+
+    static void run(int threads) throws Exception {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) { }
+        }));
+        ResourceStore resourceStore = new ResourceStore();
+        PolicyContract policy = new PolicyContract();
+        DidRegistry didRegistry = new DidRegistry();
+        AuditService audit = new AuditService();
+        audit.setVerbose(false);
+        KmsService kms = new KmsService(policy, didRegistry, audit, resourceStore);
+        TeeEnvironment tee = new TeeEnvironment("tee:bench", audit, kms, resourceStore);
+
+        resourceStore.createResource("resource-001", "benchmark resource".getBytes(StandardCharsets.UTF_8));
+        String did = "did:idata:" + CryptoUtil.sha256Hex("tee-concurrency-bench").substring(0, 32);
+        didRegistry.register(did, "bench-public-key-sim");
+        String authId = policy.publishAuthorization("resource-001", did, 600);
+        String[] requestIds = new String[requests];
+        for (int i = 0; i < requests; i++) {
+            Request req = new Request();
+            req.setRequestId(IdUtil.randomUUID());
+            req.setRequesterDid(did);
+            req.setResourceId("resource-001");
+            req.setAuthorizationTxId(authId);
+            req.setTimestamp(System.currentTimeMillis());
+            req.setAttestationSummaryHash(CryptoUtil.sha256Hex("simulated-attestation-" + did));
+            req.setSignature("sig-simulated");
+            kms.handleRequest(req, "tee:bench");
+            requestIds[i] = req.getRequestId();
+        }
+        audit.flushBatchToChain();
+        kms.tryIssuePendingWraps();
+
+        AtomicLong ok = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                long n = 0;
+                for (int i = 0; i < attemptsPerThread; i++) {
+                    if (tee.simulateUse(requestIds[rnd.nextInt(requests)], did)) n++;
+                }
+                ok.addAndGet(n);
+                done.countDown();
+            }).start();
+        }
+        long t0 = System.nanoTime();
+        start.countDown();
+        done.await();
+        long nanos = System.nanoTime() - t0;
+        System.setOut(out);
+
+        long attempts = (long) threads * attemptsPerThread;
+        System.out.printf("%d 线程: %.0f 次/秒, 成功 %d 次 (配额上限 %d, %s), 解封 %d 次, 会话 %d%n",
+                threads, attempts / (nanos / 1e9), ok.get(), requests * 3L,
+                ok.get() <= requests * 3L ? "未超额" : "超额!", tee.getUnwrapCount(), tee.getSessionCount());
+    }
+}
@@ -0,0 +1,94 @@
+package org.example.bench;
+
+import org.example.accomplish.model.Request;
+import org.example.accomplish.model.UsageProof;
+import org.example.accomplish.service.*;
+import org.example.accomplish.util.CryptoUtil;
+import org.example.accomplish.util.IdUtil;
+import org.example.accomplish.util.MerkleProofVerifier;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * TEE 使用凭证聚合：20,000 个请求各使用 3 次（共 6 万次），对比逐次上报 TEE_USAGE_OK 与
+ * 本地缓冲后按 N 条封存为一条 TEE_USAGE_BATCH。报告使用吞吐、进入审计队列的凭证数、
+ * 一次上链（叶子哈希 + 累加器追加）的耗时，以及抽样单次使用证明的生成与校验是否通过。
+ */
+public class UsageBatchingBenchmark {
+    static int requests = 20_000;
+    static int callsPerRequest = 3;
+
+    public static void main(String[] args) throws Exception {
+        run(0);
+        for (int n : new int[]{16, 256, 4096}) {
+            run(n);
+        }
+    }
+
+    // maxRecords 0: no aggregator, one evidence per use
+    static void run(int maxRecords) throws Exception {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) { }
+        }));
+        ResourceStore resourceStore = new ResourceStore();
+        PolicyContract policy = new PolicyContract();
+        DidRegistry didRegistry = new DidRegistry();
+        AuditService audit = new AuditService();
+        audit.setVerbose(false);
+        KmsService kms = new KmsService(policy, didRegistry, audit, resourceStore);
+        TeeEnvironment tee = new TeeEnvironment("tee:bench", audit, kms, resourceStore);
+        tee.setUsageAggregator(maxRecords == 0 ? null : new UsageAggregator(audit, "tee:bench", maxRecords, 60_000));
+
+        resourceStore.createResource("resource-001", "benchmark resource".getBytes(StandardCharsets.UTF_8));
+        String did = "did:idata:" + CryptoUtil.sha256Hex("usage-batching-bench").substring(0, 32);
+        didRegistry.register(did, "bench-public-key-sim");
+        String authId = policy.publishAuthorization("resource-001", did, 600);
+        String[] requestIds = new String[requests];
+        for (int i = 0; i < requests; i++) {
+            Request req = new Request();
+            req.setRequestId(IdUtil.randomUUID());
+            req.setRequesterDid(did);
+            req.setResourceId("resource-001");
+            req.setAuthorizationTxId(authId);
+            req.setTimestamp(System.currentTimeMillis());
+            req.setAttestationSummaryHash(CryptoUtil.sha256Hex("simulated-attestation-" + did));
+            req.setSignature("sig-simulated");
+            kms.handleRequest(req, "tee:bench");
+            requestIds[i] = req.getRequestId();
+        }
+        audit.flushBatchToChain();
+        kms.tryIssuePendingWraps();
+        for (String requestId : requestIds) {
+            tee.acceptWrapAndUnwrap(requestId);
+        }
+
+        long t0 = System.nanoTime();
+        for (int c = 0; c < callsPerRequest; c++) {
+            for (String requestId : requestIds) {
+                tee.simulateUse(requestId, did);
+            }
+        }
+        tee.flushUsage();
+        long useNanos = System.nanoTime() - t0;
+        int queued = audit.pendingCount();
+        long t1 = System.nanoTime();
+        audit.flushBatchToChain();
+        long flushNanos = System.nanoTime() - t1;
+
+        String sample = requestIds[requests / 2];
+        UsageProof proof = maxRecords == 0 ? null : audit.proveUsage(sample, 2);
+        boolean verified = proof != null
+                && MerkleProofVerifier.verifyUsage(proof.getRecord(), proof, proof.getAggregateProof().getMerkleRoot());
+        System.setOut(out);
+
+        long uses = (long) requests * callsPerRequest;
+        System.out.printf("%s: %.0f 次/秒, 审计凭证 %d 条 (每次使用 %.4f 条), 上链 %.1f ms, 单次使用证明 %s%n",
+                maxRecords == 0 ? "逐次上报" : "聚合 N=" + maxRecords,
+                uses / (useNanos / 1e9), queued, queued / (double) uses, flushNanos / 1e6,
+                maxRecords == 0 ? "不适用" : verified ? "校验通过" : "校验失败");
+    }
+}
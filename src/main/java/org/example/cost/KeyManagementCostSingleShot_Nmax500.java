@@ -67,7 +67,7 @@ public class KeyManagementCostSingleShot_Nmax500 {
     static boolean rotateResourceCipherOnRotation = false; // 轮换时是否需要重新加密资源密文本身
     static boolean rotateWrapOnly = true;  // 若 true 则轮换仅重新生成 wrap（默认）；若 false 且 rotateResourceCipherOnRotation=true，则需重新加密资源
     static double retryRate = 0.05;        // 重试率（5%）
-    static double auditBytesPerWrap = 200; // 每次 wrap 产生的审计日志字节数
+    static double auditBytesPerWrap = 200; // 每次 wrap 产生的审计日志字节数（原始存储口径；压缩后实测见 AuditCompressionBenchmark）
     static double backupFactor = 1.0;      // 备份份数（例如 1 表示再保留一份副本）
     static double opsOneTimeCost = 100.0;  // 一次性的开发/集成/运维费用（本次分摊）
     // 若想按 N 分摊可在 simulate 中除以 N 或按方案分配
@@ -0,0 +1,83 @@
+package org.example.accomplish.service;
+
+import org.example.accomplish.model.AuditReceipt;
+import org.example.accomplish.model.Evidence;
+import org.example.accomplish.util.IdUtil;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+
+/**
+ * Anchoring through a chain: a cut root is not provable until it is confirmed, and neither a
+ * synchronous flush nor stopping the batcher hangs on a chain that never confirms.
+ */
+public class AuditServiceAnchoringTest {
+
+    @Test
+    public void cutRootIsNotProvableBeforeConfirmation() throws Exception {
+        AuditService audit = new AuditService(100, AuditService.BackpressurePolicy.BLOCK);
+        audit.setVerbose(false);
+        SimulatedChain chain = new SimulatedChain(20, 2, 0.0, 0.0);
+        audit.setChain(chain);
+        Evidence e = submit(audit);
+
+        CompletableFuture<AuditReceipt> anchored = audit.flushBatchToChainAsync();
+        assertFalse(anchored.isDone());
+        assertNull(audit.proveInclusion(e.getEvidenceId()));
+        assertNull(audit.latestReceipt());
+
+        chain.start();
+        try {
+            AuditReceipt r = anchored.get();
+            assertNotNull(audit.proveInclusion(e.getEvidenceId()));
+            assertEquals(r.getBatchId(), audit.latestReceipt().getBatchId());
+            assertNotNull(audit.proveConsistency(r.getMerkleRoot(), r.getMerkleRoot()));
+        } finally {
+            chain.stop();
+        }
+    }
+
+    @Test
+    public void flushFailsFastOnStoppedChain() {
+        AuditService audit = new AuditService(100, AuditService.BackpressurePolicy.BLOCK);
+        audit.setVerbose(false);
+        audit.setChain(new SimulatedChain(20, 2, 0.0, 0.0));
+        submit(audit);
+        try {
+            audit.flushBatchToChain();
+            fail("flush against a chain that is not running must not block");
+        } catch (IllegalStateException expected) {
+            // nothing was cut; the evidence is still queued
+        }
+        assertEquals(1, audit.pendingCount());
+        assertEquals(0, audit.inFlightAnchors());
+    }
+
+    @Test
+    public void stopBatcherReportsUnconfirmedAnchors() throws Exception {
+        AuditService audit = new AuditService(100, AuditService.BackpressurePolicy.BLOCK);
+        audit.setVerbose(false);
+        audit.setChain(new SimulatedChain(20, 2, 0.0, 0.0));
+        audit.setAnchorTimeoutMillis(200);
+        audit.startBatcher(1, 10, 2);
+        submit(audit);
+        assertFalse(audit.stopBatcher());
+        assertEquals(1, audit.inFlightAnchors());
+        assertNull(audit.latestReceipt());
+    }
+
+    private static Evidence submit(AuditService audit) {
+        Evidence e = new Evidence();
+        e.setEvidenceId(IdUtil.randomUUID());
+        e.setRequestId(IdUtil.randomUUID());
+        e.setRequesterDid("did:idata:anchoring");
+        e.setAttestationSummaryHash("00");
+        e.setDecisionResult("ALLOW_PENDING_RECEIPT");
+        e.setTimestamp(System.currentTimeMillis());
+        e.setKmsSignature("kms-sig-simulated");
+        assertTrue(audit.submitEvidence(e));
+        return e;
+    }
+}
@@ -0,0 +1,256 @@
+package org.example.accomplish.service;
+
+import org.example.accomplish.model.AuditReceipt;
+import org.example.accomplish.model.ConsistencyProof;
+import org.example.accomplish.model.Evidence;
+import org.example.accomplish.model.InclusionProof;
+import org.example.accomplish.model.UsageProof;
+import org.example.accomplish.model.UsageRecord;
+import org.example.accomplish.storage.EvidenceLog;
+import org.example.accomplish.util.EvidenceLeafHasher;
+import org.example.accomplish.util.IdUtil;
+import org.example.accomplish.util.MerkleProofVerifier;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Restart of a log-backed AuditService: anchored history must stay provable and evidence that
+ * was logged but never anchored must be anchored after the restart, on the same commitment.
+ */
+public class AuditServiceRecoveryTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void reopenRebuildsAccumulatorAndRequeuesTail() throws Exception {
+        File dir = tmp.newFolder("audit");
+        EvidenceLog log = new EvidenceLog(dir, 64 * 1024);
+        AuditService audit = new AuditService(1000, AuditService.BackpressurePolicy.BLOCK, log);
+        audit.setVerbose(false);
+        List<Evidence> anchored = submit(audit, 10);
+        AuditReceipt r1 = audit.flushBatchToChain();
+        anchored.addAll(submit(audit, 5));
+        AuditReceipt r2 = audit.flushBatchToChain();
+        List<Evidence> tail = submit(audit, 3);
+        assertEquals(15, r2.getMmrSize());
+        // crash: nothing is stopped or flushed beyond what the log already holds
+        log.close();
+
+        EvidenceLog reopenedLog = new EvidenceLog(dir, 64 * 1024);
+        AuditService reopened = new AuditService(1000, AuditService.BackpressurePolicy.BLOCK, reopenedLog);
+        reopened.setVerbose(false);
+        assertEquals(r2.getBatchId(), reopened.latestReceipt().getBatchId());
+        assertEquals(3, reopened.pendingCount());
+
+        for (Evidence e : anchored) {
+            InclusionProof p = reopened.proveInclusion(e.getEvidenceId());
+            assertNotNull(p);
+            assertTrue(MerkleProofVerifier.verifyInclusion(e, p, r2.getMerkleRoot()));
+        }
+        ConsistencyProof c12 = reopened.proveConsistency(r1.getMerkleRoot(), r2.getMerkleRoot());
+        assertNotNull(c12);
+        assertTrue(MerkleProofVerifier.verifyConsistency(c12, r1.getMerkleRoot(), r2.getMerkleRoot()));
+        assertNull(reopened.proveInclusion(tail.get(0).getEvidenceId()));
+
+        // the re-queued tail is anchored on the same growing commitment
+        AuditReceipt r3 = reopened.flushBatchToChain();
+        assertEquals(18, r3.getMmrSize());
+        assertEquals(3, r3.getBatchSize());
+        for (Evidence e : tail) {
+            assertTrue(MerkleProofVerifier.verifyInclusion(e, reopened.proveInclusion(e.getEvidenceId()), r3.getMerkleRoot()));
+        }
+        ConsistencyProof c23 = reopened.proveConsistency(r2.getMerkleRoot(), r3.getMerkleRoot());
+        assertTrue(MerkleProofVerifier.verifyConsistency(c23, r2.getMerkleRoot(), r3.getMerkleRoot()));
+
+        // new evidence after the restart continues the leaf numbering
+        Evidence fresh = submit(reopened, 1).get(0);
+        AuditReceipt r4 = reopened.flushBatchToChain();
+        InclusionProof p = reopened.proveInclusion(fresh.getEvidenceId());
+        assertEquals(18, p.getLeafIndex());
+        assertTrue(MerkleProofVerifier.verifyInclusion(fresh, p, r4.getMerkleRoot()));
+        reopenedLog.close();
+    }
+
+    @Test
+    public void reopenWithoutReceiptsRequeuesEverything() throws Exception {
+        File dir = tmp.newFolder("unanchored");
+        EvidenceLog log = new EvidenceLog(dir, 64 * 1024);
+        AuditService audit = new AuditService(1000, AuditService.BackpressurePolicy.BLOCK, log);
+        audit.setVerbose(false);
+        List<Evidence> all = submit(audit, 4);
+        log.close();
+
+        EvidenceLog reopenedLog = new EvidenceLog(dir, 64 * 1024);
+        AuditService reopened = new AuditService(1000, AuditService.BackpressurePolicy.BLOCK, reopenedLog);
+        reopened.setVerbose(false);
+        assertNull(reopened.latestReceipt());
+        assertEquals(4, reopened.pendingCount());
+        AuditReceipt r = reopened.flushBatchToChain();
+        assertEquals(4, r.getMmrSize());
+        for (Evidence e : all) {
+            assertTrue(MerkleProofVerifier.verifyInclusion(e, reopened.proveInclusion(e.getEvidenceId()), r.getMerkleRoot()));
+        }
+        reopenedLog.close();
+    }
+
+    private static List<Evidence> submit(AuditService audit, int n) {
+        return submit(audit, n, "did:idata:recovery");
+    }
+
+    private static List<Evidence> submit(AuditService audit, int n, String did) {
+        List<Evidence> out = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            Evidence e = new Evidence();
+            e.setEvidenceId(IdUtil.randomUUID());
+            e.setRequestId(IdUtil.randomUUID());
+            e.setRequesterDid(did);
+            e.setAttestationSummaryHash("00");
+            e.setDecisionResult("ALLOW_PENDING_RECEIPT");
+            e.setTimestamp(System.currentTimeMillis());
+            e.setKmsSignature("kms-sig-simulated");
+            assertTrue(audit.submitEvidence(e));
+            out.add(e);
+        }
+        return out;
+    }
+
+    @Test
+    public void sharedInternerIsOnlyReadByTheIndex() throws Exception {
+        File dir = tmp.newFolder("shared-interner");
+        EvidenceLog log = new EvidenceLog(dir, 64 * 1024);
+        AuditService audit = new AuditService(1000, AuditService.BackpressurePolicy.BLOCK, log);
+        audit.setVerbose(false);
+        submit(audit, 2);
+        submit(audit, 1, "unknown");
+        log.close();
+
+        DidRegistry registry = new DidRegistry();
+        registry.register("did:idata:recovery", "fp-recovery");
+        EvidenceLog reopenedLog = new EvidenceLog(dir, 64 * 1024);
+        AuditService reopened = new AuditService(1000, AuditService.BackpressurePolicy.BLOCK, reopenedLog,
+                EvidenceLeafHasher.Mode.FULL_CONTENT, registry.getInterner());
+        reopened.setVerbose(false);
+        assertEquals(1, registry.size());
+        assertTrue(registry.idOf("unknown") < 0);
+        assertEquals(2, reopened.findByRequesterDid("did:idata:recovery", 0, Long.MAX_VALUE).size());
+        assertEquals(1, reopened.findByRequesterDid("unknown", 0, Long.MAX_VALUE).size());
+
+        // a DID registered after some of its evidence was indexed finds all of it
+        submit(reopened, 1, "did:idata:late");
+        registry.register("did:idata:late", "fp-late");
+        submit(reopened, 1, "did:idata:late");
+        assertEquals(2, reopened.findByRequesterDid("did:idata:late", 0, Long.MAX_VALUE).size());
+        assertEquals(2, registry.size());
+        reopenedLog.close();
+    }
+
+    @Test
+    public void usageBatchesStayProvableAcrossReopen() throws Exception {
+        File dir = tmp.newFolder("usage");
+        EvidenceLog log = new EvidenceLog(dir, 64 * 1024);
+        AuditService audit = new AuditService(1000, AuditService.BackpressurePolicy.BLOCK, log);
+        audit.setVerbose(false);
+        UsageAggregator usage = new UsageAggregator(audit, "tee:recovery", 100, 60_000);
+        String requestId = IdUtil.randomUUID();
+        for (int call = 1; call <= 3; call++) {
+            usage.add(new UsageRecord(requestId, "did:idata:recovery", call, "00", System.currentTimeMillis()));
+        }
+        usage.stop(); // seals what is buffered
+        assertEquals(0, usage.pending());
+        assertEquals(1, usage.getSealedBatchCount());
+        AuditReceipt r = audit.flushBatchToChain();
+        UsageProof before = audit.proveUsage(requestId, 2);
+        assertTrue(MerkleProofVerifier.verifyUsage(before.getRecord(), before, r.getMerkleRoot()));
+        log.close();
+
+        EvidenceLog reopenedLog = new EvidenceLog(dir, 64 * 1024);
+        AuditService reopened = new AuditService(1000, AuditService.BackpressurePolicy.BLOCK, reopenedLog);
+        reopened.setVerbose(false);
+        UsageProof after = reopened.proveUsage(requestId, 2);
+        assertNotNull(after);
+        assertEquals(2, after.getRecord().getCall());
+        assertTrue(MerkleProofVerifier.verifyUsage(after.getRecord(), after, r.getMerkleRoot()));
+        assertNull(reopened.proveUsage(requestId, 4));
+        reopenedLog.close();
+    }
+
+    @Test
+    public void receiptAfterTornTailSurvivesReopen() throws Exception {
+        File dir = tmp.newFolder("torn");
+        EvidenceLog log = new EvidenceLog(dir, 64 * 1024);
+        AuditService audit = new AuditService(1000, AuditService.BackpressurePolicy.BLOCK, log);
+        audit.setVerbose(false);
+        submit(audit, 2);
+        audit.flushBatchToChain();
+        log.close();
+        // crash mid-put: a length word and part of the body
+        try (RandomAccessFile f = new RandomAccessFile(new File(dir, "receipts/receipts.dat"), "rw")) {
+            f.seek(f.length());
+            f.writeInt(200);
+            f.write(new byte[17]);
+        }
+
+        EvidenceLog second = new EvidenceLog(dir, 64 * 1024);
+        AuditService reopened = new AuditService(1000, AuditService.BackpressurePolicy.BLOCK, second);
+        reopened.setVerbose(false);
+        submit(reopened, 3);
+        AuditReceipt r2 = reopened.flushBatchToChain();
+        second.close();
+
+        EvidenceLog third = new EvidenceLog(dir, 64 * 1024);
+        AuditService again = new AuditService(1000, AuditService.BackpressurePolicy.BLOCK, third);
+        again.setVerbose(false);
+        assertEquals(r2.getBatchId(), again.latestReceipt().getBatchId());
+        assertEquals(0, again.pendingCount());
+        third.close();
+    }
+
+    @Test
+    public void reopenDropsAPartialCompressedSegment() throws Exception {
+        File dir = tmp.newFolder("partial");
+        EvidenceLog log = new EvidenceLog(dir, 4 * 1024);
+        AuditService audit = new AuditService(1000, AuditService.BackpressurePolicy.BLOCK, log);
+        audit.setVerbose(false);
+        submit(audit, 200); // fills several segments
+        log.close();
+        // crash while compressing segment 0
+        File partial = new File(dir, String.format("%020d.cseg.tmp", 0));
+        try (RandomAccessFile f = new RandomAccessFile(partial, "rw")) {
+            f.write(new byte[100]);
+        }
+
+        EvidenceLog reopenedLog = new EvidenceLog(dir, 4 * 1024);
+        assertFalse(partial.exists());
+        assertEquals(200, reopenedLog.recordCount());
+        assertTrue(reopenedLog.compactSealed() > 0);
+        assertEquals(200, reopenedLog.recordCount());
+        reopenedLog.close();
+    }
+
+    @Test
+    public void shedUsageBatchIsNotStored() throws Exception {
+        File dir = tmp.newFolder("shed");
+        EvidenceLog log = new EvidenceLog(dir, 64 * 1024);
+        AuditService audit = new AuditService(1, AuditService.BackpressurePolicy.SHED, log);
+        audit.setVerbose(false);
+        submit(audit, 1); // takes the only queue slot
+        UsageAggregator usage = new UsageAggregator(audit, "tee:shed", 100, 60_000);
+        String requestId = IdUtil.randomUUID();
+        usage.add(new UsageRecord(requestId, "did:idata:shed", 1, "00", System.currentTimeMillis()));
+        usage.flush();
+        assertEquals(1, usage.getDroppedRecordCount());
+        assertEquals(1, audit.getShedCount());
+        assertEquals(0, new File(dir, "usage/usage.dat").length());
+        audit.flushBatchToChain();
+        assertNull(audit.proveUsage(requestId, 1));
+        log.close();
+    }
+}
@@ -0,0 +1,109 @@
+package org.example.accomplish.service;
+
+import org.example.accomplish.policy.PolicyEngine;
+import org.example.accomplish.policy.RequestAttributes;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AuthorizationCacheTest {
+
+    // a contract whose next chain read lets an event land between the read and the cache install
+    private static final class RacingContract extends PolicyContract {
+        Runnable duringRead;
+
+        @Override
+        public AuthorizationRecord getAuthorization(String authorizationId) {
+            AuthorizationRecord rec = super.getAuthorization(authorizationId);
+            Runnable r = duringRead;
+            duringRead = null;
+            if (r != null) r.run();
+            return rec;
+        }
+    }
+
+    @Test
+    public void negativeLoadDoesNotOverwriteRacingPublish() {
+        RacingContract contract = new RacingContract();
+        AuthorizationCache cache = new AuthorizationCache(contract, 60_000, 64);
+        PolicyContract.AuthorizationRecord rec = new PolicyContract.AuthorizationRecord("auth-1", "res-1", "did:idata:a", null,
+                System.currentTimeMillis() + 60_000, false, null);
+        contract.duringRead = () -> cache.onPublished(rec);
+
+        assertTrue(cache.isValid("auth-1", "did:idata:a"));
+        assertTrue(cache.isValid("auth-1", "did:idata:a"));
+        assertEquals(1, contract.getChainReadCount());
+    }
+
+    @Test
+    public void loadAfterInvalidateAllIsNotCachedUnderNewEpoch() {
+        RacingContract contract = new RacingContract();
+        AuthorizationCache cache = new AuthorizationCache(contract, 60_000, 64);
+        contract.duringRead = cache::invalidateAll;
+
+        assertFalse(cache.isValid("auth-2", "did:idata:a"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void revocationOfAnUncachedIdExpiresLikeANegativeEntry() throws Exception {
+        PolicyContract contract = new PolicyContract();
+        String id = contract.publishAuthorization("res-3", "did:idata:a", 60);
+        AuthorizationCache cache = new AuthorizationCache(contract, 0, 64); // never saw the publish
+        contract.revokeAuthorization(id);
+        assertEquals(1, cache.size());
+
+        Thread.sleep(2);
+        long reads = contract.getChainReadCount();
+        assertFalse(cache.isValid(id, "did:idata:a"));
+        assertEquals(reads + 1, contract.getChainReadCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void fullCacheEvictsASliceNotEverything() {
+        PolicyContract contract = new PolicyContract();
+        AuthorizationCache cache = new AuthorizationCache(contract, 60_000, 64);
+        String hot = contract.publishAuthorization("res-hot", "did:idata:hot", 60);
+        for (int i = 0; i < 500; i++) {
+            assertTrue(cache.isValid(hot, "did:idata:hot"));
+            cache.isValid("unknown-" + i, "did:idata:a");
+        }
+        assertTrue(cache.size() < 64);
+        assertTrue(cache.size() > 32);
+        assertTrue(cache.getEvictionCount() > 0);
+        long reads = contract.getChainReadCount();
+        assertTrue(cache.isValid(hot, "did:idata:hot"));
+        assertEquals("the entry in use survives the sweeps", reads, contract.getChainReadCount());
+    }
+
+    @Test
+    public void grantIsOneSnapshotOfTheCheckedAuthorization() {
+        PolicyContract contract = new PolicyContract();
+        AuthorizationCache cache = new AuthorizationCache(contract);
+        String id = contract.publishAuthorization("res-1", "did:idata:a", 60);
+
+        AuthorizationCache.Grant grant = cache.lookup(id, "did:idata:a");
+        assertNotNull(grant);
+        assertTrue(grant.covers("res-1"));
+        assertFalse(grant.covers("res-2"));
+        assertEquals(PolicyEngine.DEFAULT_POLICY, grant.getPolicy());
+        assertNull(cache.lookup(id, "did:idata:b"));
+        contract.revokeAuthorization(id);
+        assertNull(cache.lookup(id, "did:idata:a"));
+    }
+
+    @Test
+    public void missingPolicyIsDenied() {
+        PolicyContract contract = new PolicyContract();
+        AuthorizationCache cache = new AuthorizationCache(contract);
+        cache.onPublished(new PolicyContract.AuthorizationRecord("auth-3", "res-1", "did:idata:a", null,
+                System.currentTimeMillis() + 60_000, false, null));
+
+        AuthorizationCache.Grant grant = cache.lookup("auth-3", "did:idata:a");
+        assertNotNull(grant);
+        assertNull(grant.getPolicy());
+        RequestAttributes attrs = new RequestAttributes("analysis", 0, System.currentTimeMillis(), "tee-1", "did:idata:a");
+        assertFalse(new PolicyEngine().evaluate(grant.getPolicy(), attrs).isAllowed());
+    }
+}
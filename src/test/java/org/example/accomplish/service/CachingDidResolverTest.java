@@ -0,0 +1,84 @@
+package org.example.accomplish.service;
+
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.*;
+
+public class CachingDidResolverTest {
+    private static final String DID = "did:idata:resolver";
+
+    // inflight table that holds the registering miss until a second miss has joined its load
+    private static final class JoinAfterRegister<V> extends ConcurrentHashMap<String, V> {
+        final CountDownLatch registered = new CountDownLatch(1);
+        final CountDownLatch joined = new CountDownLatch(1);
+        volatile Thread first;
+
+        @Override
+        public V putIfAbsent(String key, V value) {
+            V running = super.putIfAbsent(key, value);
+            if (running == null && Thread.currentThread() == first) {
+                registered.countDown();
+                await(joined);
+            } else if (running != null) {
+                joined.countDown();
+            }
+            return running;
+        }
+
+        private static void await(CountDownLatch latch) {
+            try {
+                latch.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Two misses read the table before a load finished; the first registers after it finished and
+     * finds the fresh entry. The second, which joined the first's registration, must still return.
+     */
+    @Test
+    public void missJoiningALoadThatFoundAFreshEntryReturns() throws Exception {
+        DidRegistry registry = new DidRegistry();
+        registry.register(DID, "fp-resolver");
+        CachingDidResolver resolver = new CachingDidResolver(registry);
+        assertNotNull(resolver.resolve(DID)); // the load that finished in between
+        JoinAfterRegister<Object> inflight = new JoinAfterRegister<>();
+        Field f = CachingDidResolver.class.getDeclaredField("inflight");
+        f.setAccessible(true);
+        f.set(resolver, inflight);
+        Method load = CachingDidResolver.class.getDeclaredMethod("load", String.class);
+        load.setAccessible(true);
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> first = pool.submit(() -> {
+                inflight.first = Thread.currentThread();
+                return load.invoke(resolver, DID);
+            });
+            assertTrue(inflight.registered.await(5, TimeUnit.SECONDS));
+            Future<Object> second = pool.submit(() -> load.invoke(resolver, DID));
+            assertNotNull(first.get(5, TimeUnit.SECONDS));
+            try {
+                assertNotNull(second.get(5, TimeUnit.SECONDS));
+            } catch (TimeoutException ex) {
+                fail("a miss joined a load that was never completed");
+            }
+            assertTrue(inflight.isEmpty());
+        } finally {
+            pool.shutdownNow();
+            resolver.shutdown();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package org.example.accomplish.service;
+
+import org.example.accomplish.model.Evidence;
+import org.example.accomplish.model.Request;
+import org.example.accomplish.util.CryptoUtil;
+import org.example.accomplish.util.IdUtil;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * KMS decisions under a saturated audit queue: no wrap_DEK may be issued for a request whose
+ * ALLOW evidence the audit service did not take.
+ */
+public class KmsServiceBackpressureTest {
+    private static final String DID = "did:idata:backpressure";
+    private static final String TEE = "tee:test";
+
+    private ResourceStore resourceStore;
+    private PolicyContract policy;
+    private DidRegistry didRegistry;
+    private String authId;
+
+    @Before
+    public void setUp() {
+        resourceStore = new ResourceStore();
+        resourceStore.createResource("resource-001", "test resource".getBytes());
+        policy = new PolicyContract();
+        didRegistry = new DidRegistry();
+        didRegistry.register(DID, "fp-test");
+        authId = policy.publishAuthorization("resource-001", DID, 600);
+    }
+
+    @Test
+    public void shedAllowEvidenceIssuesNoWrap() {
+        AuditService audit = new AuditService(2, AuditService.BackpressurePolicy.SHED);
+        audit.setVerbose(false);
+        KmsService kms = new KmsService(policy, didRegistry, audit, resourceStore);
+        fill(audit, 2);
+
+        Request req = request();
+        assertFalse(kms.handleRequest(req, TEE));
+        assertEquals(1, audit.getShedCount());
+        assertNull(kms.getWrapByRequest(req.getRequestId()));
+
+        // a receipt arriving later must not bring the refused request's wrap out
+        assertNotNull(audit.flushBatchToChain());
+        kms.tryIssuePendingWraps();
+        assertNull(kms.getWrapByRequest(req.getRequestId()));
+        assertNull(kms.fetchWrapForTee(req.getRequestId()));
+
+        // with room in the queue again the same KMS issues normally
+        Request next = request();
+        assertTrue(kms.handleRequest(next, TEE));
+        audit.flushBatchToChain();
+        kms.tryIssuePendingWraps();
+        assertNotNull(kms.fetchWrapForTee(next.getRequestId()).getKmsSignature());
+    }
+
+    @Test
+    public void rejectedAllowEvidenceIsACleanDenial() {
+        AuditService audit = new AuditService(1, AuditService.BackpressurePolicy.REJECT);
+        audit.setVerbose(false);
+        KmsService kms = new KmsService(policy, didRegistry, audit, resourceStore);
+        fill(audit, 1);
+
+        Request req = request();
+        assertFalse(kms.handleRequest(req, TEE));
+        assertEquals(1, audit.getRejectCount());
+        assertNull(kms.getWrapByRequest(req.getRequestId()));
+
+        // rejection evidence hitting the full queue is not an exception either
+        Request unknownAuth = request();
+        unknownAuth.setAuthorizationTxId("no-such-authorization");
+        assertFalse(kms.handleRequest(unknownAuth, TEE));
+    }
+
+    @Test
+    public void shedUsageEvidenceRefusesTheUse() {
+        AuditService audit = new AuditService(2, AuditService.BackpressurePolicy.SHED);
+        audit.setVerbose(false);
+        KmsService kms = new KmsService(policy, didRegistry, audit, resourceStore);
+        TeeEnvironment tee = new TeeEnvironment(TEE, audit, kms, resourceStore);
+        tee.setUsageAggregator(null);
+        Request req = request();
+        assertTrue(kms.handleRequest(req, TEE));
+        audit.flushBatchToChain();
+        kms.tryIssuePendingWraps();
+
+        fill(audit, 2);
+        assertFalse(tee.simulateUse(req.getRequestId(), DID));
+        audit.flushBatchToChain();
+        assertTrue(tee.simulateUse(req.getRequestId(), DID));
+    }
+
+    private Request request() {
+        Request req = new Request();
+        req.setRequestId(IdUtil.randomUUID());
+        req.setRequesterDid(DID);
+        req.setResourceId("resource-001");
+        req.setAuthorizationTxId(authId);
+        req.setTimestamp(System.currentTimeMillis());
+        req.setAttestationSummaryHash(CryptoUtil.sha256Hex("simulated-attestation"));
+        req.setSignature("sig-simulated");
+        return req;
+    }
+
+    private static void fill(AuditService audit, int n) {
+        for (int i = 0; i < n; i++) {
+            Evidence e = new Evidence();
+            e.setEvidenceId(IdUtil.randomUUID());
+            e.setDecisionResult("TEE_USAGE_OK");
+            e.setTimestamp(System.currentTimeMillis());
+            assertTrue(audit.submitEvidence(e));
+        }
+    }
+}
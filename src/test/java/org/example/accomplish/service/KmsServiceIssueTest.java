@@ -0,0 +1,99 @@
+package org.example.accomplish.service;
+
+import org.example.accomplish.model.AuditReceipt;
+import org.example.accomplish.model.Request;
+import org.example.accomplish.model.WrapDek;
+import org.example.accomplish.util.CryptoUtil;
+import org.example.accomplish.util.IdUtil;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Wrap finalization: a wrap is bound only to a receipt that anchors its own decision evidence.
+ */
+public class KmsServiceIssueTest {
+    private static final String DID = "did:idata:issue";
+    private static final String TEE = "tee:test";
+
+    @Test
+    public void wrapWaitsForTheReceiptCoveringItsEvidence() {
+        ResourceStore resourceStore = new ResourceStore();
+        resourceStore.createResource("resource-001", "test resource".getBytes());
+        PolicyContract policy = new PolicyContract();
+        DidRegistry didRegistry = new DidRegistry();
+        didRegistry.register(DID, "fp-test");
+        String authId = policy.publishAuthorization("resource-001", DID, 600);
+        AuditService audit = new AuditService(100, AuditService.BackpressurePolicy.BLOCK);
+        audit.setVerbose(false);
+        KmsService kms = new KmsService(policy, didRegistry, audit, resourceStore);
+
+        Request first = request(authId);
+        assertTrue(kms.handleRequest(first, TEE));
+        AuditReceipt r1 = audit.flushBatchToChain();
+        Request second = request(authId);
+        assertTrue(kms.handleRequest(second, TEE));
+
+        // the latest receipt predates the second decision: only the first wrap goes out
+        kms.tryIssuePendingWraps();
+        WrapDek w1 = kms.fetchWrapForTee(first.getRequestId());
+        assertNotNull(w1.getKmsSignature());
+        assertEquals(CryptoUtil.sha256Hex(r1.getBatchId()), w1.getBoundReceiptIdSha256());
+        assertNull(kms.getWrapByRequest(second.getRequestId()).getKmsSignature());
+
+        AuditReceipt r2 = audit.flushBatchToChain();
+        kms.tryIssuePendingWraps();
+        WrapDek w2 = kms.fetchWrapForTee(second.getRequestId());
+        assertNotNull(w2.getKmsSignature());
+        assertEquals(CryptoUtil.sha256Hex(r2.getBatchId()), w2.getBoundReceiptIdSha256());
+    }
+
+    @Test
+    public void revokedAndExpiredWrapsLeaveTheLookups() {
+        ResourceStore resourceStore = new ResourceStore();
+        resourceStore.createResource("resource-001", "test resource".getBytes());
+        PolicyContract policy = new PolicyContract();
+        DidRegistry didRegistry = new DidRegistry();
+        didRegistry.register(DID, "fp-test");
+        String revokedAuth = policy.publishAuthorization("resource-001", DID, 600);
+        String liveAuth = policy.publishAuthorization("resource-001", DID, 600);
+        AuditService audit = new AuditService(100, AuditService.BackpressurePolicy.BLOCK);
+        audit.setVerbose(false);
+        KmsService kms = new KmsService(policy, didRegistry, audit, resourceStore);
+
+        Request revoked = request(revokedAuth);
+        Request live = request(liveAuth);
+        assertTrue(kms.handleRequest(revoked, TEE));
+        assertTrue(kms.handleRequest(live, TEE));
+        audit.flushBatchToChain();
+        kms.tryIssuePendingWraps();
+        WrapDek rw = kms.getWrapByRequest(revoked.getRequestId());
+        WrapDek lw = kms.getWrapByRequest(live.getRequestId());
+
+        assertEquals(1, kms.revokeWrapByAuthorizationId(revokedAuth).size());
+        assertNull(kms.getWrapByRequest(revoked.getRequestId()));
+        assertFalse(kms.requestRenewal(revoked.getRequestId(), TEE));
+        assertSame(rw, kms.getWrap(rw.getWrapDekId())); // still routable to its TEE
+        assertTrue(kms.revokeWrapByAuthorizationId(revokedAuth).isEmpty());
+
+        assertEquals(0, kms.expireWraps(Math.min(rw.getValidTo(), lw.getValidTo()) - 1));
+        assertEquals(2, kms.expireWraps(Math.max(rw.getValidTo(), lw.getValidTo())));
+        assertNull(kms.getWrap(rw.getWrapDekId()));
+        assertNull(kms.getWrap(lw.getWrapDekId()));
+        assertNull(kms.getWrapByRequest(live.getRequestId()));
+        assertFalse(kms.requestRenewal(live.getRequestId(), TEE));
+        assertTrue(kms.revokeWrapByAuthorizationId(liveAuth).isEmpty());
+    }
+
+    private static Request request(String authId) {
+        Request req = new Request();
+        req.setRequestId(IdUtil.randomUUID());
+        req.setRequesterDid(DID);
+        req.setResourceId("resource-001");
+        req.setAuthorizationTxId(authId);
+        req.setTimestamp(System.currentTimeMillis());
+        req.setAttestationSummaryHash(CryptoUtil.sha256Hex("simulated-attestation"));
+        req.setSignature("sig-simulated");
+        return req;
+    }
+}
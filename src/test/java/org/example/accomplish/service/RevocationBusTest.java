@@ -0,0 +1,90 @@
+package org.example.accomplish.service;
+
+import org.example.accomplish.model.Request;
+import org.example.accomplish.model.WrapDek;
+import org.example.accomplish.util.CryptoUtil;
+import org.example.accomplish.util.IdUtil;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class RevocationBusTest {
+
+    @Test
+    public void removingAMemberRevokesOnlyItsWraps() throws Exception {
+        ResourceStore resourceStore = new ResourceStore();
+        resourceStore.createResource("resource-001", "test resource".getBytes());
+        PolicyContract policy = new PolicyContract();
+        DidRegistry didRegistry = new DidRegistry();
+        didRegistry.register("did:idata:a", "fp-a");
+        didRegistry.register("did:idata:b", "fp-b");
+        String authId = policy.publishGroupAuthorization("resource-001", Arrays.asList("did:idata:a", "did:idata:b"), 600, null);
+        AuditService audit = new AuditService(100, AuditService.BackpressurePolicy.BLOCK);
+        audit.setVerbose(false);
+        KmsService kms = new KmsService(policy, didRegistry, audit, resourceStore);
+        RevocationBus bus = new RevocationBus(kms, 2, 16);
+        policy.addListener(bus);
+        bus.start();
+        try {
+            Request a = request("did:idata:a", authId);
+            Request b = request("did:idata:b", authId);
+            assertTrue(kms.handleRequest(a, "tee:1"));
+            assertTrue(kms.handleRequest(b, "tee:1"));
+            audit.flushBatchToChain();
+            kms.tryIssuePendingWraps();
+            WrapDek wrapA = kms.getWrapByRequest(a.getRequestId());
+
+            assertTrue(policy.removeGroupMembers(authId, Collections.singletonList("did:idata:a")));
+            assertTrue(bus.awaitDelivered(5_000));
+            assertTrue(wrapA.isRevoked());
+            assertNull(kms.getWrapByRequest(a.getRequestId())); // revoked wraps leave the request lookup
+            assertNull(kms.fetchWrapForTee(a.getRequestId()));
+            assertNotNull(kms.fetchWrapForTee(b.getRequestId()));
+            assertFalse(kms.handleRequest(request("did:idata:a", authId), "tee:1"));
+        } finally {
+            bus.stop();
+        }
+    }
+
+    @Test
+    public void stopDeliversWhatIsStillQueued() throws Exception {
+        ResourceStore resourceStore = new ResourceStore();
+        resourceStore.createResource("resource-001", "test resource".getBytes());
+        PolicyContract policy = new PolicyContract();
+        DidRegistry didRegistry = new DidRegistry();
+        didRegistry.register("did:idata:a", "fp-a");
+        String authId = policy.publishAuthorization("resource-001", "did:idata:a", 600);
+        AuditService audit = new AuditService(100, AuditService.BackpressurePolicy.BLOCK);
+        audit.setVerbose(false);
+        KmsService kms = new KmsService(policy, didRegistry, audit, resourceStore);
+        Request a = request("did:idata:a", authId);
+        assertTrue(kms.handleRequest(a, "tee:1"));
+        audit.flushBatchToChain();
+        kms.tryIssuePendingWraps();
+        WrapDek wrapA = kms.getWrapByRequest(a.getRequestId());
+
+        RevocationBus bus = new RevocationBus(kms, 2, 16);
+        policy.addListener(bus);
+        policy.revokeAuthorization(authId); // queued: no lane is running
+        assertFalse(bus.awaitDelivered(0));
+        bus.stop();
+        assertTrue(bus.awaitDelivered(0));
+        assertEquals(1, bus.getDeliveredCount());
+        assertTrue(wrapA.isRevoked());
+    }
+
+    private static Request request(String did, String authId) {
+        Request req = new Request();
+        req.setRequestId(IdUtil.randomUUID());
+        req.setRequesterDid(did);
+        req.setResourceId("resource-001");
+        req.setAuthorizationTxId(authId);
+        req.setTimestamp(System.currentTimeMillis());
+        req.setAttestationSummaryHash(CryptoUtil.sha256Hex("simulated-attestation"));
+        req.setSignature("sig-simulated");
+        return req;
+    }
+}
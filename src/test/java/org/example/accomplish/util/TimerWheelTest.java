@@ -0,0 +1,38 @@
+package org.example.accomplish.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Items scheduled with a deadline that has already passed fire on the next pass, not a
+ * revolution later.
+ */
+public class TimerWheelTest {
+    @Test
+    public void pastDueItemScheduledFromTheCallbackFiresWithoutARevolution() {
+        TimerWheel<String> wheel = new TimerWheel<>(100, 8, 0);
+        List<String> fired = new ArrayList<>();
+        wheel.schedule("a", 150);
+        wheel.advance(350, item -> {
+            fired.add(item);
+            if (item.equals("a")) wheel.schedule("b", 120);
+        });
+        wheel.advance(360, fired::add);
+        assertEquals(2, fired.size());
+        assertEquals("b", fired.get(1));
+    }
+
+    @Test
+    public void pastDueItemScheduledBetweenPassesFiresOnTheNext() {
+        TimerWheel<String> wheel = new TimerWheel<>(100, 8, 0);
+        List<String> fired = new ArrayList<>();
+        wheel.advance(550, fired::add);
+        wheel.schedule("late", 50);
+        assertEquals(1, wheel.advance(560, fired::add));
+        assertEquals("late", fired.get(0));
+    }
+}